@@ -22,39 +22,342 @@ package net.william278.huskhomes.gui;
 import net.kyori.adventure.platform.AudienceProvider;
 import net.kyori.adventure.platform.bukkit.BukkitAudiences;
 import net.william278.desertwell.util.Version;
+import net.william278.huskhomes.gui.cache.HomeListCache;
+import net.william278.huskhomes.gui.cache.HomeSlotCache;
+import net.william278.huskhomes.gui.cache.HotWarps;
+import net.william278.huskhomes.gui.cache.ItemPrototypeCache;
+import net.william278.huskhomes.gui.cache.MaterialCatalog;
+import net.william278.huskhomes.gui.cache.MenuSessions;
+import net.william278.huskhomes.gui.cache.ProfileCache;
+import net.william278.huskhomes.gui.cache.RecentPositions;
+import net.william278.huskhomes.gui.cache.WarpCategoryIndex;
+import net.william278.huskhomes.gui.cache.WarpVisibility;
 import net.william278.huskhomes.gui.command.HuskHomesGuiCommand;
+import net.william278.huskhomes.gui.config.ConfigCache;
 import net.william278.huskhomes.gui.config.Locales;
 import net.william278.huskhomes.gui.config.Settings;
+import net.william278.huskhomes.gui.diagnostics.AllocationBudgets;
+import net.william278.huskhomes.gui.diagnostics.GuiMetrics;
+import net.william278.huskhomes.gui.diagnostics.StallWatchdog;
+import net.william278.huskhomes.gui.hook.HuskHomesApiHook;
+import net.william278.huskhomes.gui.hook.HuskHomesHook;
 import net.william278.huskhomes.gui.listener.ListListener;
+import net.william278.huskhomes.gui.listener.MenuListener;
+import net.william278.huskhomes.gui.listener.PlayerListener;
+import net.william278.huskhomes.gui.listener.PositionListener;
+import net.william278.huskhomes.gui.menu.LiveMenus;
+import net.william278.huskhomes.gui.model.PositionView;
+import net.william278.huskhomes.gui.store.GuiDataStore;
+import net.william278.huskhomes.gui.store.TagMigration;
+import net.william278.huskhomes.gui.task.BulkHomeJob;
+import net.william278.huskhomes.gui.task.DeletionQueue;
+import net.william278.huskhomes.gui.task.GuiExecutor;
+import net.william278.huskhomes.gui.task.JoinWarmer;
+import net.william278.huskhomes.gui.task.TaskScheduler;
+import net.william278.huskhomes.gui.task.TickBudgetScheduler;
 import org.bukkit.plugin.java.JavaPlugin;
 import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
 
+import java.io.IOException;
 import java.util.Objects;
+import java.util.Optional;
 import java.util.logging.Level;
 
 public class HuskHomesGui extends JavaPlugin implements HuskHomesGuiPlugin {
     private BukkitAudiences adventure;
     private Settings settings;
     private Locales locales;
+    private HuskHomesHook huskHomes;
+    private final GuiMetrics metrics = new GuiMetrics();
+    private final AllocationBudgets allocationBudgets = new AllocationBudgets(this);
+    private final StallWatchdog stallWatchdog = new StallWatchdog(this);
+    private TaskScheduler scheduler;
+    private GuiExecutor guiExecutor;
+    private TickBudgetScheduler tickScheduler;
+    private GuiDataStore dataStore;
+    private TagMigration tagMigration;
+    private ProfileCache profileCache;
+    private HotWarps hotWarps;
+    private ItemPrototypeCache itemPrototypes;
+    private final HomeSlotCache homeSlots = new HomeSlotCache(this);
+    private final HomeListCache homeLists = new HomeListCache();
+    private final WarpCategoryIndex warpCategories = new WarpCategoryIndex(this);
+    private final WarpVisibility warpVisibility = new WarpVisibility(this);
+    private final LiveMenus liveMenus = new LiveMenus(this);
+    private MaterialCatalog materialCatalog;
+    private JoinWarmer joinWarmer;
+    private MenuSessions sessions;
+    private DeletionQueue deletions;
+    private RecentPositions recentPositions;
+    @Nullable
+    private BulkHomeJob bulkJob;
 
     public void onEnable() {
+        final long startTime = System.nanoTime();
+
         // Load audiences
         this.adventure = BukkitAudiences.create(this);
 
         // Load settings and locales
         this.reloadConfigFiles();
 
-        // Register event listener and command
+        // Hook into HuskHomes for homes, warps and users
+        this.huskHomes = createHuskHomesHook();
+
+        // Pick the Paper or Folia task scheduler
+        this.scheduler = TaskScheduler.create(this);
+
+        // Start the GUI I/O executor and tick-budgeted menu scheduler
+        this.guiExecutor = new GuiExecutor(this);
+        this.tickScheduler = new TickBudgetScheduler(this);
+        this.tickScheduler.start();
+        this.profileCache = new ProfileCache(this);
+
+        // Open the local store of GUI-owned data, and move icons and categories out of HuskHomes meta tags
+        this.dataStore = new GuiDataStore(this);
+        try {
+            this.dataStore.start();
+        } catch (IOException e) {
+            getLogger().log(Level.SEVERE, "Failed to open the GUI data store; changes will not be saved", e);
+        }
+        PositionView.setIconSource(dataStore::getIcon);
+        this.tagMigration = new TagMigration(this);
+        this.tagMigration.start();
+
+        this.hotWarps = new HotWarps(this);
+        this.hotWarps.start();
+        this.itemPrototypes = new ItemPrototypeCache(this);
+        this.materialCatalog = MaterialCatalog.build();
+        this.joinWarmer = new JoinWarmer(this);
+        this.joinWarmer.start();
+        this.sessions = new MenuSessions(this);
+        this.sessions.load();
+        this.recentPositions = new RecentPositions(this);
+        this.recentPositions.load();
+        this.deletions = new DeletionQueue(this);
+        this.deletions.start();
+
+        // Start watching menu callbacks for stalls
+        this.stallWatchdog.start();
+
+        // Register event listeners and command
         getServer().getPluginManager().registerEvents(new ListListener(this), this);
+        getServer().getPluginManager().registerEvents(new PlayerListener(this), this);
+        getServer().getPluginManager().registerEvents(new MenuListener(this), this);
+        getServer().getPluginManager().registerEvents(new PositionListener(this), this);
         Objects.requireNonNull(getCommand("huskhomesgui")).setExecutor(new HuskHomesGuiCommand(this));
 
         // Log to console
-        getLogger().log(Level.INFO, "Successfully enabled HuskHomes v" + getDescription().getVersion());
+        getLogger().log(Level.INFO, String.format("Successfully enabled HuskHomes v%s in %.1f ms",
+                getDescription().getVersion(), (System.nanoTime() - startTime) / 1e6));
+    }
+
+    @Override
+    public void onDisable() {
+        if (tickScheduler != null) {
+            tickScheduler.stop();
+        }
+        if (hotWarps != null) {
+            hotWarps.stop();
+        }
+        if (joinWarmer != null) {
+            joinWarmer.stop();
+        }
+        if (sessions != null) {
+            sessions.save();
+        }
+        if (recentPositions != null) {
+            recentPositions.save();
+        }
+        if (deletions != null) {
+            deletions.stop();
+        }
+        if (bulkJob != null) {
+            bulkJob.stop();
+        }
+        if (tagMigration != null) {
+            tagMigration.stop();
+        }
+        if (dataStore != null) {
+            dataStore.stop();
+        }
+        if (scheduler != null) {
+            scheduler.cancelAll();
+        }
+        if (guiExecutor != null) {
+            guiExecutor.shutdown();
+        }
+        stallWatchdog.stop();
+        if (allocationBudgets.hasMeasurements()) {
+            try {
+                allocationBudgets.writeReport();
+            } catch (IOException e) {
+                getLogger().log(Level.WARNING, "Failed to write allocation report", e);
+            }
+        }
     }
 
     public void reloadConfigFiles() {
-        this.settings = loadSettings();
-        this.locales = loadLocales();
+        final long startTime = System.nanoTime();
+        final ConfigCache cache = new ConfigCache(getDataFolder(), getDescription().getVersion(), getLogger());
+        final Optional<ConfigCache.Cached> cached = cache.read();
+        if (cached.isPresent()) {
+            this.settings = cached.get().settings();
+            this.locales = cached.get().locales();
+        } else {
+            this.settings = loadSettings();
+            this.locales = loadLocales(settings.getLanguage());
+            cache.write(settings, locales);
+        }
+        if (itemPrototypes != null) {
+            itemPrototypes.invalidateAll();
+        }
+        warpVisibility.invalidateAll();
+        getLogger().log(Level.INFO, String.format("Loaded config files in %.1f ms (%s)",
+                (System.nanoTime() - startTime) / 1e6, cached.isPresent() ? "from cache" : "parsed"));
+    }
+
+    /**
+     * Run a task on the server thread (the global region on Folia), e.g. to hand the result of {@link GuiExecutor}
+     * work back; work touching a player's menu should use {@link TaskScheduler#runForPlayer} instead
+     *
+     * @param runnable The task to run
+     */
+    public void runSync(@NotNull Runnable runnable) {
+        scheduler.runGlobal(runnable);
+    }
+
+    /**
+     * Create the hook the GUI reads and writes HuskHomes data through
+     *
+     * @return a hook backed by the HuskHomes API
+     */
+    @NotNull
+    protected HuskHomesHook createHuskHomesHook() {
+        return new HuskHomesApiHook();
+    }
+
+    @NotNull
+    public HuskHomesHook getHuskHomes() {
+        return huskHomes;
+    }
+
+    @NotNull
+    public TaskScheduler getScheduler() {
+        return scheduler;
+    }
+
+    @NotNull
+    public GuiExecutor getGuiExecutor() {
+        return guiExecutor;
+    }
+
+    @NotNull
+    public GuiMetrics getMetrics() {
+        return metrics;
+    }
+
+    @NotNull
+    public AllocationBudgets getAllocationBudgets() {
+        return allocationBudgets;
+    }
+
+    @NotNull
+    public StallWatchdog getStallWatchdog() {
+        return stallWatchdog;
+    }
+
+    @NotNull
+    public ProfileCache getProfileCache() {
+        return profileCache;
+    }
+
+    @NotNull
+    public ItemPrototypeCache getItemPrototypes() {
+        return itemPrototypes;
+    }
+
+    @NotNull
+    public HomeSlotCache getHomeSlots() {
+        return homeSlots;
+    }
+
+    @NotNull
+    public HomeListCache getHomeLists() {
+        return homeLists;
+    }
+
+    @NotNull
+    public MaterialCatalog getMaterialCatalog() {
+        return materialCatalog;
+    }
+
+    @NotNull
+    public LiveMenus getLiveMenus() {
+        return liveMenus;
+    }
+
+    @NotNull
+    public WarpCategoryIndex getWarpCategories() {
+        return warpCategories;
+    }
+
+    @NotNull
+    public WarpVisibility getWarpVisibility() {
+        return warpVisibility;
+    }
+
+    @NotNull
+    public RecentPositions getRecentPositions() {
+        return recentPositions;
+    }
+
+    /**
+     * Get the staff bulk home cleanup that is being previewed, run or waiting to be resumed
+     *
+     * @return the current cleanup, or {@code null} if there is none
+     */
+    @Nullable
+    public BulkHomeJob getBulkJob() {
+        return bulkJob;
+    }
+
+    public void setBulkJob(@Nullable BulkHomeJob bulkJob) {
+        if (this.bulkJob != null && this.bulkJob != bulkJob) {
+            this.bulkJob.stop();
+        }
+        this.bulkJob = bulkJob;
+    }
+
+    @NotNull
+    public GuiDataStore getDataStore() {
+        return dataStore;
+    }
+
+    @NotNull
+    public DeletionQueue getDeletions() {
+        return deletions;
+    }
+
+    @NotNull
+    public MenuSessions getSessions() {
+        return sessions;
+    }
+
+    @NotNull
+    public JoinWarmer getJoinWarmer() {
+        return joinWarmer;
+    }
+
+    @NotNull
+    public HotWarps getHotWarps() {
+        return hotWarps;
+    }
+
+    @NotNull
+    public TickBudgetScheduler getTickScheduler() {
+        return tickScheduler;
     }
 
     @Override
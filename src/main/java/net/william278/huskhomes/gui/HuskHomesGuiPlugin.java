@@ -34,10 +34,10 @@ import java.lang.reflect.InvocationTargetException;
 public interface HuskHomesGuiPlugin {
 
     @NotNull
-    default Locales loadLocales() {
+    default Locales loadLocales(@NotNull String language) {
         try {
-            return Annotaml.create(new File(getDataFolder(), "messages-" + loadSettings().getLanguage() + ".yml"),
-                    Annotaml.create(Locales.class, getResource("locales/" + loadSettings().getLanguage() + ".yml")).get()).get();
+            return Annotaml.create(new File(getDataFolder(), "messages-" + language + ".yml"),
+                    Annotaml.create(Locales.class, getResource("locales/" + language + ".yml")).get()).get();
         } catch (InvocationTargetException | InstantiationException | IllegalAccessException | IOException e) {
             throw new IllegalStateException("Failed to load locales file", e);
         }
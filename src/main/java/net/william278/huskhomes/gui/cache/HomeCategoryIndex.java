@@ -0,0 +1,145 @@
+/*
+ * This file is part of HuskHomesGUI, licensed under the Apache License 2.0.
+ *
+ *  Copyright (c) William278 <will27528@gmail.com>
+ *  Copyright (c) contributors
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+
+package net.william278.huskhomes.gui.cache;
+
+import net.william278.huskhomes.gui.model.PositionView;
+import org.jetbrains.annotations.NotNull;
+
+import java.util.*;
+
+/**
+ * An index of home views bucketed by server and world
+ * <p>
+ * Buckets are built once from a home list and then kept up to date with {@link #add(PositionView)} and
+ * {@link #remove(UUID)}, so each category view only has to build the homes in its own bucket.
+ */
+public class HomeCategoryIndex {
+
+    private final Map<Category, List<PositionView>> buckets = new TreeMap<>();
+    private final Map<UUID, Category> categoryByHome = new HashMap<>();
+
+    private HomeCategoryIndex() {
+    }
+
+    @NotNull
+    public static HomeCategoryIndex of(@NotNull Collection<PositionView> homes) {
+        final HomeCategoryIndex index = new HomeCategoryIndex();
+        homes.forEach(index::add);
+        return index;
+    }
+
+    /**
+     * Add a home to its bucket, replacing any home with the same id
+     *
+     * @param home The home to add
+     */
+    public void add(@NotNull PositionView home) {
+        remove(home.id());
+        final Category category = Category.of(home);
+        buckets.computeIfAbsent(category, c -> new ArrayList<>()).add(home);
+        categoryByHome.put(home.id(), category);
+    }
+
+    /**
+     * Remove a home from its bucket, dropping the bucket if it is left empty
+     *
+     * @param homeId The id of the home to remove
+     */
+    public void remove(@NotNull UUID homeId) {
+        final Category category = categoryByHome.remove(homeId);
+        if (category == null) {
+            return;
+        }
+        final List<PositionView> bucket = buckets.get(category);
+        bucket.removeIf(home -> home.id().equals(homeId));
+        if (bucket.isEmpty()) {
+            buckets.remove(category);
+        }
+    }
+
+    /**
+     * Get the categories in the index, ordered by server then world
+     *
+     * @return the categories holding at least one home
+     */
+    @NotNull
+    public Set<Category> getCategories() {
+        return Collections.unmodifiableSet(buckets.keySet());
+    }
+
+    /**
+     * Get the homes in a category
+     *
+     * @param category The category
+     * @return a copy of the bucket's homes, empty if the category has none
+     */
+    @NotNull
+    public List<PositionView> getHomes(@NotNull Category category) {
+        return new ArrayList<>(buckets.getOrDefault(category, List.of()));
+    }
+
+    public int getHomeCount(@NotNull Category category) {
+        return buckets.getOrDefault(category, List.of()).size();
+    }
+
+    public int size() {
+        return categoryByHome.size();
+    }
+
+    /**
+     * A server and world that homes are bucketed by
+     *
+     * @param server      The server name
+     * @param world       The world name
+     * @param environment The world environment, used to pick an icon
+     */
+    public record Category(@NotNull String server, @NotNull String world,
+                           @NotNull String environment) implements Comparable<Category> {
+
+        // Alphabetical by server then world, with exact case and the environment breaking ties so that the order
+        // agrees with equals; otherwise "World" and "world" would share a bucket in a sorted map
+        private static final Comparator<Category> ORDER = Comparator
+                .comparing(Category::server, String.CASE_INSENSITIVE_ORDER).thenComparing(Category::server)
+                .thenComparing(Category::world, String.CASE_INSENSITIVE_ORDER).thenComparing(Category::world)
+                .thenComparing(Category::environment);
+
+        /**
+         * Get an id for this category that is stable across restarts, e.g. for remembering the last one viewed
+         *
+         * @return the category id
+         */
+        @NotNull
+        public String getId() {
+            return server + "/" + world;
+        }
+
+        @NotNull
+        public static Category of(@NotNull PositionView home) {
+            return new Category(home.server(), home.world(), home.environment());
+        }
+
+        @Override
+        public int compareTo(@NotNull Category other) {
+            return ORDER.compare(this, other);
+        }
+
+    }
+
+}
@@ -0,0 +1,94 @@
+/*
+ * This file is part of HuskHomesGUI, licensed under the Apache License 2.0.
+ *
+ *  Copyright (c) William278 <will27528@gmail.com>
+ *  Copyright (c) contributors
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+
+package net.william278.huskhomes.gui.cache;
+
+import net.william278.huskhomes.gui.model.PositionView;
+import net.william278.huskhomes.position.SavedPosition;
+import org.jetbrains.annotations.NotNull;
+
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Caches the home views fetched when a player is pre-warmed on join for a short time
+ * <p>
+ * The home list event carries fresh homes from HuskHomes; if they are the same homes the player was warmed with,
+ * the list menu reuses the views built off-thread rather than building them again on the server thread. Entries are
+ * dropped whenever one of the owner's homes changes.
+ */
+public class HomeListCache {
+
+    private static final long TTL_MILLIS = 30_000L;
+
+    private final Map<UUID, Entry> homes = new ConcurrentHashMap<>();
+
+    /**
+     * Cache the views of a player's homes
+     *
+     * @param ownerId The owner's UUID
+     * @param views   The views of all the owner's homes
+     */
+    public void put(@NotNull UUID ownerId, @NotNull List<PositionView> views) {
+        homes.put(ownerId, new Entry(List.copyOf(views), System.currentTimeMillis()));
+    }
+
+    /**
+     * Get the cached views of a player's homes, if they have not expired and are of the given homes
+     *
+     * @param ownerId The owner's UUID
+     * @param current The owner's homes, as just fetched from HuskHomes
+     * @return a mutable copy of the cached views, if they can be used
+     */
+    @NotNull
+    public Optional<List<PositionView>> get(@NotNull UUID ownerId, @NotNull List<? extends SavedPosition> current) {
+        final Entry cached = homes.get(ownerId);
+        if (cached == null) {
+            return Optional.empty();
+        }
+        if (System.currentTimeMillis() - cached.cachedAt() >= TTL_MILLIS) {
+            homes.remove(ownerId, cached);
+            return Optional.empty();
+        }
+        if (cached.views().size() != current.size()) {
+            return Optional.empty();
+        }
+        final Set<UUID> ids = new HashSet<>(cached.views().size());
+        cached.views().forEach(view -> ids.add(view.id()));
+        for (SavedPosition position : current) {
+            if (!ids.contains(position.getUuid())) {
+                return Optional.empty();
+            }
+        }
+        return Optional.of(new ArrayList<>(cached.views()));
+    }
+
+    /**
+     * Forget a player's cached homes
+     *
+     * @param ownerId The owner's UUID
+     */
+    public void invalidate(@NotNull UUID ownerId) {
+        homes.remove(ownerId);
+    }
+
+    private record Entry(@NotNull List<PositionView> views, long cachedAt) {
+    }
+
+}
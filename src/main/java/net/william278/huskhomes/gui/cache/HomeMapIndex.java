@@ -0,0 +1,250 @@
+/*
+ * This file is part of HuskHomesGUI, licensed under the Apache License 2.0.
+ *
+ *  Copyright (c) William278 <will27528@gmail.com>
+ *  Copyright (c) contributors
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+
+
+package net.william278.huskhomes.gui.cache;
+
+import net.william278.huskhomes.gui.model.PositionView;
+import org.jetbrains.annotations.NotNull;
+
+import java.util.*;
+import java.util.function.Consumer;
+
+/**
+ * A spatial index of home views, with one quadtree per server and world
+ * <p>
+ * The map view of the home list asks for the homes inside its viewport on every zoom or pan, so rather than scanning
+ * every home each time, homes are kept in a point quadtree over their X and Z coordinates. A node splits into four
+ * once it holds more than {@link #NODE_CAPACITY} homes and merges back when removals leave it small enough, so
+ * a range query only visits the nodes overlapping the viewport.
+ */
+public class HomeMapIndex {
+
+    private static final int NODE_CAPACITY = 8;
+    private static final int MAX_DEPTH = 24;
+    // 2^25 blocks either side of the origin, covering the largest possible world border
+    private static final float ROOT_HALF_SIZE = 33_554_432f;
+
+    private final Map<HomeCategoryIndex.Category, Node> worlds = new TreeMap<>();
+    private final Map<UUID, PositionView> homes = new HashMap<>();
+
+    private HomeMapIndex() {
+    }
+
+    @NotNull
+    public static HomeMapIndex of(@NotNull Collection<PositionView> homes) {
+        final HomeMapIndex index = new HomeMapIndex();
+        homes.forEach(index::add);
+        return index;
+    }
+
+    /**
+     * Add a home to the quadtree of its world, replacing any home with the same id
+     *
+     * @param home The home to add
+     */
+    public void add(@NotNull PositionView home) {
+        remove(home.id());
+        homes.put(home.id(), home);
+        worlds.computeIfAbsent(HomeCategoryIndex.Category.of(home), world -> new Node(0, 0, ROOT_HALF_SIZE, 0))
+                .insert(home);
+    }
+
+    /**
+     * Remove a home from the quadtree of its world, dropping the world if it is left empty
+     *
+     * @param homeId The id of the home to remove
+     */
+    public void remove(@NotNull UUID homeId) {
+        final PositionView home = homes.remove(homeId);
+        if (home == null) {
+            return;
+        }
+        final HomeCategoryIndex.Category world = HomeCategoryIndex.Category.of(home);
+        final Node root = worlds.get(world);
+        if (root != null && root.remove(home) && root.count == 0) {
+            worlds.remove(world);
+        }
+    }
+
+    /**
+     * Get the worlds holding at least one home, ordered by server then world
+     *
+     * @return the worlds in the index
+     */
+    @NotNull
+    public List<HomeCategoryIndex.Category> getWorlds() {
+        return new ArrayList<>(worlds.keySet());
+    }
+
+    /**
+     * Find the homes in a world inside an area; the minimum bounds are inclusive and the maximum bounds exclusive
+     *
+     * @param world    The world to search
+     * @param minX     The minimum X coordinate
+     * @param minZ     The minimum Z coordinate
+     * @param maxX     The maximum X coordinate
+     * @param maxZ     The maximum Z coordinate
+     * @param consumer Called with each home in the area
+     */
+    public void query(@NotNull HomeCategoryIndex.Category world, float minX, float minZ, float maxX, float maxZ,
+                      @NotNull Consumer<PositionView> consumer) {
+        final Node root = worlds.get(world);
+        if (root != null) {
+            root.query(minX, minZ, maxX, maxZ, consumer);
+        }
+    }
+
+    /**
+     * Get the area covered by the homes in a world
+     *
+     * @param world The world
+     * @return the bounds as {@code {minX, minZ, maxX, maxZ}}, empty if the world has no homes
+     */
+    @NotNull
+    public Optional<float[]> getBounds(@NotNull HomeCategoryIndex.Category world) {
+        final Node root = worlds.get(world);
+        if (root == null) {
+            return Optional.empty();
+        }
+        final float[] bounds = {Float.MAX_VALUE, Float.MAX_VALUE, -Float.MAX_VALUE, -Float.MAX_VALUE};
+        root.collect(home -> {
+            bounds[0] = Math.min(bounds[0], home.x());
+            bounds[1] = Math.min(bounds[1], home.z());
+            bounds[2] = Math.max(bounds[2], home.x());
+            bounds[3] = Math.max(bounds[3], home.z());
+        });
+        return Optional.of(bounds);
+    }
+
+    // The number of quadtree nodes holding a world's homes, to check splits and merges
+    int getNodeCount(@NotNull HomeCategoryIndex.Category world) {
+        final Node root = worlds.get(world);
+        return root != null ? root.getNodeCount() : 0;
+    }
+
+    private static final class Node {
+        private final float centerX;
+        private final float centerZ;
+        private final float halfSize;
+        private final int depth;
+        private List<PositionView> homes = new ArrayList<>();
+        private Node[] children;
+        private int count;
+
+        private Node(float centerX, float centerZ, float halfSize, int depth) {
+            this.centerX = centerX;
+            this.centerZ = centerZ;
+            this.halfSize = halfSize;
+            this.depth = depth;
+        }
+
+        private void insert(@NotNull PositionView home) {
+            count++;
+            if (children != null) {
+                getChild(home).insert(home);
+                return;
+            }
+            homes.add(home);
+            if (homes.size() > NODE_CAPACITY && depth < MAX_DEPTH) {
+                split();
+            }
+        }
+
+        private boolean remove(@NotNull PositionView home) {
+            if (children == null) {
+                final boolean removed = homes.removeIf(other -> other.id().equals(home.id()));
+                if (removed) {
+                    count--;
+                }
+                return removed;
+            }
+            if (!getChild(home).remove(home)) {
+                return false;
+            }
+            if (--count <= NODE_CAPACITY) {
+                merge();
+            }
+            return true;
+        }
+
+        private void split() {
+            final float quarter = halfSize / 2;
+            children = new Node[4];
+            for (int i = 0; i < children.length; i++) {
+                children[i] = new Node(centerX + ((i & 1) == 0 ? -quarter : quarter),
+                        centerZ + ((i & 2) == 0 ? -quarter : quarter), quarter, depth + 1);
+            }
+            final List<PositionView> held = homes;
+            homes = null;
+            held.forEach(home -> getChild(home).insert(home));
+        }
+
+        private void merge() {
+            final List<PositionView> held = new ArrayList<>(count);
+            collect(held::add);
+            children = null;
+            homes = held;
+        }
+
+        @NotNull
+        private Node getChild(@NotNull PositionView home) {
+            return children[(home.x() >= centerX ? 1 : 0) | (home.z() >= centerZ ? 2 : 0)];
+        }
+
+        private void query(float minX, float minZ, float maxX, float maxZ, @NotNull Consumer<PositionView> consumer) {
+            if (count == 0 || centerX + halfSize < minX || centerX - halfSize >= maxX
+                || centerZ + halfSize < minZ || centerZ - halfSize >= maxZ) {
+                return;
+            }
+            if (children != null) {
+                for (Node child : children) {
+                    child.query(minX, minZ, maxX, maxZ, consumer);
+                }
+                return;
+            }
+            for (PositionView home : homes) {
+                if (home.x() >= minX && home.x() < maxX && home.z() >= minZ && home.z() < maxZ) {
+                    consumer.accept(home);
+                }
+            }
+        }
+
+        private int getNodeCount() {
+            int nodes = 1;
+            if (children != null) {
+                for (Node child : children) {
+                    nodes += child.getNodeCount();
+                }
+            }
+            return nodes;
+        }
+
+        private void collect(@NotNull Consumer<PositionView> consumer) {
+            if (children == null) {
+                homes.forEach(consumer);
+                return;
+            }
+            for (Node child : children) {
+                child.collect(consumer);
+            }
+        }
+    }
+
+}
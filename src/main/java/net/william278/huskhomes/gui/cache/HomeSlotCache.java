@@ -0,0 +1,76 @@
+/*
+ * This file is part of HuskHomesGUI, licensed under the Apache License 2.0.
+ *
+ *  Copyright (c) William278 <will27528@gmail.com>
+ *  Copyright (c) contributors
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+
+
+package net.william278.huskhomes.gui.cache;
+
+import net.william278.huskhomes.gui.HuskHomesGui;
+import net.william278.huskhomes.user.OnlineUser;
+import org.jetbrains.annotations.NotNull;
+
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Caches each online player's maximum home slots for a short time
+ * <p>
+ * The slot limit is worked out from permissions, and is shown by several elements of the home list on every draw.
+ */
+public class HomeSlotCache {
+
+    private static final long TTL_MILLIS = 30_000L;
+
+    private final HuskHomesGui plugin;
+    private final Map<UUID, Entry> slots = new ConcurrentHashMap<>();
+
+    public HomeSlotCache(@NotNull HuskHomesGui plugin) {
+        this.plugin = plugin;
+    }
+
+    /**
+     * Get a player's maximum home slots, looking it up if it is not cached or has expired
+     *
+     * @param user The player
+     * @return their maximum number of homes
+     */
+    public int getMaxHomeSlots(@NotNull OnlineUser user) {
+        final long now = System.currentTimeMillis();
+        final Entry cached = slots.get(user.getUuid());
+        if (cached != null && now - cached.cachedAt() < TTL_MILLIS) {
+            return cached.maxHomes();
+        }
+        final int maxHomes = plugin.getHuskHomes().getMaxHomeSlots(user);
+        slots.put(user.getUuid(), new Entry(maxHomes, now));
+        return maxHomes;
+    }
+
+    /**
+     * Forget a player's cached slot limit
+     *
+     * @param uuid The player's UUID
+     */
+    public void invalidate(@NotNull UUID uuid) {
+        slots.remove(uuid);
+    }
+
+    private record Entry(int maxHomes, long cachedAt) {
+    }
+
+}
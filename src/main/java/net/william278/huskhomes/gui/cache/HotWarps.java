@@ -0,0 +1,252 @@
+/*
+ * This file is part of HuskHomesGUI, licensed under the Apache License 2.0.
+ *
+ *  Copyright (c) William278 <will27528@gmail.com>
+ *  Copyright (c) contributors
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+
+
+package net.william278.huskhomes.gui.cache;
+
+import net.william278.huskhomes.gui.HuskHomesGui;
+import net.william278.huskhomes.gui.store.GuiDataStore;
+import net.william278.huskhomes.gui.task.GuiExecutor;
+import net.william278.huskhomes.gui.task.TaskScheduler;
+import net.william278.huskhomes.position.Warp;
+import org.bukkit.Location;
+import org.bukkit.World;
+import org.jetbrains.annotations.NotNull;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Consumer;
+import java.util.logging.Level;
+
+/**
+ * Counts how often each warp is used from the warp menu, and keeps the chunks of the most used warps loaded
+ * <p>
+ * Uses are counted with striped counters so that many players teleporting at once do not contend. Periodically,
+ * the most used warps on this server are looked up in the {@link WarpCategoryIndex}, which is loaded once on start and
+ * then kept current by warp events, and their chunks held with plugin chunk tickets, so that teleports to them land in
+ * a chunk that is already loaded. Only the counts that changed since the last save are written to the
+ * {@link GuiDataStore}.
+ */
+public class HotWarps {
+
+    private static final String USAGE_PREFIX = "usage/";
+    private static final String LEGACY_FILE = "warp-usage.txt";
+
+    private final HuskHomesGui plugin;
+    private final Map<UUID, LongAdder> uses = new ConcurrentHashMap<>();
+    // Chunks currently held with a ticket, only touched from the thread owning their region
+    private final Set<ChunkKey> ticketed = ConcurrentHashMap.newKeySet();
+    private volatile List<HotWarp> hotWarps = List.of();
+    // Warps whose count changed since it was last saved
+    private final Set<UUID> dirty = ConcurrentHashMap.newKeySet();
+    private TaskScheduler.Task refreshTask;
+
+    public HotWarps(@NotNull HuskHomesGui plugin) {
+        this.plugin = plugin;
+    }
+
+    /**
+     * Load saved counts and start refreshing the pre-warmed set, if enabled
+     */
+    public void start() {
+        load();
+        if (plugin.getSettings().getPrewarmWarpCount() <= 0) {
+            return;
+        }
+        loadIndex();
+        final long period = plugin.getSettings().getPrewarmIntervalSeconds() * 20L;
+        this.refreshTask = plugin.getScheduler().runGlobalTimer(this::refresh, 20L, period);
+    }
+
+    /**
+     * Stop refreshing and save counts; chunk tickets are released by the server when the plugin is disabled
+     */
+    public void stop() {
+        if (refreshTask != null) {
+            refreshTask.cancel();
+        }
+        save();
+    }
+
+    /**
+     * Count a use of a warp
+     *
+     * @param warp The warp teleported to
+     */
+    public void recordUse(@NotNull Warp warp) {
+        uses.computeIfAbsent(warp.getUuid(), id -> new LongAdder()).increment();
+        dirty.add(warp.getUuid());
+    }
+
+    /**
+     * Get the warps whose chunks are currently pre-warmed, most used first
+     *
+     * @return the pre-warmed warps
+     */
+    @NotNull
+    public List<HotWarp> getHotWarps() {
+        return hotWarps;
+    }
+
+    // Fill the warp index once, so warps can be pre-warmed before anyone has opened the warp list
+    private void loadIndex() {
+        plugin.getGuiExecutor().supply(GuiExecutor.Operation.READ, this, "hot-warps-index",
+                () -> plugin.getHuskHomes().getWarps().get()
+        ).thenAccept(warps -> plugin.getWarpCategories().sync(warps)).exceptionally(e -> {
+            plugin.getLogger().log(Level.WARNING, "Failed to load warps for pre-warming", e);
+            return null;
+        });
+    }
+
+    // Pick the most used warps on this server from the warp index, then move chunk tickets to their chunks
+    private void refresh() {
+        final int count = plugin.getSettings().getPrewarmWarpCount();
+        final List<HotWarp> hot = new ArrayList<>();
+        uses.forEach((id, counter) -> plugin.getWarpCategories().getWarp(id).ifPresent(warp -> {
+            final World world = plugin.getServer().getWorld(warp.world());
+            if (world == null || !world.getEnvironment().name().equals(warp.environment())) {
+                return;
+            }
+            hot.add(new HotWarp(warp.id(), warp.name(), world.getUID(), warp.world(),
+                    (int) Math.floor(warp.x()) >> 4, (int) Math.floor(warp.z()) >> 4, counter.sum()));
+        }));
+        hot.sort(Comparator.comparingLong(HotWarp::uses).reversed());
+        this.hotWarps = List.copyOf(hot.subList(0, Math.min(count, hot.size())));
+        updateTickets(hotWarps);
+        save();
+    }
+
+    private void updateTickets(@NotNull List<HotWarp> hot) {
+        final Set<ChunkKey> wanted = new HashSet<>();
+        hot.forEach(warp -> wanted.add(new ChunkKey(warp.worldId(), warp.chunkX(), warp.chunkZ())));
+        for (ChunkKey chunk : Set.copyOf(ticketed)) {
+            if (!wanted.contains(chunk)) {
+                runInChunk(chunk, world -> {
+                    world.removePluginChunkTicket(chunk.x(), chunk.z(), plugin);
+                    ticketed.remove(chunk);
+                });
+            }
+        }
+        for (ChunkKey chunk : wanted) {
+            if (!ticketed.contains(chunk)) {
+                runInChunk(chunk, world -> {
+                    if (world.addPluginChunkTicket(chunk.x(), chunk.z(), plugin)) {
+                        ticketed.add(chunk);
+                    }
+                });
+            }
+        }
+    }
+
+    private void runInChunk(@NotNull ChunkKey chunk, @NotNull Consumer<World> action) {
+        final World world = plugin.getServer().getWorld(chunk.world());
+        if (world == null) {
+            ticketed.remove(chunk);
+            return;
+        }
+        final Location location = new Location(world, (chunk.x() << 4) + 8, 0, (chunk.z() << 4) + 8);
+        plugin.getScheduler().runAt(location, () -> action.accept(world));
+    }
+
+    /**
+     * Forget the use count of a deleted warp
+     *
+     * @param warpId The id of the deleted warp
+     */
+    public void forget(@NotNull UUID warpId) {
+        uses.remove(warpId);
+        dirty.remove(warpId);
+    }
+
+    private void load() {
+        plugin.getDataStore().getAll(USAGE_PREFIX).forEach((key, value) -> {
+            try {
+                uses.computeIfAbsent(UUID.fromString(key.substring(USAGE_PREFIX.length())), id -> new LongAdder())
+                        .add(Long.parseLong(new String(value, StandardCharsets.UTF_8)));
+            } catch (IllegalArgumentException e) {
+                plugin.getLogger().log(Level.FINE, "Skipping invalid warp usage entry: " + key);
+            }
+        });
+        importLegacyFile();
+    }
+
+    // Counts were saved to a text file before the data store existed; move them across once
+    private void importLegacyFile() {
+        final Path file = plugin.getDataFolder().toPath().resolve(LEGACY_FILE);
+        if (!Files.exists(file)) {
+            return;
+        }
+        try {
+            for (String line : Files.readAllLines(file, StandardCharsets.UTF_8)) {
+                final String[] parts = line.trim().split(" ");
+                if (parts.length != 2 || line.startsWith("#")) {
+                    continue;
+                }
+                try {
+                    final UUID warpId = UUID.fromString(parts[0]);
+                    uses.computeIfAbsent(warpId, id -> new LongAdder()).add(Long.parseLong(parts[1]));
+                    dirty.add(warpId);
+                } catch (IllegalArgumentException e) {
+                    plugin.getLogger().log(Level.FINE, "Skipping invalid warp usage line: " + line);
+                }
+            }
+            save();
+            if (plugin.getDataStore().isOpen()) {
+                Files.delete(file);
+            }
+        } catch (IOException e) {
+            plugin.getLogger().log(Level.WARNING, "Failed to import legacy warp usage counts", e);
+        }
+    }
+
+    // Write the counts that changed; an id is cleared before its count is read, so a concurrent use is kept dirty
+    private void save() {
+        for (UUID id : List.copyOf(dirty)) {
+            dirty.remove(id);
+            final LongAdder counter = uses.get(id);
+            if (counter != null) {
+                plugin.getDataStore().putString(USAGE_PREFIX + id, Long.toString(counter.sum()));
+            }
+        }
+    }
+
+    /**
+     * A warp whose chunk is pre-warmed
+     *
+     * @param id        The warp id
+     * @param name      The warp name
+     * @param worldId   The id of the warp's world
+     * @param worldName The name of the warp's world
+     * @param chunkX    The x coordinate of the warp's chunk
+     * @param chunkZ    The z coordinate of the warp's chunk
+     * @param uses      How many times the warp has been used from the menu
+     */
+    public record HotWarp(@NotNull UUID id, @NotNull String name, @NotNull UUID worldId, @NotNull String worldName,
+                          int chunkX, int chunkZ, long uses) {
+    }
+
+    private record ChunkKey(@NotNull UUID world, int x, int z) {
+    }
+
+}
@@ -0,0 +1,120 @@
+/*
+ * This file is part of HuskHomesGUI, licensed under the Apache License 2.0.
+ *
+ *  Copyright (c) William278 <will27528@gmail.com>
+ *  Copyright (c) contributors
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+
+
+package net.william278.huskhomes.gui.cache;
+
+import net.william278.huskhomes.gui.HuskHomesGui;
+import net.william278.huskhomes.gui.model.PositionView;
+import org.jetbrains.annotations.NotNull;
+
+import java.util.*;
+
+import static net.william278.huskhomes.gui.config.Locales.textWrap;
+
+/**
+ * A size-bounded LRU cache of the name and lore lines shown on home buttons
+ * <p>
+ * Building these lines (description wrapping, locale formatting) is the bulk of the cost of a home button. Lines are
+ * cached per home together with a fingerprint of the data they were built from, so an edited home is rebuilt the
+ * next time it is shown. The cache can be filled off the server thread, e.g. when a player joins.
+ */
+public class ItemPrototypeCache {
+
+    private final HuskHomesGui plugin;
+    private final Map<UUID, Prototype> prototypes;
+
+    public ItemPrototypeCache(@NotNull HuskHomesGui plugin) {
+        this.plugin = plugin;
+        final int maxSize = plugin.getSettings().getItemPrototypeCacheSize();
+        this.prototypes = Collections.synchronizedMap(new LinkedHashMap<>(maxSize + 1, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<UUID, Prototype> eldest) {
+                return size() > maxSize;
+            }
+        });
+    }
+
+    /**
+     * Get the name and lore lines of a home button, building them if they are not cached or the home has changed
+     *
+     * @param home The home
+     * @return the name followed by the description, coordinate and server lines
+     */
+    @NotNull
+    public List<String> getHomeLines(@NotNull PositionView home) {
+        final int fingerprint = fingerprint(home);
+        final Prototype cached = prototypes.get(home.id());
+        if (cached != null && cached.fingerprint() == fingerprint) {
+            return cached.lines();
+        }
+        final Prototype built = new Prototype(fingerprint, buildHomeLines(home));
+        prototypes.put(home.id(), built);
+        return built.lines();
+    }
+
+    /**
+     * Build and cache the lines of several homes ahead of time
+     *
+     * @param homes The homes to build lines for
+     */
+    public void warm(@NotNull Collection<PositionView> homes) {
+        homes.forEach(this::getHomeLines);
+    }
+
+    /**
+     * Forget all cached lines, e.g. after locales are reloaded
+     */
+    public void invalidateAll() {
+        prototypes.clear();
+    }
+
+    @NotNull
+    private List<String> buildHomeLines(@NotNull PositionView home) {
+        return List.of(
+                "§b" + home.name(),
+                plugin.getLocales().getLocale(
+                        "item_description",
+                        !home.description().isBlank() ?
+                                textWrap(plugin, home.description()) :
+                                plugin.getLocales().getLocale("item_description_blank")
+                ),
+                "",
+                "§7Coordonnées : §e" + String.format("X: %.1f, Y: %.1f, Z: %.1f", home.x(), home.y(), home.z()),
+                "§7Serveur : §e" + formatServerName(home.server())
+        );
+    }
+
+    private static int fingerprint(@NotNull PositionView home) {
+        return Objects.hash(home.name(), home.description(), home.server(), home.x(), home.y(), home.z());
+    }
+
+    @NotNull
+    private static String formatServerName(@NotNull String serverName) {
+        return switch (serverName.toLowerCase()) {
+            case "minage_survie_001" -> "Minage";
+            case "survie" -> "Survie";
+            default -> serverName;
+        };
+    }
+
+    private record Prototype(int fingerprint, @NotNull List<String> lines) {
+    }
+
+}
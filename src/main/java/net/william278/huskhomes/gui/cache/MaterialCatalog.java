@@ -0,0 +1,142 @@
+/*
+ * This file is part of HuskHomesGUI, licensed under the Apache License 2.0.
+ *
+ *  Copyright (c) William278 <will27528@gmail.com>
+ *  Copyright (c) contributors
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+
+
+package net.william278.huskhomes.gui.cache;
+
+import org.bukkit.Material;
+import org.bukkit.inventory.ItemStack;
+import org.jetbrains.annotations.NotNull;
+
+import java.util.*;
+
+/**
+ * A catalog of every item material that can be used as an icon, with display items built once at startup
+ * <p>
+ * The catalog is shared by all players' icon pickers; pickers only wrap the entries on the page being viewed, so
+ * opening a picker never builds an item per material.
+ */
+public class MaterialCatalog {
+
+    private final List<Entry> entries;
+    private final Map<Category, List<Entry>> byCategory = new EnumMap<>(Category.class);
+
+    private MaterialCatalog(@NotNull List<Entry> entries) {
+        this.entries = entries;
+        for (Category category : Category.values()) {
+            byCategory.put(category, entries.stream().filter(entry -> category.contains(entry.material())).toList());
+        }
+    }
+
+    @NotNull
+    public static MaterialCatalog build() {
+        final List<Entry> entries = new ArrayList<>();
+        for (Material material : Material.values()) {
+            if (material.isItem() && !material.isAir() && !material.isLegacy()) {
+                entries.add(new Entry(material, new ItemStack(material), getDisplayName(material),
+                        material.name().toLowerCase(Locale.ENGLISH).replace('_', ' ')));
+            }
+        }
+        entries.sort(Comparator.comparing(Entry::searchName));
+        return new MaterialCatalog(List.copyOf(entries));
+    }
+
+    /**
+     * Find the entries in a category whose name contains a search query
+     *
+     * @param category The category to search
+     * @param query    The search query, or an empty string to list the whole category
+     * @return the matching entries, in name order
+     */
+    @NotNull
+    public List<Entry> find(@NotNull Category category, @NotNull String query) {
+        final List<Entry> inCategory = byCategory.get(category);
+        final String needle = query.trim().toLowerCase(Locale.ENGLISH).replace('_', ' ');
+        if (needle.isEmpty()) {
+            return inCategory;
+        }
+        return inCategory.stream().filter(entry -> entry.searchName().contains(needle)).toList();
+    }
+
+    public int size() {
+        return entries.size();
+    }
+
+    @NotNull
+    private static String getDisplayName(@NotNull Material material) {
+        final StringBuilder name = new StringBuilder();
+        for (String word : material.name().toLowerCase(Locale.ENGLISH).split("_")) {
+            if (!name.isEmpty()) {
+                name.append(' ');
+            }
+            name.append(Character.toUpperCase(word.charAt(0))).append(word.substring(1));
+        }
+        return name.toString();
+    }
+
+    /**
+     * A material in the catalog
+     *
+     * @param material    The material
+     * @param item        The shared display item; wrap it in a GUI element rather than modifying it
+     * @param displayName The material's name in title case
+     * @param searchName  The material's name in lower case, for searching
+     */
+    public record Entry(@NotNull Material material, @NotNull ItemStack item,
+                        @NotNull String displayName, @NotNull String searchName) {
+    }
+
+    /**
+     * Groups of materials that the icon picker can be filtered by
+     */
+    public enum Category {
+        ALL(Material.CHEST),
+        BLOCKS(Material.GRASS_BLOCK),
+        TOOLS(Material.IRON_PICKAXE),
+        FOOD(Material.APPLE),
+        ITEMS(Material.STICK);
+
+        private final Material icon;
+
+        Category(@NotNull Material icon) {
+            this.icon = icon;
+        }
+
+        @NotNull
+        public Material getIcon() {
+            return icon;
+        }
+
+        @NotNull
+        public String getId() {
+            return name().toLowerCase(Locale.ENGLISH);
+        }
+
+        private boolean contains(@NotNull Material material) {
+            return switch (this) {
+                case ALL -> true;
+                case BLOCKS -> material.isBlock();
+                case TOOLS -> !material.isBlock() && material.getMaxDurability() > 0;
+                case FOOD -> !material.isBlock() && material.isEdible();
+                case ITEMS -> !material.isBlock() && material.getMaxDurability() == 0 && !material.isEdible();
+            };
+        }
+    }
+
+}
@@ -0,0 +1,133 @@
+/*
+ * This file is part of HuskHomesGUI, licensed under the Apache License 2.0.
+ *
+ *  Copyright (c) William278 <will27528@gmail.com>
+ *  Copyright (c) contributors
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+
+
+package net.william278.huskhomes.gui.cache;
+
+import net.william278.huskhomes.gui.HuskHomesGui;
+import net.william278.huskhomes.gui.store.GuiDataStore;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+import java.nio.charset.StandardCharsets;
+import java.util.*;
+import java.util.logging.Level;
+
+/**
+ * Remembers where each player left each menu (page, sort order and filter), so reopening a menu returns to the
+ * same view
+ * <p>
+ * Sessions are kept in a size-bounded LRU keyed by player, and saved to the {@link GuiDataStore} on shutdown.
+ */
+public class MenuSessions {
+
+    private static final String SESSIONS_KEY = "sessions";
+    private static final String LEGACY_FILE = "sessions.txt";
+
+    private final HuskHomesGui plugin;
+    private final Map<UUID, Map<String, View>> sessions;
+
+    public MenuSessions(@NotNull HuskHomesGui plugin) {
+        this.plugin = plugin;
+        final int maxSize = plugin.getSettings().getSessionCacheSize();
+        this.sessions = Collections.synchronizedMap(new LinkedHashMap<>(maxSize + 1, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<UUID, Map<String, View>> eldest) {
+                return size() > maxSize;
+            }
+        });
+    }
+
+    /**
+     * Get the view a player last left a menu at
+     *
+     * @param player The player's UUID
+     * @param menu   The menu key, e.g. {@code "homes"}
+     * @return the remembered view, or {@link View#DEFAULT} if there is none
+     */
+    @NotNull
+    public View get(@NotNull UUID player, @NotNull String menu) {
+        if (!plugin.getSettings().doRememberSessions()) {
+            return View.DEFAULT;
+        }
+        final Map<String, View> views = sessions.get(player);
+        return views != null ? views.getOrDefault(menu, View.DEFAULT) : View.DEFAULT;
+    }
+
+    /**
+     * Remember the view a player left a menu at
+     *
+     * @param player The player's UUID
+     * @param menu   The menu key, e.g. {@code "homes"}
+     * @param view   The view to remember
+     */
+    public void put(@NotNull UUID player, @NotNull String menu, @NotNull View view) {
+        if (!plugin.getSettings().doRememberSessions()) {
+            return;
+        }
+        sessions.computeIfAbsent(player, uuid -> new HashMap<>(4)).put(menu, view);
+    }
+
+    public void load() {
+        final Optional<byte[]> saved = plugin.getDataStore().getOrImport(SESSIONS_KEY, LEGACY_FILE);
+        if (saved.isEmpty()) {
+            return;
+        }
+        for (String line : new String(saved.get(), StandardCharsets.UTF_8).split("\n")) {
+            final String[] parts = line.split("\t", -1);
+            if (parts.length != 5 || line.startsWith("#")) {
+                continue;
+            }
+            try {
+                put(UUID.fromString(parts[0]), parts[1], new View(Integer.parseInt(parts[2]), parts[3],
+                        parts[4].isEmpty() ? null : parts[4]));
+            } catch (IllegalArgumentException e) {
+                plugin.getLogger().log(Level.FINE, "Skipping invalid session line: " + line);
+            }
+        }
+    }
+
+    public void save() {
+        final List<String> lines = new ArrayList<>();
+        lines.add("# HuskHomesGUI menu sessions: <player uuid> <menu> <page> <sort> <filter>");
+        synchronized (sessions) {
+            sessions.forEach((player, views) -> views.forEach((menu, view) -> lines.add(String.join("\t",
+                    player.toString(), menu, Integer.toString(view.page()), view.sort(),
+                    Objects.requireNonNullElse(view.filter(), "")))));
+        }
+        plugin.getDataStore().putString(SESSIONS_KEY, String.join("\n", lines));
+    }
+
+    /**
+     * Where a player left a menu
+     *
+     * @param page   The page number
+     * @param sort   The sort order name, or an empty string for the default
+     * @param filter The filter applied, e.g. a home category or warp tab, if any
+     */
+    public record View(int page, @NotNull String sort, @Nullable String filter) {
+        public static final View DEFAULT = new View(0, "", null);
+
+        @NotNull
+        public View withFilter(@Nullable String filter) {
+            return new View(page, sort, filter);
+        }
+    }
+
+}
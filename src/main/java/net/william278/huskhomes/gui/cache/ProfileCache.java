@@ -0,0 +1,179 @@
+/*
+ * This file is part of HuskHomesGUI, licensed under the Apache License 2.0.
+ *
+ *  Copyright (c) William278 <will27528@gmail.com>
+ *  Copyright (c) contributors
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+
+package net.william278.huskhomes.gui.cache;
+
+import com.destroystokyo.paper.profile.PlayerProfile;
+import net.william278.huskhomes.gui.HuskHomesGui;
+import net.william278.huskhomes.gui.task.GuiExecutor;
+import org.bukkit.Material;
+import org.bukkit.entity.Player;
+import org.bukkit.inventory.ItemStack;
+import org.bukkit.inventory.meta.SkullMeta;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.logging.Level;
+
+/**
+ * A size-bounded LRU cache of player profiles, used to texture player head icons
+ * <p>
+ * Profiles are resolved on the GUI I/O executor from the server's local profile and user cache (never from
+ * Mojang), so opening a menu with many different owners never blocks a tick. Until a profile has resolved, a plain
+ * head is shown and the requester is called back once it is available. Profiles that could not be resolved are
+ * remembered for a short while, so menus listing owners without a cached profile do not look them up on every redraw.
+ */
+public class ProfileCache {
+
+    private static final long FAILURE_TTL_MILLIS = 60_000L;
+
+    private final HuskHomesGui plugin;
+    private final int maxSize;
+    private final Map<UUID, PlayerProfile> profiles;
+    // When each failed lookup may be retried
+    private final Map<UUID, Long> failures = new ConcurrentHashMap<>();
+    // Callbacks waiting on a lookup; only added to and drained inside compute, so none is added after the drain
+    private final Map<UUID, List<Runnable>> pending = new ConcurrentHashMap<>();
+
+    public ProfileCache(@NotNull HuskHomesGui plugin) {
+        this.plugin = plugin;
+        this.maxSize = plugin.getSettings().getProfileCacheSize();
+        this.profiles = Collections.synchronizedMap(new LinkedHashMap<>(maxSize + 1, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<UUID, PlayerProfile> eldest) {
+                return size() > maxSize;
+            }
+        });
+    }
+
+    /**
+     * Create a player head for a player, textured if their profile has been resolved
+     *
+     * @param uuid       The player's UUID
+     * @param onResolved Called on the server thread if the head was plain and the profile has since resolved
+     * @return the head item
+     */
+    @NotNull
+    public ItemStack createHead(@NotNull UUID uuid, @NotNull Runnable onResolved) {
+        final ItemStack head = new ItemStack(Material.PLAYER_HEAD);
+        final PlayerProfile profile = getProfile(uuid, onResolved);
+        if (profile != null && head.getItemMeta() instanceof SkullMeta meta) {
+            meta.setPlayerProfile(profile);
+            head.setItemMeta(meta);
+        }
+        return head;
+    }
+
+    /**
+     * Get a cached profile, starting to resolve it if it is not yet cached
+     *
+     * @param uuid       The player's UUID
+     * @param onResolved Called on the server thread once the profile resolves, if it was not cached
+     * @return the cached profile, or {@code null} if it is being resolved or recently failed to resolve
+     */
+    @Nullable
+    public PlayerProfile getProfile(@NotNull UUID uuid, @NotNull Runnable onResolved) {
+        final PlayerProfile cached = profiles.get(uuid);
+        if (cached != null) {
+            return cached;
+        }
+
+        // Online players' profiles are already complete
+        final Player online = plugin.getServer().getPlayer(uuid);
+        if (online != null) {
+            final PlayerProfile profile = online.getPlayerProfile();
+            profiles.put(uuid, profile);
+            return profile;
+        }
+
+        if (hasRecentlyFailed(uuid)) {
+            return null;
+        }
+
+        // Join the lookup in progress, or start one if there is none and the profile has not resolved meanwhile
+        final List<Runnable> started = new ArrayList<>(1);
+        final List<Runnable> waiting = pending.compute(uuid, (id, callbacks) -> {
+            if (callbacks == null && (profiles.containsKey(id) || failures.containsKey(id))) {
+                return null;
+            }
+            final List<Runnable> joined = callbacks != null ? callbacks : started;
+            joined.add(onResolved);
+            return joined;
+        });
+        if (waiting != started) {
+            return profiles.get(uuid);
+        }
+
+        plugin.getGuiExecutor().supply(GuiExecutor.Operation.READ, this, "resolve-profile", () -> {
+            final PlayerProfile profile = plugin.getServer().createProfile(uuid);
+            return profile.completeFromCache(true, plugin.getServer().getOnlineMode()) ? profile : null;
+        }).whenComplete((profile, error) -> {
+            if (error != null) {
+                plugin.getLogger().log(Level.FINE, "Failed to resolve profile for " + uuid, error);
+            }
+            final List<Runnable> drained = new ArrayList<>();
+            pending.compute(uuid, (id, callbacks) -> {
+                if (profile != null) {
+                    profiles.put(id, profile);
+                } else {
+                    recordFailure(id);
+                }
+                if (callbacks != null) {
+                    drained.addAll(callbacks);
+                }
+                return null;
+            });
+            if (profile != null && !drained.isEmpty()) {
+                plugin.runSync(() -> drained.forEach(Runnable::run));
+            }
+        });
+        return null;
+    }
+
+    private boolean hasRecentlyFailed(@NotNull UUID uuid) {
+        final Long retryAt = failures.get(uuid);
+        if (retryAt == null) {
+            return false;
+        }
+        if (retryAt > System.currentTimeMillis()) {
+            return true;
+        }
+        failures.remove(uuid, retryAt);
+        return false;
+    }
+
+    private void recordFailure(@NotNull UUID uuid) {
+        final long now = System.currentTimeMillis();
+        if (failures.size() >= maxSize) {
+            failures.values().removeIf(retryAt -> retryAt <= now);
+        }
+        failures.put(uuid, now + FAILURE_TTL_MILLIS);
+    }
+
+    /**
+     * Forget all cached profiles
+     */
+    public void invalidateAll() {
+        profiles.clear();
+        failures.clear();
+    }
+
+}
@@ -0,0 +1,219 @@
+/*
+ * This file is part of HuskHomesGUI, licensed under the Apache License 2.0.
+ *
+ *  Copyright (c) William278 <will27528@gmail.com>
+ *  Copyright (c) contributors
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+
+
+package net.william278.huskhomes.gui.cache;
+
+import net.william278.huskhomes.gui.HuskHomesGui;
+import net.william278.huskhomes.gui.store.GuiDataStore;
+import org.jetbrains.annotations.NotNull;
+
+import java.io.*;
+import java.util.*;
+import java.util.logging.Level;
+
+/**
+ * Remembers the last few homes and warps each player teleported to from a menu, most recent first
+ * <p>
+ * Each player has a fixed-size ring buffer of position ids per menu, so no positions are retained; menus look the
+ * ids up in the positions they list. Buffers are kept in a size-bounded LRU keyed by player, and saved in a compact
+ * binary form to the {@link GuiDataStore} on shutdown.
+ */
+public class RecentPositions {
+
+    private static final String RECENT_KEY = "recent";
+    private static final String LEGACY_FILE = "recent.dat";
+    private static final int FILE_MAGIC = 0x48475250;
+    private static final int FILE_VERSION = 1;
+
+    private final HuskHomesGui plugin;
+    private final Map<UUID, Map<String, Ring>> recent;
+
+    public RecentPositions(@NotNull HuskHomesGui plugin) {
+        this.plugin = plugin;
+        final int maxSize = plugin.getSettings().getSessionCacheSize();
+        this.recent = Collections.synchronizedMap(new LinkedHashMap<>(maxSize + 1, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<UUID, Map<String, Ring>> eldest) {
+                return size() > maxSize;
+            }
+        });
+    }
+
+    /**
+     * Record that a player teleported to a position from a menu
+     *
+     * @param player     The player's UUID
+     * @param menu       The menu key, e.g. {@code "homes"}
+     * @param positionId The id of the home or warp
+     */
+    public void record(@NotNull UUID player, @NotNull String menu, @NotNull UUID positionId) {
+        final int capacity = plugin.getSettings().getRecentCount();
+        if (capacity <= 0) {
+            return;
+        }
+        final Ring ring = recent.computeIfAbsent(player, uuid -> new HashMap<>(4))
+                .computeIfAbsent(menu, key -> new Ring(capacity));
+        synchronized (ring) {
+            ring.push(positionId);
+        }
+    }
+
+    /**
+     * Get the positions a player last teleported to from a menu
+     *
+     * @param player The player's UUID
+     * @param menu   The menu key, e.g. {@code "homes"}
+     * @return the position ids, most recent first
+     */
+    @NotNull
+    public List<UUID> get(@NotNull UUID player, @NotNull String menu) {
+        final Map<String, Ring> rings = recent.get(player);
+        final Ring ring = rings != null ? rings.get(menu) : null;
+        if (ring == null) {
+            return List.of();
+        }
+        synchronized (ring) {
+            return ring.toList();
+        }
+    }
+
+    public void load() {
+        final Optional<byte[]> saved = plugin.getDataStore().getOrImport(RECENT_KEY, LEGACY_FILE);
+        if (saved.isEmpty() || plugin.getSettings().getRecentCount() <= 0) {
+            return;
+        }
+        try (DataInputStream in = new DataInputStream(new ByteArrayInputStream(saved.get()))) {
+            if (in.readInt() != FILE_MAGIC || in.readInt() != FILE_VERSION) {
+                return;
+            }
+            final int players = in.readInt();
+            for (int i = 0; i < players; i++) {
+                final UUID player = new UUID(in.readLong(), in.readLong());
+                final int menus = in.readUnsignedByte();
+                for (int j = 0; j < menus; j++) {
+                    final String menu = in.readUTF();
+                    final int size = in.readUnsignedByte();
+                    final UUID[] ids = new UUID[size];
+                    for (int k = 0; k < size; k++) {
+                        ids[k] = new UUID(in.readLong(), in.readLong());
+                    }
+                    // Replay oldest first, so the most recent ends up at the front
+                    for (int k = size - 1; k >= 0; k--) {
+                        record(player, menu, ids[k]);
+                    }
+                }
+            }
+        } catch (IOException e) {
+            plugin.getLogger().log(Level.WARNING, "Failed to load recent positions", e);
+        }
+    }
+
+    public void save() {
+        final Map<UUID, Map<String, List<UUID>>> snapshot = new LinkedHashMap<>();
+        synchronized (recent) {
+            recent.forEach((player, rings) -> {
+                final Map<String, List<UUID>> lists = new HashMap<>();
+                rings.forEach((menu, ring) -> lists.put(menu, get(player, menu)));
+                snapshot.put(player, lists);
+            });
+        }
+        final ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        try {
+            try (DataOutputStream out = new DataOutputStream(bytes)) {
+                out.writeInt(FILE_MAGIC);
+                out.writeInt(FILE_VERSION);
+                out.writeInt(snapshot.size());
+                for (Map.Entry<UUID, Map<String, List<UUID>>> player : snapshot.entrySet()) {
+                    out.writeLong(player.getKey().getMostSignificantBits());
+                    out.writeLong(player.getKey().getLeastSignificantBits());
+                    out.writeByte(player.getValue().size());
+                    for (Map.Entry<String, List<UUID>> menu : player.getValue().entrySet()) {
+                        out.writeUTF(menu.getKey());
+                        out.writeByte(menu.getValue().size());
+                        for (UUID id : menu.getValue()) {
+                            out.writeLong(id.getMostSignificantBits());
+                            out.writeLong(id.getLeastSignificantBits());
+                        }
+                    }
+                }
+            }
+            plugin.getDataStore().put(RECENT_KEY, bytes.toByteArray());
+        } catch (IOException e) {
+            plugin.getLogger().log(Level.WARNING, "Failed to save recent positions", e);
+        }
+    }
+
+    // A fixed-size ring buffer of UUIDs, stored as pairs of longs; pushing an id already held moves it to the front
+    private static final class Ring {
+        private final long[] bits;
+        private int head;
+        private int size;
+
+        private Ring(int capacity) {
+            this.bits = new long[capacity * 2];
+        }
+
+        private void push(@NotNull UUID id) {
+            final int capacity = bits.length / 2;
+            final int existing = indexOf(id);
+            if (existing >= 0) {
+                // Close the gap by shifting the newer entries back one place
+                for (int i = existing; i > 0; i--) {
+                    copy(slot(i - 1), slot(i));
+                }
+            } else {
+                head = (head - 1 + capacity) % capacity;
+                size = Math.min(size + 1, capacity);
+            }
+            bits[slot(0) * 2] = id.getMostSignificantBits();
+            bits[slot(0) * 2 + 1] = id.getLeastSignificantBits();
+        }
+
+        @NotNull
+        private List<UUID> toList() {
+            final List<UUID> ids = new ArrayList<>(size);
+            for (int i = 0; i < size; i++) {
+                ids.add(new UUID(bits[slot(i) * 2], bits[slot(i) * 2 + 1]));
+            }
+            return ids;
+        }
+
+        private int indexOf(@NotNull UUID id) {
+            for (int i = 0; i < size; i++) {
+                if (bits[slot(i) * 2] == id.getMostSignificantBits()
+                    && bits[slot(i) * 2 + 1] == id.getLeastSignificantBits()) {
+                    return i;
+                }
+            }
+            return -1;
+        }
+
+        // The buffer index of the i-th most recent entry
+        private int slot(int i) {
+            return (head + i) % (bits.length / 2);
+        }
+
+        private void copy(int from, int to) {
+            bits[to * 2] = bits[from * 2];
+            bits[to * 2 + 1] = bits[from * 2 + 1];
+        }
+    }
+
+}
@@ -0,0 +1,299 @@
+/*
+ * This file is part of HuskHomesGUI, licensed under the Apache License 2.0.
+ *
+ *  Copyright (c) William278 <will27528@gmail.com>
+ *  Copyright (c) contributors
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+
+
+package net.william278.huskhomes.gui.cache;
+
+import net.william278.huskhomes.gui.HuskHomesGui;
+import net.william278.huskhomes.gui.model.PositionView;
+import net.william278.huskhomes.gui.store.GuiDataStore;
+import net.william278.huskhomes.position.Warp;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+import java.util.*;
+import java.util.function.Predicate;
+
+/**
+ * A server-wide index of warp views bucketed by the category set for them in the {@link GuiDataStore}
+ * <p>
+ * The index is kept up to date incrementally: {@link #sync(Collection)} only re-files warps that were added, changed
+ * or removed since the last sync, and {@link #update(Warp)} / {@link #remove(UUID)} apply single changes. Each bucket
+ * is kept sorted by name, so switching warp list tabs only reads the selected bucket and never rescans all warps.
+ * <p>
+ * Each warp is also given a slot number that stays the same for as long as it is indexed, and each bucket keeps a
+ * {@link BitSet} of its warps' slots. A viewer's visible warps can then be held as a bitset over the same slots (see
+ * {@link WarpVisibility}), and filtering a bucket by visibility is a bitwise {@code and}.
+ */
+public class WarpCategoryIndex {
+
+    private static final Comparator<PositionView> BY_NAME = Comparator.comparing(PositionView::name,
+            String.CASE_INSENSITIVE_ORDER).thenComparing(PositionView::id);
+
+    private final HuskHomesGui plugin;
+    private final Map<UUID, PositionView> views = new HashMap<>();
+    private final Map<UUID, String> categoryByWarp = new HashMap<>();
+    private final Map<String, List<PositionView>> buckets = new TreeMap<>(String.CASE_INSENSITIVE_ORDER);
+    private final List<PositionView> all = new ArrayList<>();
+    private final Map<UUID, Integer> slots = new HashMap<>();
+    private final List<PositionView> viewsBySlot = new ArrayList<>();
+    private final BitSet allSlots = new BitSet();
+    private final Map<String, BitSet> bucketSlots = new TreeMap<>(String.CASE_INSENSITIVE_ORDER);
+    private int version;
+
+    public WarpCategoryIndex(@NotNull HuskHomesGui plugin) {
+        this.plugin = plugin;
+    }
+
+    /**
+     * Bring the index in line with the current warp list, re-filing only the warps that changed
+     *
+     * @param warps All current warps
+     */
+    public synchronized void sync(@NotNull Collection<Warp> warps) {
+        final Set<UUID> current = new HashSet<>(warps.size());
+        warps.forEach(warp -> current.add(warp.getUuid()));
+
+        // Drop removed warps first, so that warps added in the same sync can reuse their slots
+        if (!current.containsAll(views.keySet())) {
+            new ArrayList<>(views.keySet()).stream().filter(id -> !current.contains(id)).forEach(this::remove);
+        }
+        for (Warp warp : warps) {
+            final PositionView view = PositionView.of(warp);
+            final String category = getCategory(warp);
+            if (!view.equals(views.get(warp.getUuid())) || !category.equals(categoryByWarp.get(warp.getUuid()))) {
+                file(view, category);
+            }
+        }
+    }
+
+    /**
+     * Add or re-file a single warp
+     *
+     * @param warp The warp
+     */
+    public synchronized void update(@NotNull Warp warp) {
+        file(PositionView.of(warp), getCategory(warp));
+    }
+
+    /**
+     * Remove a warp from the index
+     *
+     * @param warpId The id of the warp to remove
+     */
+    public synchronized void remove(@NotNull UUID warpId) {
+        if (unfile(warpId)) {
+            final int slot = slots.remove(warpId);
+            allSlots.clear(slot);
+            viewsBySlot.set(slot, null);
+            version++;
+        }
+    }
+
+    /**
+     * Get the categories in the index, in alphabetical order
+     *
+     * @return the categories holding at least one warp
+     */
+    @NotNull
+    public synchronized List<String> getCategories() {
+        return new ArrayList<>(buckets.keySet());
+    }
+
+    /**
+     * Get the warps in a category, sorted by name
+     *
+     * @param category The category, or {@code null} for all warps
+     * @return a copy of the category's warps, empty if it has none
+     */
+    @NotNull
+    public synchronized List<PositionView> getWarps(@Nullable String category) {
+        return new ArrayList<>(category == null ? all : buckets.getOrDefault(category, List.of()));
+    }
+
+    public synchronized int getWarpCount(@Nullable String category) {
+        return category == null ? all.size() : buckets.getOrDefault(category, List.of()).size();
+    }
+
+    /**
+     * Get the warps in a category that are visible to a viewer, sorted by name
+     *
+     * @param category The category, or {@code null} for all warps
+     * @param visible  The slots of the warps the viewer can see
+     * @return the category's visible warps
+     */
+    @NotNull
+    public synchronized List<PositionView> getWarps(@Nullable String category, @NotNull BitSet visible) {
+        final BitSet members = category == null ? allSlots : bucketSlots.get(category);
+        if (members == null) {
+            return new ArrayList<>();
+        }
+        final BitSet matching = (BitSet) members.clone();
+        matching.and(visible);
+        final List<PositionView> filtered = new ArrayList<>(matching.cardinality());
+        for (int slot = matching.nextSetBit(0); slot >= 0; slot = matching.nextSetBit(slot + 1)) {
+            filtered.add(viewsBySlot.get(slot));
+        }
+        filtered.sort(BY_NAME);
+        return filtered;
+    }
+
+    /**
+     * Count the warps in a category that are visible to a viewer
+     *
+     * @param category The category, or {@code null} for all warps
+     * @param visible  The slots of the warps the viewer can see
+     * @return the number of visible warps in the category
+     */
+    public synchronized int getWarpCount(@Nullable String category, @NotNull BitSet visible) {
+        final BitSet members = category == null ? allSlots : bucketSlots.get(category);
+        if (members == null) {
+            return 0;
+        }
+        final BitSet count = (BitSet) members.clone();
+        count.and(visible);
+        return count.cardinality();
+    }
+
+    /**
+     * Get the categories holding at least one warp visible to a viewer, in alphabetical order
+     *
+     * @param visible The slots of the warps the viewer can see
+     * @return the visible categories
+     */
+    @NotNull
+    public synchronized List<String> getCategories(@NotNull BitSet visible) {
+        final List<String> categories = new ArrayList<>(buckets.size());
+        for (String category : buckets.keySet()) {
+            if (bucketSlots.get(category).intersects(visible)) {
+                categories.add(category);
+            }
+        }
+        return categories;
+    }
+
+    /**
+     * Get the slots of the indexed warps that pass a test, e.g. a viewer's permission check
+     *
+     * @param test The test, called once per indexed warp
+     * @return the slots of the warps that passed
+     */
+    @NotNull
+    public synchronized BitSet getSlots(@NotNull Predicate<PositionView> test) {
+        final BitSet matching = new BitSet(viewsBySlot.size());
+        for (int slot = allSlots.nextSetBit(0); slot >= 0; slot = allSlots.nextSetBit(slot + 1)) {
+            if (test.test(viewsBySlot.get(slot))) {
+                matching.set(slot);
+            }
+        }
+        return matching;
+    }
+
+    /**
+     * Get an indexed warp
+     *
+     * @param warpId The warp id
+     * @return the warp's view, if it is indexed
+     */
+    @NotNull
+    public synchronized Optional<PositionView> getWarp(@NotNull UUID warpId) {
+        return Optional.ofNullable(views.get(warpId));
+    }
+
+    /**
+     * Get the slot of an indexed warp
+     *
+     * @param warpId The warp id
+     * @return the warp's slot, or {@code -1} if it is not indexed
+     */
+    public synchronized int getSlot(@NotNull UUID warpId) {
+        return slots.getOrDefault(warpId, -1);
+    }
+
+    /**
+     * Get the version of the index's warp slots, which changes whenever a warp is added, renamed or removed
+     *
+     * @return the slot version
+     */
+    public synchronized int getVersion() {
+        return version;
+    }
+
+    @NotNull
+    private String getCategory(@NotNull Warp warp) {
+        return plugin.getDataStore().getCategory(warp);
+    }
+
+    private void file(@NotNull PositionView view, @NotNull String category) {
+        final PositionView previous = views.get(view.id());
+        unfile(view.id());
+        views.put(view.id(), view);
+        categoryByWarp.put(view.id(), category);
+        insertSorted(all, view);
+
+        // Keep the warp's slot while it stays indexed; only a new or renamed warp changes what viewers can see
+        final int slot = slots.computeIfAbsent(view.id(), id -> allSlots.nextClearBit(0));
+        while (viewsBySlot.size() <= slot) {
+            viewsBySlot.add(null);
+        }
+        viewsBySlot.set(slot, view);
+        allSlots.set(slot);
+        if (previous == null || !previous.name().equals(view.name())) {
+            version++;
+        }
+
+        if (!category.isEmpty()) {
+            insertSorted(buckets.computeIfAbsent(category, c -> new ArrayList<>()), view);
+            bucketSlots.computeIfAbsent(category, c -> new BitSet()).set(slot);
+        }
+    }
+
+    // Take a warp out of its buckets, keeping its slot
+    private boolean unfile(@NotNull UUID warpId) {
+        final PositionView view = views.remove(warpId);
+        final String category = categoryByWarp.remove(warpId);
+        if (view == null) {
+            return false;
+        }
+        removeSorted(all, view);
+        if (!category.isEmpty()) {
+            final List<PositionView> bucket = buckets.get(category);
+            removeSorted(bucket, view);
+            bucketSlots.get(category).clear(slots.get(warpId));
+            if (bucket.isEmpty()) {
+                buckets.remove(category);
+                bucketSlots.remove(category);
+            }
+        }
+        return true;
+    }
+
+    private static void insertSorted(@NotNull List<PositionView> list, @NotNull PositionView view) {
+        final int index = Collections.binarySearch(list, view, BY_NAME);
+        list.add(index < 0 ? -index - 1 : index, view);
+    }
+
+    private static void removeSorted(@NotNull List<PositionView> list, @NotNull PositionView view) {
+        final int index = Collections.binarySearch(list, view, BY_NAME);
+        if (index >= 0) {
+            list.remove(index);
+        }
+    }
+
+}
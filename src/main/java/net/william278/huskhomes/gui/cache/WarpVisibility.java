@@ -0,0 +1,95 @@
+/*
+ * This file is part of HuskHomesGUI, licensed under the Apache License 2.0.
+ *
+ *  Copyright (c) William278 <will27528@gmail.com>
+ *  Copyright (c) contributors
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+
+
+package net.william278.huskhomes.gui.cache;
+
+import net.william278.huskhomes.gui.HuskHomesGui;
+import org.bukkit.entity.Player;
+import org.jetbrains.annotations.NotNull;
+
+import java.util.BitSet;
+import java.util.Locale;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * A per-player cache of which warps each player may see, as a bitset over the {@link WarpCategoryIndex} warp slots
+ * <p>
+ * Checking a permission per warp every time the warp list opens is slow with many warps, so each player's result is
+ * cached until the index's warps change, the player's permissions are recalculated (signalled by the server
+ * resending their command list) or the configured lifetime passes. Warp list tabs then filter the shared index by
+ * intersecting bitsets.
+ */
+public class WarpVisibility {
+
+    private static final String PERMISSION_PREFIX = "huskhomes.warp.";
+    private static final String WILDCARD_PERMISSION = PERMISSION_PREFIX + "*";
+
+    private final HuskHomesGui plugin;
+    private final Map<UUID, Entry> visible = new ConcurrentHashMap<>();
+
+    public WarpVisibility(@NotNull HuskHomesGui plugin) {
+        this.plugin = plugin;
+    }
+
+    /**
+     * Get the slots of the warps a player may see
+     *
+     * @param player The player
+     * @return the visible warp slots; the bitset is shared and must not be modified
+     */
+    @NotNull
+    public BitSet getVisible(@NotNull Player player) {
+        final WarpCategoryIndex index = plugin.getWarpCategories();
+        final long now = System.currentTimeMillis();
+        final Entry cached = visible.get(player.getUniqueId());
+        if (cached != null && cached.version() == index.getVersion() && now < cached.expiresAt()) {
+            return cached.slots();
+        }
+
+        // Read the version first, so a change made while checking permissions leaves the entry stale
+        final int version = index.getVersion();
+        final BitSet slots = !plugin.getSettings().doRestrictWarpsByPermission()
+                             || player.hasPermission(WILDCARD_PERMISSION)
+                ? index.getSlots(warp -> true)
+                : index.getSlots(warp -> player.hasPermission(PERMISSION_PREFIX + warp.name().toLowerCase(Locale.ENGLISH)));
+        visible.put(player.getUniqueId(), new Entry(slots, version,
+                now + plugin.getSettings().getWarpVisibilityCacheSeconds() * 1000L));
+        return slots;
+    }
+
+    /**
+     * Forget a player's visible warps, e.g. after their permissions change
+     *
+     * @param playerId The player's UUID
+     */
+    public void invalidate(@NotNull UUID playerId) {
+        visible.remove(playerId);
+    }
+
+    public void invalidateAll() {
+        visible.clear();
+    }
+
+    private record Entry(@NotNull BitSet slots, int version, long expiresAt) {
+    }
+
+}
@@ -25,6 +25,14 @@ import net.kyori.adventure.text.Component;
 import net.kyori.adventure.text.format.TextColor;
 import net.william278.desertwell.about.AboutMenu;
 import net.william278.huskhomes.gui.HuskHomesGui;
+import net.william278.huskhomes.gui.cache.HotWarps;
+import net.william278.huskhomes.gui.config.Locales;
+import net.william278.huskhomes.gui.diagnostics.GuiMetrics;
+import net.william278.huskhomes.gui.hook.HuskHomesHook;
+import net.william278.huskhomes.gui.menu.AdminBulkMenu;
+import net.william278.huskhomes.gui.menu.AdminHomesMenu;
+import net.william278.huskhomes.gui.task.GuiExecutor;
+import net.william278.huskhomes.position.Warp;
 import org.bukkit.command.Command;
 import org.bukkit.command.CommandExecutor;
 import org.bukkit.command.CommandSender;
@@ -33,9 +41,15 @@ import org.bukkit.entity.Player;
 import org.jetbrains.annotations.NotNull;
 
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.List;
+import java.util.logging.Level;
 
 public class HuskHomesGuiCommand implements CommandExecutor, TabExecutor {
+    private static final String HOMES_PERMISSION = "huskhomesgui.command.homes";
+    private static final String WARP_CATEGORY_PERMISSION = "huskhomesgui.command.warpcategory";
+    private static final String BULK_PERMISSION = "huskhomesgui.command.bulk";
+
     private final HuskHomesGui plugin;
     private final AboutMenu aboutMenu;
 
@@ -73,20 +87,182 @@ public class HuskHomesGuiCommand implements CommandExecutor, TabExecutor {
         }
 
         final String subCommand = args.length >= 1 ? args[0] : "";
-        if (subCommand.equals("reload")) {
-            plugin.reloadConfigFiles();
-            audience.sendMessage(new MineDown("[[HuskHomesGUI]](#00fb9a bold) [Reloaded config files!](#00fb9a)")
-                    .toComponent());
-        } else {
-            audience.sendMessage(aboutMenu.toComponent());
+        switch (subCommand) {
+            case "reload" -> {
+                plugin.reloadConfigFiles();
+                audience.sendMessage(new MineDown("[[HuskHomesGUI]](#00fb9a bold) [Reloaded config files!](#00fb9a)")
+                        .toComponent());
+            }
+            case "homes" -> {
+                if (!sender.hasPermission(HOMES_PERMISSION)) {
+                    audience.sendMessage(aboutMenu.toComponent());
+                    return true;
+                }
+                if (!(sender instanceof Player player)) {
+                    sendLocale(audience, "error_in_game_only");
+                    return true;
+                }
+                if (args.length < 2) {
+                    audience.sendMessage(new MineDown("[Usage: /" + label + " homes <player>](#ff7e5e)").toComponent());
+                    return true;
+                }
+                final String username = args[1];
+                AdminHomesMenu.open(plugin, player, username).thenAccept(found -> {
+                    if (!found) {
+                        sendLocale(audience, "error_player_not_found", Locales.escapeText(username));
+                    }
+                }).exceptionally(e -> {
+                    plugin.getLogger().log(Level.WARNING, "Failed to open home browser for " + username, e);
+                    return null;
+                });
+            }
+            case "bulk" -> {
+                if (!sender.hasPermission(BULK_PERMISSION)) {
+                    audience.sendMessage(aboutMenu.toComponent());
+                    return true;
+                }
+                if (!(sender instanceof Player player)) {
+                    sendLocale(audience, "error_in_game_only");
+                    return true;
+                }
+                AdminBulkMenu.open(plugin, player);
+            }
+            case "stats" -> {
+                if (args.length >= 2 && args[1].equals("reset")) {
+                    plugin.getMetrics().reset();
+                    audience.sendMessage(new MineDown("[[HuskHomesGUI]](#00fb9a bold) [Reset GUI metrics.](#00fb9a)")
+                            .toComponent());
+                    return true;
+                }
+                if (args.length >= 2 && args[1].equals("report")) {
+                    plugin.getGuiExecutor().supply(GuiExecutor.Operation.WRITE, plugin, "allocation-report",
+                            () -> plugin.getAllocationBudgets().writeReport()
+                    ).thenAccept(report -> audience.sendMessage(new MineDown(
+                            "[[HuskHomesGUI]](#00fb9a bold) [Wrote allocation report to](#00fb9a) [%s](gray)"
+                                    .formatted(Locales.escapeText(report.toString()))).toComponent())
+                    ).exceptionally(e -> {
+                        plugin.getLogger().log(Level.WARNING, "Failed to write allocation report", e);
+                        return null;
+                    });
+                    return true;
+                }
+                sendMetrics(audience);
+            }
+            case "hotwarps" -> sendHotWarps(audience);
+            case "warpcategory" -> {
+                if (!sender.hasPermission(WARP_CATEGORY_PERMISSION)) {
+                    audience.sendMessage(aboutMenu.toComponent());
+                    return true;
+                }
+                if (args.length < 2) {
+                    audience.sendMessage(new MineDown("[Usage: /" + label + " warpcategory <warp> [category]](#ff7e5e)")
+                            .toComponent());
+                    return true;
+                }
+                setWarpCategory(audience, args[1], String.join(" ", Arrays.copyOfRange(args, 2, args.length)).trim());
+            }
+            default -> audience.sendMessage(aboutMenu.toComponent());
         }
         return true;
     }
 
+    // Set or clear the category of a warp in the local data store, re-filing it in the warp category index
+    private void setWarpCategory(@NotNull Audience audience, @NotNull String warpName, @NotNull String category) {
+        final HuskHomesHook api = plugin.getHuskHomes();
+        api.getWarp(warpName).thenAccept(optionalWarp -> {
+            if (optionalWarp.isEmpty()) {
+                sendLocale(audience, "error_warp_not_found", Locales.escapeText(warpName));
+                return;
+            }
+            final Warp warp = optionalWarp.get();
+            plugin.getDataStore().setCategory(warp.getUuid(), category);
+            plugin.getLiveMenus().warpUpdated(warp);
+            if (category.isEmpty()) {
+                sendLocale(audience, "warp_category_cleared", Locales.escapeText(warp.getName()));
+            } else {
+                sendLocale(audience, "warp_category_set", Locales.escapeText(warp.getName()),
+                        Locales.escapeText(category));
+            }
+        }).exceptionally(e -> {
+            plugin.getLogger().log(Level.WARNING, "Failed to set the category of warp " + warpName, e);
+            return null;
+        });
+    }
+
+    // Show the throughput, latency percentiles and allocation of GUI work since the last reset
+    private void sendMetrics(@NotNull Audience audience) {
+        final List<GuiMetrics.Summary> summaries = plugin.getMetrics().summarise();
+        audience.sendMessage(new MineDown("[[HuskHomesGUI]](#00fb9a bold) [GUI metrics —](#00fb9a) "
+                                          + "[ops/s · mean / p50 / p95 / p99 ms · bytes/op · bytes/s](gray)")
+                .toComponent());
+        if (summaries.isEmpty()) {
+            audience.sendMessage(new MineDown("[No GUI work recorded yet.](gray)").toComponent());
+        }
+        for (GuiMetrics.Summary summary : summaries) {
+            audience.sendMessage(new MineDown(String.format("[%s](#00fb9a) [×%d](gray) [%.2f/s · %.2f / %.2f / %.2f / %.2f ms · %s · %s](white)",
+                    Locales.escapeText(summary.kind()), summary.count(), summary.throughput(),
+                    summary.meanNanos() / 1e6, summary.p50Nanos() / 1e6, summary.p95Nanos() / 1e6,
+                    summary.p99Nanos() / 1e6, formatBytes(summary.bytesPerOperation()),
+                    formatBytes(summary.bytesPerSecond()))).toComponent());
+        }
+    }
+
+    // Show the warps whose chunks are kept loaded, most used first
+    private void sendHotWarps(@NotNull Audience audience) {
+        final List<HotWarps.HotWarp> hotWarps = plugin.getHotWarps().getHotWarps();
+        audience.sendMessage(new MineDown("[[HuskHomesGUI]](#00fb9a bold) [Pre-warmed warps —](#00fb9a) "
+                                          + "[uses · world · chunk](gray)").toComponent());
+        if (hotWarps.isEmpty()) {
+            audience.sendMessage(new MineDown("[No warps are pre-warmed.](gray)").toComponent());
+        }
+        for (HotWarps.HotWarp warp : hotWarps) {
+            audience.sendMessage(new MineDown(String.format("[%s](#00fb9a) [×%d](gray) [%s · %d, %d](white)",
+                    Locales.escapeText(warp.name()), warp.uses(), Locales.escapeText(warp.worldName()),
+                    warp.chunkX(), warp.chunkZ())).toComponent());
+        }
+    }
+
+    @NotNull
+    private static String formatBytes(long bytes) {
+        if (bytes < 1024) {
+            return bytes + " B";
+        } else if (bytes < 1024 * 1024) {
+            return String.format("%.1f KiB", bytes / 1024.0);
+        }
+        return String.format("%.1f MiB", bytes / (1024.0 * 1024.0));
+    }
+
+    private void sendLocale(@NotNull Audience audience, @NotNull String localeId, @NotNull String... replacements) {
+        plugin.getLocales().getRawLocale(localeId, replacements)
+                .ifPresent(locale -> audience.sendMessage(new MineDown(locale).toComponent()));
+    }
+
     @Override
     public List<String> onTabComplete(@NotNull CommandSender sender, @NotNull Command command,
                                       @NotNull String label, @NotNull String[] args) {
-        return this.filter(List.of("reload", "about"), args);
+        if (args.length <= 1) {
+            final List<String> subCommands = new ArrayList<>(List.of("reload", "about", "stats", "hotwarps"));
+            if (sender.hasPermission(HOMES_PERMISSION)) {
+                subCommands.add("homes");
+            }
+            if (sender.hasPermission(WARP_CATEGORY_PERMISSION)) {
+                subCommands.add("warpcategory");
+            }
+            if (sender.hasPermission(BULK_PERMISSION)) {
+                subCommands.add("bulk");
+            }
+            return this.filter(subCommands, args);
+        }
+        if (args.length == 2 && args[0].equals("stats")) {
+            return this.filter(List.of("reset", "report"), args);
+        }
+        if (args.length == 2 && args[0].equals("homes") && sender.hasPermission(HOMES_PERMISSION)) {
+            return this.filter(plugin.getServer().getOnlinePlayers().stream().map(Player::getName).toList(), args);
+        }
+        if (args.length == 3 && args[0].equals("warpcategory") && sender.hasPermission(WARP_CATEGORY_PERMISSION)) {
+            return this.filter(plugin.getWarpCategories().getCategories(), args);
+        }
+        return List.of();
     }
 
     @NotNull
@@ -0,0 +1,158 @@
+/*
+ * This file is part of HuskHomesGUI, licensed under the Apache License 2.0.
+ *
+ *  Copyright (c) William278 <will27528@gmail.com>
+ *  Copyright (c) contributors
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+
+
+package net.william278.huskhomes.gui.config;
+
+import org.jetbrains.annotations.NotNull;
+
+import java.io.*;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.Arrays;
+import java.util.Optional;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * A binary cache of the parsed {@link Settings} and {@link Locales}, so that unchanged config files are not parsed
+ * again on every enable and reload
+ * <p>
+ * The cache is keyed by a SHA-256 hash of {@code config.yml} and the messages file in use, and by the plugin version.
+ * Any mismatch, or any error reading the cache, is treated as a miss.
+ */
+public class ConfigCache {
+
+    private static final String CACHE_FILE = "config.cache";
+    private static final int MAGIC = 0x48484743;
+    // HashMap checks the array of its entries against the filter as it is read, so Map$Entry must be allowed
+    private static final ObjectInputFilter FILTER = ObjectInputFilter.Config.createFilter(
+            Settings.class.getName() + ";" + Locales.class.getName() + ";java.util.HashMap;java.util.LinkedHashMap;"
+            + "java.util.Map$Entry;java.lang.String;maxdepth=8;!*");
+
+    private final Path dataFolder;
+    private final String version;
+    private final Logger logger;
+
+    public ConfigCache(@NotNull File dataFolder, @NotNull String version, @NotNull Logger logger) {
+        this.dataFolder = dataFolder.toPath();
+        this.version = version;
+        this.logger = logger;
+    }
+
+    /**
+     * Read the cached settings and locales, if the cache matches the config files on disk
+     *
+     * @return the cached config, or empty on a miss
+     */
+    @NotNull
+    public Optional<Cached> read() {
+        final Path cacheFile = dataFolder.resolve(CACHE_FILE);
+        if (!Files.exists(cacheFile)) {
+            return Optional.empty();
+        }
+        try (DataInputStream input = new DataInputStream(new BufferedInputStream(Files.newInputStream(cacheFile)))) {
+            if (input.readInt() != MAGIC || !input.readUTF().equals(version)) {
+                return Optional.empty();
+            }
+            final String language = input.readUTF();
+            if (!Arrays.equals(readHash(input), hash(getConfigFile()))
+                || !Arrays.equals(readHash(input), hash(getMessagesFile(language)))) {
+                return Optional.empty();
+            }
+
+            final ObjectInputStream objects = new ObjectInputStream(input);
+            objects.setObjectInputFilter(FILTER);
+            return Optional.of(new Cached((Settings) objects.readObject(), (Locales) objects.readObject()));
+        } catch (IOException | ClassNotFoundException | ClassCastException e) {
+            logger.log(Level.FINE, "Ignoring unreadable config cache", e);
+            return Optional.empty();
+        }
+    }
+
+    /**
+     * Write settings and locales to the cache, keyed by the current contents of the config files
+     *
+     * @param settings The parsed settings
+     * @param locales  The parsed locales
+     */
+    public void write(@NotNull Settings settings, @NotNull Locales locales) {
+        final Path cacheFile = dataFolder.resolve(CACHE_FILE);
+        try (DataOutputStream output = new DataOutputStream(new BufferedOutputStream(Files.newOutputStream(cacheFile)))) {
+            output.writeInt(MAGIC);
+            output.writeUTF(version);
+            output.writeUTF(settings.getLanguage());
+            writeHash(output, hash(getConfigFile()));
+            writeHash(output, hash(getMessagesFile(settings.getLanguage())));
+
+            final ObjectOutputStream objects = new ObjectOutputStream(output);
+            objects.writeObject(settings);
+            objects.writeObject(locales);
+            objects.flush();
+        } catch (IOException e) {
+            logger.log(Level.WARNING, "Failed to write config cache", e);
+        }
+    }
+
+    @NotNull
+    private Path getConfigFile() {
+        return dataFolder.resolve("config.yml");
+    }
+
+    @NotNull
+    private Path getMessagesFile(@NotNull String language) {
+        return dataFolder.resolve("messages-" + language + ".yml");
+    }
+
+    @NotNull
+    private static byte[] hash(@NotNull Path file) throws IOException {
+        if (!Files.exists(file)) {
+            return new byte[0];
+        }
+        try {
+            return MessageDigest.getInstance("SHA-256").digest(Files.readAllBytes(file));
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("SHA-256 is not available", e);
+        }
+    }
+
+    @NotNull
+    private static byte[] readHash(@NotNull DataInputStream input) throws IOException {
+        final byte[] hash = new byte[input.readUnsignedByte()];
+        input.readFully(hash);
+        return hash;
+    }
+
+    private static void writeHash(@NotNull DataOutputStream output, byte[] hash) throws IOException {
+        output.writeByte(hash.length);
+        output.write(hash);
+    }
+
+    /**
+     * Settings and locales read from the cache
+     *
+     * @param settings The cached settings
+     * @param locales  The cached locales
+     */
+    public record Cached(@NotNull Settings settings, @NotNull Locales locales) {
+    }
+
+}
@@ -26,6 +26,7 @@ import net.william278.huskhomes.gui.HuskHomesGui;
 import org.apache.commons.text.StringEscapeUtils;
 import org.jetbrains.annotations.NotNull;
 
+import java.io.Serializable;
 import java.util.*;
 import java.util.regex.Matcher;
 import java.util.regex.Pattern;
@@ -39,7 +40,7 @@ import static org.bukkit.Bukkit.getLogger;
         ┣━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━┛
         ┗╸ Formatted in MineDown: https://github.com/Phoenix616/MineDown""",
         rootedMap = true)
-public class Locales {
+public class Locales implements Serializable {
 
     /**
      * The raw set of locales loaded from yaml
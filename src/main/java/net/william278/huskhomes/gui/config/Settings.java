@@ -25,6 +25,7 @@ import net.william278.annotaml.YamlKey;
 import org.bukkit.Material;
 import org.jetbrains.annotations.NotNull;
 
+import java.io.Serializable;
 import java.util.Optional;
 
 @YamlFile(header = """
@@ -33,7 +34,7 @@ import java.util.Optional;
         ┃    Developed by William278   ┃
         ┣━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━┛
         ┗╸ Information: https://william278.net/project/huskhomesgui""")
-public class Settings {
+public class Settings implements Serializable {
 
     @YamlKey("language")
     private String language = "en-gb";
@@ -47,6 +48,22 @@ public class Settings {
     private boolean displayControlsHelpInCore = false;
     @YamlKey("menu.text_wrap_length")
     private int textWrapLength = 17;
+    @YamlKey("menu.profile_cache_size")
+    private int profileCacheSize = 512;
+    @YamlKey("menu.group_by_location")
+    private boolean groupByLocation = false;
+    @YamlKey("menu.item_prototype_cache_size")
+    private int itemPrototypeCacheSize = 2048;
+    @YamlKey("menu.remember_sessions")
+    private boolean rememberSessions = true;
+    @YamlKey("menu.session_cache_size")
+    private int sessionCacheSize = 1000;
+    @YamlKey("menu.recent_count")
+    private int recentCount = 5;
+    @YamlKey("menu.prewarm_on_join")
+    private boolean prewarmOnJoin = false;
+    @YamlKey("menu.prewarm_joins_per_second")
+    private int prewarmJoinsPerSecond = 5;
 
     @YamlKey("menu.items.homes_filler")
     private String homesFillerItem = "minecraft:blue_stained_glass_pane";
@@ -104,9 +121,60 @@ public class Settings {
     private String editorEditDescriptionButtonIcon = "minecraft:writable_book";
     @YamlKey("editor.icons.edit_privacy_button")
     private String editorEditPrivacyButtonIcon = "minecraft:nether_star";
+    @YamlKey("editor.icons.edit_icon_button")
+    private String editorEditIconButtonIcon = "minecraft:item_frame";
     @YamlKey("editor.icons.delete_button")
     private String editorDeleteButtonIcon = "minecraft:barrier";
 
+    @YamlComment("Keep the chunks of the most used warps loaded so that busy warps teleport without lag (0 to disable)")
+    @YamlKey("warps.prewarm_count")
+    private int prewarmWarpCount = 5;
+    @YamlKey("warps.prewarm_interval_seconds")
+    private int prewarmIntervalSeconds = 60;
+    @YamlComment("Only list the warps a player has the huskhomes.warp.<name> permission for; match HuskHomes' permission_restrict_warps option")
+    @YamlKey("warps.restrict_by_permission")
+    private boolean restrictWarpsByPermission = false;
+    @YamlKey("warps.visibility_cache_seconds")
+    private int warpVisibilityCacheSeconds = 60;
+
+    @YamlComment("Seconds during which a home deleted from the GUI can be restored with the undo button before it is really deleted (0 to delete immediately)")
+    @YamlKey("deletion.undo_seconds")
+    private int deletionUndoSeconds = 10;
+
+    @YamlComment("How often to check whether the local GUI data store (store/data.log) needs compacting")
+    @YamlKey("store.compact_interval_minutes")
+    private int storeCompactIntervalMinutes = 30;
+
+    @YamlComment("Limits on concurrent HuskHomes database work started from menus")
+    @YamlKey("io.max_concurrent_reads")
+    private int maxConcurrentReads = 8;
+    @YamlKey("io.max_concurrent_writes")
+    private int maxConcurrentWrites = 2;
+
+    @YamlComment("Maximum milliseconds of each server tick to spend building and redrawing menus")
+    @YamlKey("performance.tick_budget_ms")
+    private double tickBudgetMillis = 5.0;
+
+    @YamlComment("Bytes allocated per listed item above which menu builds and redraws are reported as over budget")
+    @YamlKey("diagnostics.build_allocation_budget_bytes_per_item")
+    private int buildAllocationBudget = 32768;
+    @YamlKey("diagnostics.draw_allocation_budget_bytes_per_item")
+    private int drawAllocationBudget = 16384;
+    @YamlComment("Log a stack trace to diagnostics/stalls.log when a menu click, build or draw takes longer than this many milliseconds (0 to disable)")
+    @YamlKey("diagnostics.stall_threshold_ms")
+    private int stallThresholdMillis = 50;
+    @YamlKey("diagnostics.stall_log_max_kilobytes")
+    private int stallLogMaxKilobytes = 512;
+
+    @YamlComment("Options for the staff home browser (/huskhomesgui homes <player>)")
+    @YamlKey("admin.page_window")
+    private int adminPageWindow = 4;
+    @YamlComment("Limits on bulk home cleanups (/huskhomesgui bulk), so they do not slow down live database work")
+    @YamlKey("admin.bulk_writes_per_second")
+    private int bulkWritesPerSecond = 5;
+    @YamlKey("admin.bulk_scan_players_per_second")
+    private int bulkScanPlayersPerSecond = 20;
+
     @SuppressWarnings("unused")
     private Settings() {
     }
@@ -132,6 +200,62 @@ public class Settings {
         return textWrapLength;
     }
 
+    public int getProfileCacheSize() {
+        return Math.max(1, profileCacheSize);
+    }
+
+    public boolean doGroupByLocation() {
+        return groupByLocation;
+    }
+
+    public int getItemPrototypeCacheSize() {
+        return Math.max(1, itemPrototypeCacheSize);
+    }
+
+    public boolean doRememberSessions() {
+        return rememberSessions;
+    }
+
+    public int getSessionCacheSize() {
+        return Math.max(1, sessionCacheSize);
+    }
+
+    public int getRecentCount() {
+        return Math.max(0, Math.min(9, recentCount));
+    }
+
+    public boolean doPrewarmOnJoin() {
+        return prewarmOnJoin;
+    }
+
+    public int getPrewarmJoinsPerSecond() {
+        return Math.max(1, prewarmJoinsPerSecond);
+    }
+
+    public int getPrewarmWarpCount() {
+        return Math.max(0, prewarmWarpCount);
+    }
+
+    public int getPrewarmIntervalSeconds() {
+        return Math.max(10, prewarmIntervalSeconds);
+    }
+
+    public boolean doRestrictWarpsByPermission() {
+        return restrictWarpsByPermission;
+    }
+
+    public int getWarpVisibilityCacheSeconds() {
+        return Math.max(1, warpVisibilityCacheSeconds);
+    }
+
+    public int getStoreCompactIntervalMinutes() {
+        return Math.max(1, storeCompactIntervalMinutes);
+    }
+
+    public int getDeletionUndoSeconds() {
+        return Math.max(0, deletionUndoSeconds);
+    }
+
     @NotNull
     public Material getHomesFillerItem() {
         return getMaterial(homesFillerItem);
@@ -257,11 +381,56 @@ public class Settings {
         return getMaterial(editorEditPrivacyButtonIcon);
     }
 
+    @NotNull
+    public Material getEditorEditIconButtonIcon() {
+        return getMaterial(editorEditIconButtonIcon);
+    }
+
     @NotNull
     public Material getEditorDeleteButtonIcon() {
         return getMaterial(editorDeleteButtonIcon);
     }
 
+    public int getMaxConcurrentReads() {
+        return Math.max(1, maxConcurrentReads);
+    }
+
+    public int getMaxConcurrentWrites() {
+        return Math.max(1, maxConcurrentWrites);
+    }
+
+    public double getTickBudgetMillis() {
+        return Math.max(0.1, tickBudgetMillis);
+    }
+
+    public int getStallThresholdMillis() {
+        return stallThresholdMillis;
+    }
+
+    public int getStallLogMaxKilobytes() {
+        return Math.max(16, stallLogMaxKilobytes);
+    }
+
+    public int getBuildAllocationBudget() {
+        return buildAllocationBudget;
+    }
+
+    public int getDrawAllocationBudget() {
+        return drawAllocationBudget;
+    }
+
+    public int getAdminPageWindow() {
+        return Math.max(1, adminPageWindow);
+    }
+
+    public int getBulkWritesPerSecond() {
+        return Math.max(1, bulkWritesPerSecond);
+    }
+
+    public int getBulkScanPlayersPerSecond() {
+        return Math.max(1, bulkScanPlayersPerSecond);
+    }
+
     @NotNull
     private Material getMaterial(@NotNull String id) {
         id = id.replace("minecraft:", "");
@@ -0,0 +1,178 @@
+/*
+ * This file is part of HuskHomesGUI, licensed under the Apache License 2.0.
+ *
+ *  Copyright (c) William278 <will27528@gmail.com>
+ *  Copyright (c) contributors
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+
+package net.william278.huskhomes.gui.diagnostics;
+
+import net.william278.huskhomes.gui.HuskHomesGui;
+import org.jetbrains.annotations.NotNull;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.logging.Level;
+
+/**
+ * Checks the bytes allocated per listed item when menus are built and drawn against configured budgets
+ * <p>
+ * Measurements are grouped by menu, operation and list size class, so growth in per-item cost shows up at the list
+ * sizes it affects. Over-budget measurements are logged (at most once a minute per group), and the full table can
+ * be written to {@code diagnostics/allocation-report.txt} in the data folder. These are allocation rates, not the heap
+ * a menu retains while open: most of what a build allocates is garbage by the time the menu is shown.
+ */
+public class AllocationBudgets {
+
+    private static final String REPORT_FILE = "allocation-report.txt";
+    private static final long WARNING_INTERVAL_MILLIS = 60_000L;
+    private static final int[] SIZE_CLASSES = {0, 1, 10, 45, 180, 720};
+
+    private final HuskHomesGui plugin;
+    private final Map<String, Measurements> measurements = new ConcurrentHashMap<>();
+
+    public AllocationBudgets(@NotNull HuskHomesGui plugin) {
+        this.plugin = plugin;
+    }
+
+    /**
+     * Record the bytes allocated by a menu operation and check them against the budget
+     *
+     * @param menu      The menu type, e.g. {@code "NewListMenu"}
+     * @param operation The operation measured
+     * @param items     The number of items the menu lists
+     * @param bytes     The bytes allocated by the operation
+     */
+    public void record(@NotNull String menu, @NotNull Operation operation, int items, long bytes) {
+        if (bytes < 0) {
+            return;
+        }
+        final long perItem = bytes / Math.max(1, items);
+        final long budget = operation.getBudget(plugin);
+        final String key = menu + " " + operation.getId() + " " + getSizeClass(items);
+        final Measurements group = measurements.computeIfAbsent(key, k -> new Measurements());
+        group.record(perItem, budget);
+
+        if (perItem > budget && group.shouldWarn()) {
+            plugin.getLogger().log(Level.WARNING, String.format(
+                    "%s %s allocated %d bytes per item for %d items, over the budget of %d bytes per item",
+                    menu, operation.getId(), perItem, items, budget));
+        }
+    }
+
+    /**
+     * Whether any measurements have been recorded
+     *
+     * @return {@code true} if there is something to report
+     */
+    public boolean hasMeasurements() {
+        return !measurements.isEmpty();
+    }
+
+    /**
+     * Write the allocation report to the diagnostics folder
+     *
+     * @return the path of the written report
+     * @throws IOException if the report could not be written
+     */
+    @NotNull
+    public Path writeReport() throws IOException {
+        final Path folder = plugin.getDataFolder().toPath().resolve("diagnostics");
+        Files.createDirectories(folder);
+
+        final List<String> lines = new ArrayList<>();
+        lines.add("# HuskHomesGUI allocation report, generated " + Instant.now());
+        lines.add("# Budgets (bytes/item): build=" + Operation.BUILD.getBudget(plugin)
+                  + ", draw=" + Operation.DRAW.getBudget(plugin));
+        lines.add(String.format("%-40s %8s %14s %14s %10s", "menu operation items", "samples",
+                "mean bytes/item", "max bytes/item", "over budget"));
+        new TreeMap<>(measurements).forEach((key, group) -> lines.add(String.format("%-40s %8d %14d %14d %10d",
+                key, group.samples.sum(), group.getMeanPerItem(), group.maxPerItem.get(), group.overBudget.sum())));
+
+        final Path report = folder.resolve(REPORT_FILE);
+        Files.write(report, lines, StandardCharsets.UTF_8);
+        return report;
+    }
+
+    @NotNull
+    private static String getSizeClass(int items) {
+        for (int i = SIZE_CLASSES.length - 1; i >= 0; i--) {
+            if (items >= SIZE_CLASSES[i]) {
+                return i == SIZE_CLASSES.length - 1 ? SIZE_CLASSES[i] + "+"
+                        : SIZE_CLASSES[i] + "-" + (SIZE_CLASSES[i + 1] - 1);
+            }
+        }
+        return "0";
+    }
+
+    /**
+     * Menu operations with an allocation budget
+     */
+    public enum Operation {
+        BUILD,
+        DRAW;
+
+        @NotNull
+        private String getId() {
+            return name().toLowerCase();
+        }
+
+        private long getBudget(@NotNull HuskHomesGui plugin) {
+            return switch (this) {
+                case BUILD -> plugin.getSettings().getBuildAllocationBudget();
+                case DRAW -> plugin.getSettings().getDrawAllocationBudget();
+            };
+        }
+    }
+
+    private static final class Measurements {
+        private final LongAdder samples = new LongAdder();
+        private final LongAdder totalPerItem = new LongAdder();
+        private final LongAdder overBudget = new LongAdder();
+        private final AtomicLong maxPerItem = new AtomicLong();
+        private final AtomicLong lastWarning = new AtomicLong();
+
+        private void record(long perItem, long budget) {
+            samples.increment();
+            totalPerItem.add(perItem);
+            maxPerItem.accumulateAndGet(perItem, Math::max);
+            if (perItem > budget) {
+                overBudget.increment();
+            }
+        }
+
+        private long getMeanPerItem() {
+            final long count = samples.sum();
+            return count > 0 ? totalPerItem.sum() / count : 0;
+        }
+
+        private boolean shouldWarn() {
+            final long now = System.currentTimeMillis();
+            final long last = lastWarning.get();
+            return now - last >= WARNING_INTERVAL_MILLIS && lastWarning.compareAndSet(last, now);
+        }
+    }
+
+}
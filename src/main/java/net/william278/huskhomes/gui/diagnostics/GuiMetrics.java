@@ -0,0 +1,172 @@
+/*
+ * This file is part of HuskHomesGUI, licensed under the Apache License 2.0.
+ *
+ *  Copyright (c) William278 <will27528@gmail.com>
+ *  Copyright (c) contributors
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+
+package net.william278.huskhomes.gui.diagnostics;
+
+import org.jetbrains.annotations.NotNull;
+
+import java.lang.management.ManagementFactory;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Records the latency and allocation of GUI work (menu builds, redraws, renders) as it runs on a live server
+ * <p>
+ * Latencies are kept in a fixed logarithmic histogram per kind of work, so recording is allocation-free and
+ * percentiles can be read at any time. Allocation is measured with the per-thread allocation counter where the JVM
+ * supports it.
+ */
+public class GuiMetrics {
+
+    // Histogram buckets double in width every two buckets, from 1µs up to about a minute and a half
+    private static final int BUCKETS = 54;
+    private static final long FIRST_BUCKET_NANOS = 1_000L;
+
+    private final Map<String, OperationStats> operations = new ConcurrentHashMap<>();
+    private final com.sun.management.ThreadMXBean threadBean;
+    private volatile long startedAt = System.nanoTime();
+
+    public GuiMetrics() {
+        final java.lang.management.ThreadMXBean bean = ManagementFactory.getThreadMXBean();
+        if (bean instanceof com.sun.management.ThreadMXBean sunBean && sunBean.isThreadAllocatedMemorySupported()) {
+            sunBean.setThreadAllocatedMemoryEnabled(true);
+            this.threadBean = sunBean;
+        } else {
+            this.threadBean = null;
+        }
+    }
+
+    /**
+     * Get the number of bytes allocated so far by the current thread
+     *
+     * @return the allocated byte count, or {@code -1} if the JVM does not support measuring it
+     */
+    public long getAllocatedBytes() {
+        return threadBean != null ? threadBean.getCurrentThreadAllocatedBytes() : -1;
+    }
+
+    /**
+     * Record a completed piece of GUI work
+     *
+     * @param kind           The kind of work, e.g. {@code "NewListMenu#show"}
+     * @param nanos          How long the work took
+     * @param allocatedBytes How many bytes the work allocated, or {@code -1} if unknown
+     */
+    public void record(@NotNull String kind, long nanos, long allocatedBytes) {
+        operations.computeIfAbsent(kind, k -> new OperationStats()).record(nanos, allocatedBytes);
+    }
+
+    /**
+     * Clear all recorded metrics
+     */
+    public void reset() {
+        operations.clear();
+        startedAt = System.nanoTime();
+    }
+
+    /**
+     * Summarise the recorded metrics, busiest kind of work first
+     *
+     * @return a summary of each kind of work recorded since the last reset
+     */
+    @NotNull
+    public List<Summary> summarise() {
+        final double seconds = Math.max(1e-9, (System.nanoTime() - startedAt) / 1e9);
+        final List<Summary> summaries = new ArrayList<>();
+        operations.forEach((kind, stats) -> summaries.add(stats.summarise(kind, seconds)));
+        summaries.sort(Comparator.comparingLong(Summary::count).reversed());
+        return summaries;
+    }
+
+    private static int bucketOf(long nanos) {
+        if (nanos <= FIRST_BUCKET_NANOS) {
+            return 0;
+        }
+        // Two buckets per power of two
+        final double halfOctaves = 2 * (Math.log((double) nanos / FIRST_BUCKET_NANOS) / Math.log(2));
+        return Math.min(BUCKETS - 1, (int) Math.ceil(halfOctaves));
+    }
+
+    private static long bucketUpperBound(int bucket) {
+        return (long) (FIRST_BUCKET_NANOS * Math.pow(2, bucket / 2.0));
+    }
+
+    private static final class OperationStats {
+        private final AtomicLongArray histogram = new AtomicLongArray(BUCKETS);
+        private final LongAdder count = new LongAdder();
+        private final LongAdder totalNanos = new LongAdder();
+        private final LongAdder allocatedBytes = new LongAdder();
+
+        private void record(long nanos, long allocated) {
+            histogram.incrementAndGet(bucketOf(nanos));
+            count.increment();
+            totalNanos.add(nanos);
+            if (allocated > 0) {
+                allocatedBytes.add(allocated);
+            }
+        }
+
+        @NotNull
+        private Summary summarise(@NotNull String kind, double seconds) {
+            final long total = count.sum();
+            final long allocated = allocatedBytes.sum();
+            return new Summary(kind, total, total / seconds,
+                    total > 0 ? totalNanos.sum() / total : 0,
+                    percentile(total, 0.50), percentile(total, 0.95), percentile(total, 0.99),
+                    total > 0 ? allocated / total : 0, (long) (allocated / seconds));
+        }
+
+        // The upper bound of the histogram bucket holding the given percentile
+        private long percentile(long total, double fraction) {
+            final long target = (long) Math.ceil(total * fraction);
+            long seen = 0;
+            for (int i = 0; i < BUCKETS; i++) {
+                seen += histogram.get(i);
+                if (seen >= target && seen > 0) {
+                    return bucketUpperBound(i);
+                }
+            }
+            return 0;
+        }
+    }
+
+    /**
+     * Summary of the metrics recorded for one kind of GUI work
+     *
+     * @param kind                The kind of work
+     * @param count               How many times it ran
+     * @param throughput          Runs per second since the last reset
+     * @param meanNanos           Mean latency
+     * @param p50Nanos            Median latency (histogram bucket upper bound)
+     * @param p95Nanos            95th percentile latency (histogram bucket upper bound)
+     * @param p99Nanos            99th percentile latency (histogram bucket upper bound)
+     * @param bytesPerOperation   Mean bytes allocated per run
+     * @param bytesPerSecond      Bytes allocated per second since the last reset
+     */
+    public record Summary(@NotNull String kind, long count, double throughput, long meanNanos,
+                          long p50Nanos, long p95Nanos, long p99Nanos,
+                          long bytesPerOperation, long bytesPerSecond) {
+    }
+
+}
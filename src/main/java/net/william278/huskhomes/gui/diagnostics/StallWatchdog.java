@@ -0,0 +1,217 @@
+/*
+ * This file is part of HuskHomesGUI, licensed under the Apache License 2.0.
+ *
+ *  Copyright (c) William278 <will27528@gmail.com>
+ *  Copyright (c) contributors
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+
+
+package net.william278.huskhomes.gui.diagnostics;
+
+import net.william278.huskhomes.gui.HuskHomesGui;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.logging.Level;
+
+/**
+ * Watches GUI callbacks (click handlers, menu builds and draws) running on server threads, and records a stack
+ * trace of any callback still running past the configured threshold
+ * <p>
+ * Callbacks only mark when they start and finish; a daemon thread samples the stack of any thread whose callback
+ * has overrun, while it is still running, and writes the sample with the menu, action and player to the rolling
+ * {@code diagnostics/stalls.log} once the callback finishes. The watched threads never take a stack trace or touch
+ * the file.
+ */
+public class StallWatchdog {
+
+    private static final String LOG_FILE = "stalls.log";
+    private static final int KEPT_LOGS = 3;
+    private static final long MIN_POLL_MILLIS = 5L;
+
+    private final HuskHomesGui plugin;
+    private final Map<Thread, Section> running = new ConcurrentHashMap<>();
+    private final ConcurrentLinkedQueue<Section> stalled = new ConcurrentLinkedQueue<>();
+    private Thread watchdog;
+
+    public StallWatchdog(@NotNull HuskHomesGui plugin) {
+        this.plugin = plugin;
+    }
+
+    public void start() {
+        watchdog = new Thread(this::watch, "HuskHomesGUI Stall Watchdog");
+        watchdog.setDaemon(true);
+        watchdog.start();
+    }
+
+    public void stop() {
+        if (watchdog != null) {
+            watchdog.interrupt();
+            watchdog = null;
+        }
+        writeStalls();
+    }
+
+    /**
+     * Mark the start of a GUI callback on the current thread
+     *
+     * @param menu   The menu type, e.g. {@code "NewListMenu"}
+     * @param action The callback, e.g. {@code "click"}
+     * @param player The name of the player the callback runs for
+     * @return the section to pass to {@link #exit(Section)}, or {@code null} if the watchdog is disabled
+     */
+    @Nullable
+    public Section enter(@NotNull String menu, @NotNull String action, @NotNull String player) {
+        if (watchdog == null || plugin.getSettings().getStallThresholdMillis() <= 0) {
+            return null;
+        }
+        final Section section = new Section(Thread.currentThread(), menu, action, player, System.nanoTime());
+        final Section outer = running.put(section.thread, section);
+        section.outer = outer;
+        return section;
+    }
+
+    /**
+     * Mark the end of a GUI callback started with {@link #enter(String, String, String)}
+     *
+     * @param section The section returned when the callback started
+     */
+    public void exit(@Nullable Section section) {
+        if (section == null) {
+            return;
+        }
+        synchronized (section) {
+            section.endedAt = System.nanoTime();
+        }
+        if (section.outer != null) {
+            running.put(section.thread, section.outer);
+        } else {
+            running.remove(section.thread, section);
+        }
+        if (section.stack != null) {
+            stalled.add(section);
+        }
+    }
+
+    // Sample overrunning callbacks a few times per threshold and write finished stalls
+    private void watch() {
+        while (!Thread.currentThread().isInterrupted()) {
+            final long thresholdMillis = plugin.getSettings().getStallThresholdMillis();
+            try {
+                TimeUnit.MILLISECONDS.sleep(Math.max(MIN_POLL_MILLIS, thresholdMillis / 4));
+            } catch (InterruptedException e) {
+                return;
+            }
+            if (thresholdMillis <= 0) {
+                continue;
+            }
+            final long now = System.nanoTime();
+            for (Section section : running.values()) {
+                final long elapsed = now - section.startedAt;
+                if (section.stack == null && elapsed >= TimeUnit.MILLISECONDS.toNanos(thresholdMillis)) {
+                    final StackTraceElement[] stack = section.thread.getStackTrace();
+
+                    // The callback may have returned while its thread was sampled; keep the stack only if it has not
+                    synchronized (section) {
+                        if (section.endedAt == 0 && running.get(section.thread) == section) {
+                            section.sampledAfter = elapsed;
+                            section.stack = stack;
+                        }
+                    }
+                }
+            }
+            writeStalls();
+        }
+    }
+
+    private synchronized void writeStalls() {
+        if (stalled.isEmpty()) {
+            return;
+        }
+        final List<String> lines = new ArrayList<>();
+        Section section;
+        while ((section = stalled.poll()) != null) {
+            lines.add(String.format("=== %s %s %s for %s took %.1f ms on %s (threshold %d ms)", Instant.now(),
+                    section.menu, section.action, section.player, (section.endedAt - section.startedAt) / 1e6,
+                    section.thread.getName(), plugin.getSettings().getStallThresholdMillis()));
+            lines.add(String.format("Stack sampled after %.1f ms:", section.sampledAfter / 1e6));
+            for (StackTraceElement element : section.stack) {
+                lines.add("    at " + element);
+            }
+            lines.add("");
+        }
+
+        try {
+            final Path folder = plugin.getDataFolder().toPath().resolve("diagnostics");
+            Files.createDirectories(folder);
+            final Path log = folder.resolve(LOG_FILE);
+            if (Files.exists(log) && Files.size(log) > plugin.getSettings().getStallLogMaxKilobytes() * 1024L) {
+                roll(folder);
+            }
+            Files.write(log, lines, StandardCharsets.UTF_8, StandardOpenOption.CREATE, StandardOpenOption.APPEND);
+        } catch (IOException e) {
+            plugin.getLogger().log(Level.WARNING, "Failed to write GUI stall diagnostics", e);
+        }
+    }
+
+    // Shift stalls.log to stalls.log.1, stalls.log.1 to stalls.log.2 and so on, dropping the oldest
+    private void roll(@NotNull Path folder) throws IOException {
+        Files.deleteIfExists(folder.resolve(LOG_FILE + "." + (KEPT_LOGS - 1)));
+        for (int i = KEPT_LOGS - 2; i >= 0; i--) {
+            final Path from = folder.resolve(i == 0 ? LOG_FILE : LOG_FILE + "." + i);
+            if (Files.exists(from)) {
+                Files.move(from, folder.resolve(LOG_FILE + "." + (i + 1)), StandardCopyOption.REPLACE_EXISTING);
+            }
+        }
+    }
+
+    /**
+     * A GUI callback running on a server thread
+     */
+    public static final class Section {
+        private final Thread thread;
+        private final String menu;
+        private final String action;
+        private final String player;
+        private final long startedAt;
+        private Section outer;
+        private volatile long endedAt;
+        private volatile long sampledAfter;
+        private volatile StackTraceElement[] stack;
+
+        private Section(@NotNull Thread thread, @NotNull String menu, @NotNull String action,
+                        @NotNull String player, long startedAt) {
+            this.thread = thread;
+            this.menu = menu;
+            this.action = action;
+            this.player = player;
+            this.startedAt = startedAt;
+        }
+    }
+
+}
@@ -0,0 +1,158 @@
+/*
+ * This file is part of HuskHomesGUI, licensed under the Apache License 2.0.
+ *
+ *  Copyright (c) William278 <will27528@gmail.com>
+ *  Copyright (c) contributors
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+
+package net.william278.huskhomes.gui.hook;
+
+import net.william278.huskhomes.api.HuskHomesAPI;
+import net.william278.huskhomes.position.Home;
+import net.william278.huskhomes.position.Position;
+import net.william278.huskhomes.position.Warp;
+import net.william278.huskhomes.teleport.TeleportationException;
+import net.william278.huskhomes.user.OnlineUser;
+import net.william278.huskhomes.user.SavedUser;
+import net.william278.huskhomes.user.User;
+import net.william278.huskhomes.util.ValidationException;
+import org.bukkit.entity.Player;
+import org.jetbrains.annotations.NotNull;
+
+import java.util.List;
+import java.util.Optional;
+import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+
+/**
+ * A {@link HuskHomesHook} backed by the HuskHomes API
+ */
+public class HuskHomesApiHook implements HuskHomesHook {
+
+    private final HuskHomesAPI api;
+
+    public HuskHomesApiHook() {
+        this.api = HuskHomesAPI.getInstance();
+    }
+
+    @NotNull
+    @Override
+    public OnlineUser adaptUser(@NotNull Player player) {
+        return api.adaptUser(player);
+    }
+
+    @NotNull
+    @Override
+    public Player getPlayer(@NotNull OnlineUser user) {
+        return api.getPlayer(user);
+    }
+
+    @NotNull
+    @Override
+    public CompletableFuture<Optional<SavedUser>> getUserData(@NotNull String username) {
+        return api.getUserData(username);
+    }
+
+    @Override
+    public int getMaxHomeSlots(@NotNull OnlineUser user) {
+        return api.getMaxHomeSlots(user);
+    }
+
+    @NotNull
+    @Override
+    public CompletableFuture<List<Home>> getUserHomes(@NotNull User user) {
+        return api.getUserHomes(user);
+    }
+
+    @NotNull
+    @Override
+    public CompletableFuture<Optional<Home>> getHome(@NotNull UUID homeId) {
+        return api.getHome(homeId);
+    }
+
+    @NotNull
+    @Override
+    public CompletableFuture<Optional<Home>> getHome(@NotNull User owner, @NotNull String name) {
+        return api.getHome(owner, name);
+    }
+
+    @NotNull
+    @Override
+    public CompletableFuture<List<Warp>> getWarps() {
+        return api.getWarps();
+    }
+
+    @NotNull
+    @Override
+    public CompletableFuture<Optional<Warp>> getWarp(@NotNull String name) {
+        return api.getWarp(name);
+    }
+
+    @Override
+    public void createHome(@NotNull User owner, @NotNull String name, @NotNull Position position) throws ValidationException {
+        api.createHome(owner, name, position);
+    }
+
+    @Override
+    public void deleteHome(@NotNull Home home) {
+        api.deleteHome(home);
+    }
+
+    @Override
+    public void deleteWarp(@NotNull Warp warp) {
+        api.deleteWarp(warp);
+    }
+
+    @Override
+    public void renameHome(@NotNull Home home, @NotNull String name) throws ValidationException {
+        api.renameHome(home, name);
+    }
+
+    @Override
+    public void renameWarp(@NotNull Warp warp, @NotNull String name) throws ValidationException {
+        api.renameWarp(warp, name);
+    }
+
+    @Override
+    public void setHomeDescription(@NotNull Home home, @NotNull String description) throws ValidationException {
+        api.setHomeDescription(home, description);
+    }
+
+    @Override
+    public void setWarpDescription(@NotNull Warp warp, @NotNull String description) throws ValidationException {
+        api.setWarpDescription(warp, description);
+    }
+
+    @Override
+    public void relocateHome(@NotNull Home home, @NotNull Position position) throws ValidationException {
+        api.relocateHome(home, position);
+    }
+
+    @Override
+    public void relocateWarp(@NotNull Warp warp, @NotNull Position position) throws ValidationException {
+        api.relocateWarp(warp, position);
+    }
+
+    @Override
+    public void setHomePrivacy(@NotNull Home home, boolean isPublic) throws ValidationException {
+        api.setHomePrivacy(home, isPublic);
+    }
+
+    @Override
+    public void teleport(@NotNull OnlineUser user, @NotNull Position target) throws TeleportationException {
+        api.teleportBuilder(user).target(target).toTimedTeleport().execute();
+    }
+
+}
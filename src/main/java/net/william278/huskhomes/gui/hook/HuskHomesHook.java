@@ -0,0 +1,101 @@
+/*
+ * This file is part of HuskHomesGUI, licensed under the Apache License 2.0.
+ *
+ *  Copyright (c) William278 <will27528@gmail.com>
+ *  Copyright (c) contributors
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+
+package net.william278.huskhomes.gui.hook;
+
+import net.william278.huskhomes.position.Home;
+import net.william278.huskhomes.position.Position;
+import net.william278.huskhomes.position.Warp;
+import net.william278.huskhomes.teleport.TeleportationException;
+import net.william278.huskhomes.user.OnlineUser;
+import net.william278.huskhomes.user.SavedUser;
+import net.william278.huskhomes.user.User;
+import net.william278.huskhomes.util.ValidationException;
+import org.bukkit.entity.Player;
+import org.jetbrains.annotations.NotNull;
+
+import java.util.List;
+import java.util.Optional;
+import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+
+/**
+ * The part of HuskHomes the GUI reads homes, warps and users from and writes changes through
+ * <p>
+ * On a server this is backed by the {@code HuskHomesAPI} (see {@link HuskHomesApiHook}); keeping the GUI to this
+ * interface lets it be driven without HuskHomes, e.g. by an in-memory implementation under test.
+ */
+public interface HuskHomesHook {
+
+    @NotNull
+    OnlineUser adaptUser(@NotNull Player player);
+
+    @NotNull
+    Player getPlayer(@NotNull OnlineUser user);
+
+    @NotNull
+    CompletableFuture<Optional<SavedUser>> getUserData(@NotNull String username);
+
+    int getMaxHomeSlots(@NotNull OnlineUser user);
+
+    @NotNull
+    CompletableFuture<List<Home>> getUserHomes(@NotNull User user);
+
+    @NotNull
+    CompletableFuture<Optional<Home>> getHome(@NotNull UUID homeId);
+
+    @NotNull
+    CompletableFuture<Optional<Home>> getHome(@NotNull User owner, @NotNull String name);
+
+    @NotNull
+    CompletableFuture<List<Warp>> getWarps();
+
+    @NotNull
+    CompletableFuture<Optional<Warp>> getWarp(@NotNull String name);
+
+    void createHome(@NotNull User owner, @NotNull String name, @NotNull Position position) throws ValidationException;
+
+    void deleteHome(@NotNull Home home);
+
+    void deleteWarp(@NotNull Warp warp);
+
+    void renameHome(@NotNull Home home, @NotNull String name) throws ValidationException;
+
+    void renameWarp(@NotNull Warp warp, @NotNull String name) throws ValidationException;
+
+    void setHomeDescription(@NotNull Home home, @NotNull String description) throws ValidationException;
+
+    void setWarpDescription(@NotNull Warp warp, @NotNull String description) throws ValidationException;
+
+    void relocateHome(@NotNull Home home, @NotNull Position position) throws ValidationException;
+
+    void relocateWarp(@NotNull Warp warp, @NotNull Position position) throws ValidationException;
+
+    void setHomePrivacy(@NotNull Home home, boolean isPublic) throws ValidationException;
+
+    /**
+     * Start a timed teleport of a user to a home or warp
+     *
+     * @param user   The user to teleport
+     * @param target The position to teleport them to
+     * @throws TeleportationException if the teleport could not be started
+     */
+    void teleport(@NotNull OnlineUser user, @NotNull Position target) throws TeleportationException;
+
+}
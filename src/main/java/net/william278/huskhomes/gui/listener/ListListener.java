@@ -22,14 +22,19 @@ package net.william278.huskhomes.gui.listener;
 import net.william278.huskhomes.event.HomeListEvent;
 import net.william278.huskhomes.event.WarpListEvent;
 import net.william278.huskhomes.gui.HuskHomesGui;
+import net.william278.huskhomes.gui.menu.CategoryMenu;
 import net.william278.huskhomes.gui.menu.NewListMenu;
 import net.william278.huskhomes.gui.menu.WarpListMenu;
 import net.william278.huskhomes.position.Home;
 import net.william278.huskhomes.user.OnlineUser;
+import net.william278.huskhomes.user.User;
+import org.bukkit.entity.Player;
 import org.bukkit.event.EventHandler;
 import org.bukkit.event.Listener;
 import org.jetbrains.annotations.NotNull;
 
+import java.util.List;
+
 public class ListListener implements Listener {
     private final HuskHomesGui plugin;
 
@@ -46,17 +51,35 @@ public class ListListener implements Listener {
 
         plugin.getLogger().info("HomeListEvent intercepted, cancelling and showing GUI.");
         event.setCancelled(true);
+        final boolean grouped = plugin.getSettings().doGroupByLocation() && spansMultipleLocations(event.getHomes());
         if (event.getIsPublicHomeList()) {
-            NewListMenu.createPublic(plugin, event.getHomes(), onlineUser).show(onlineUser);
+            if (grouped) {
+                CategoryMenu.createPublic(plugin, event.getHomes(), onlineUser).open(onlineUser);
+            } else {
+                NewListMenu.createPublic(plugin, event.getHomes(), onlineUser).show(onlineUser);
+            }
         } else {
-            NewListMenu.create(plugin, event.getHomes(),
-                    event.getHomes().stream()
-                            .findFirst()
-                            .map(Home::getOwner)
-                            .orElse(onlineUser)).show(onlineUser);
+            final User owner = event.getHomes().stream()
+                    .findFirst()
+                    .map(Home::getOwner)
+                    .orElse(onlineUser);
+            if (grouped) {
+                CategoryMenu.create(plugin, event.getHomes(), owner).open(onlineUser);
+            } else {
+                NewListMenu.create(plugin, event.getHomes(), owner).show(onlineUser);
+            }
         }
     }
 
+    // Whether homes are spread over more than one server or world, making a grouped view worthwhile
+    private static boolean spansMultipleLocations(@NotNull List<Home> homes) {
+        return homes.stream()
+                .map(home -> home.getServer() + "/" + home.getWorld().getName())
+                .distinct()
+                .limit(2)
+                .count() > 1;
+    }
+
     // When the warp list is viewed
     @EventHandler
     public void onWarpListView(@NotNull WarpListEvent event) {
@@ -64,8 +87,12 @@ public class ListListener implements Listener {
             return;
         }
 
+        final Player viewer = plugin.getServer().getPlayer(onlineUser.getUuid());
+        if (viewer == null) {
+            return;
+        }
         event.setCancelled(true);
-        WarpListMenu.create(plugin, event.getWarps()).show(onlineUser);
+        WarpListMenu.create(plugin, event.getWarps(), viewer).show(onlineUser);
     }
 
 }
\ No newline at end of file
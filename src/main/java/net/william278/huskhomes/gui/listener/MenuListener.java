@@ -0,0 +1,62 @@
+/*
+ * This file is part of HuskHomesGUI, licensed under the Apache License 2.0.
+ *
+ *  Copyright (c) William278 <will27528@gmail.com>
+ *  Copyright (c) contributors
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+
+
+package net.william278.huskhomes.gui.listener;
+
+import net.william278.huskhomes.gui.HuskHomesGui;
+import net.william278.huskhomes.gui.diagnostics.StallWatchdog;
+import net.william278.huskhomes.gui.menu.Menu;
+import org.bukkit.event.EventHandler;
+import org.bukkit.event.EventPriority;
+import org.bukkit.event.Listener;
+import org.bukkit.event.inventory.InventoryClickEvent;
+import org.jetbrains.annotations.NotNull;
+
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+
+public class MenuListener implements Listener {
+    private final HuskHomesGui plugin;
+    private final Map<UUID, StallWatchdog.Section> clicks = new ConcurrentHashMap<>();
+
+    public MenuListener(@NotNull HuskHomesGui plugin) {
+        this.plugin = plugin;
+    }
+
+    // Start timing a click in a menu, before the menu's click handler runs
+    @EventHandler(priority = EventPriority.LOWEST)
+    public void onMenuClickStart(@NotNull InventoryClickEvent event) {
+        Menu.getOpen(event.getWhoClicked().getUniqueId()).ifPresent(menu -> {
+            final StallWatchdog.Section section = plugin.getStallWatchdog().enter(
+                    menu.getClass().getSimpleName(), "click " + event.getClick(), event.getWhoClicked().getName());
+            if (section != null) {
+                clicks.put(event.getWhoClicked().getUniqueId(), section);
+            }
+        });
+    }
+
+    // Stop timing the click once every handler has run
+    @EventHandler(priority = EventPriority.MONITOR)
+    public void onMenuClickEnd(@NotNull InventoryClickEvent event) {
+        plugin.getStallWatchdog().exit(clicks.remove(event.getWhoClicked().getUniqueId()));
+    }
+
+}
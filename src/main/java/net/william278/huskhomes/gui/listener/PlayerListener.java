@@ -0,0 +1,59 @@
+/*
+ * This file is part of HuskHomesGUI, licensed under the Apache License 2.0.
+ *
+ *  Copyright (c) William278 <will27528@gmail.com>
+ *  Copyright (c) contributors
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+
+package net.william278.huskhomes.gui.listener;
+
+import net.william278.huskhomes.gui.HuskHomesGui;
+import org.bukkit.event.EventHandler;
+import org.bukkit.event.EventPriority;
+import org.bukkit.event.Listener;
+import org.bukkit.event.player.PlayerCommandSendEvent;
+import org.bukkit.event.player.PlayerJoinEvent;
+import org.bukkit.event.player.PlayerQuitEvent;
+import org.jetbrains.annotations.NotNull;
+
+public class PlayerListener implements Listener {
+    private final HuskHomesGui plugin;
+
+    public PlayerListener(@NotNull HuskHomesGui plugin) {
+        this.plugin = plugin;
+    }
+
+    // Queue the player's GUI data to be pre-warmed, if enabled
+    @EventHandler(priority = EventPriority.MONITOR)
+    public void onPlayerJoin(@NotNull PlayerJoinEvent event) {
+        plugin.getJoinWarmer().enqueue(event.getPlayer());
+    }
+
+    // Cancel any GUI I/O still running on behalf of a player who has left
+    @EventHandler(priority = EventPriority.MONITOR)
+    public void onPlayerQuit(@NotNull PlayerQuitEvent event) {
+        plugin.getGuiExecutor().cancel(event.getPlayer().getUniqueId());
+        plugin.getHomeSlots().invalidate(event.getPlayer().getUniqueId());
+        plugin.getHomeLists().invalidate(event.getPlayer().getUniqueId());
+        plugin.getWarpVisibility().invalidate(event.getPlayer().getUniqueId());
+    }
+
+    // The command list is resent when a player's permissions are recalculated, so their visible warps may differ
+    @EventHandler(priority = EventPriority.MONITOR)
+    public void onCommandsSent(@NotNull PlayerCommandSendEvent event) {
+        plugin.getWarpVisibility().invalidate(event.getPlayer().getUniqueId());
+    }
+
+}
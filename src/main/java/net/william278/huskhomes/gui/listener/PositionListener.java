@@ -0,0 +1,106 @@
+/*
+ * This file is part of HuskHomesGUI, licensed under the Apache License 2.0.
+ *
+ *  Copyright (c) William278 <will27528@gmail.com>
+ *  Copyright (c) contributors
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+
+
+package net.william278.huskhomes.gui.listener;
+
+import net.william278.huskhomes.event.*;
+import net.william278.huskhomes.gui.HuskHomesGui;
+import net.william278.huskhomes.gui.hook.HuskHomesHook;
+import net.william278.huskhomes.gui.task.GuiExecutor;
+import org.bukkit.event.EventHandler;
+import org.bukkit.event.EventPriority;
+import org.bukkit.event.Listener;
+import org.jetbrains.annotations.NotNull;
+
+import java.util.Optional;
+import java.util.concurrent.Callable;
+import java.util.function.Consumer;
+import java.util.logging.Level;
+
+/**
+ * Passes home and warp changes made anywhere (commands, other plugins, other menus) on to open menus
+ */
+public class PositionListener implements Listener {
+    // Creation events fire before the position is saved, so it is looked up with a doubling delay until it appears
+    private static final long FIRST_LOOKUP_DELAY_TICKS = 5L;
+    private static final int MAX_LOOKUPS = 6;
+
+    private final HuskHomesGui plugin;
+
+    public PositionListener(@NotNull HuskHomesGui plugin) {
+        this.plugin = plugin;
+    }
+
+    @EventHandler(priority = EventPriority.MONITOR, ignoreCancelled = true)
+    public void onHomeCreate(@NotNull HomeCreateEvent event) {
+        final HuskHomesHook api = plugin.getHuskHomes();
+        lookUpCreated("home", event.getName(), event.getOwner().getUuid(),
+                () -> api.getHome(event.getOwner(), event.getName()).get(), plugin.getLiveMenus()::homeUpdated, 0);
+    }
+
+    @EventHandler(priority = EventPriority.MONITOR, ignoreCancelled = true)
+    public void onHomeEdit(@NotNull HomeEditEvent event) {
+        plugin.getLiveMenus().homeUpdated(event.getHome());
+    }
+
+    @EventHandler(priority = EventPriority.MONITOR, ignoreCancelled = true)
+    public void onHomeDelete(@NotNull HomeDeleteEvent event) {
+        plugin.getLiveMenus().homeRemoved(event.getHome());
+        plugin.getDataStore().removePosition(event.getHome().getUuid());
+    }
+
+    @EventHandler(priority = EventPriority.MONITOR, ignoreCancelled = true)
+    public void onWarpCreate(@NotNull WarpCreateEvent event) {
+        final HuskHomesHook api = plugin.getHuskHomes();
+        lookUpCreated("warp", event.getName(), plugin,
+                () -> api.getWarp(event.getName()).get(), plugin.getLiveMenus()::warpUpdated, 0);
+    }
+
+    @EventHandler(priority = EventPriority.MONITOR, ignoreCancelled = true)
+    public void onWarpEdit(@NotNull WarpEditEvent event) {
+        plugin.getLiveMenus().warpUpdated(event.getWarp());
+    }
+
+    @EventHandler(priority = EventPriority.MONITOR, ignoreCancelled = true)
+    public void onWarpDelete(@NotNull WarpDeleteEvent event) {
+        plugin.getLiveMenus().warpRemoved(event.getWarp());
+        plugin.getHotWarps().forget(event.getWarp().getUuid());
+        plugin.getDataStore().removePosition(event.getWarp().getUuid());
+    }
+
+    // Look up a newly created position once it has been saved, retrying with a doubling delay; if it never appears,
+    // open menus miss it until they are reopened, so that is logged
+    private <T> void lookUpCreated(@NotNull String kind, @NotNull String name, @NotNull Object scope,
+                                   @NotNull Callable<Optional<T>> lookup, @NotNull Consumer<T> onFound, int attempt) {
+        plugin.getScheduler().runGlobalLater(() -> plugin.getGuiExecutor().supply(GuiExecutor.Operation.READ,
+                scope, "get-created-" + kind, lookup
+        ).whenComplete((position, error) -> {
+            if (position != null && position.isPresent()) {
+                onFound.accept(position.get());
+            } else if (attempt + 1 < MAX_LOOKUPS) {
+                lookUpCreated(kind, name, scope, lookup, onFound, attempt + 1);
+            } else {
+                plugin.getLogger().log(Level.WARNING, "Created " + kind + " " + name + " was not found after "
+                        + MAX_LOOKUPS + " lookups; open menus will not show it", error);
+            }
+        }), FIRST_LOOKUP_DELAY_TICKS << attempt);
+    }
+
+}
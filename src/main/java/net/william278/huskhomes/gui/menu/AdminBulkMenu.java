@@ -0,0 +1,220 @@
+/*
+ * This file is part of HuskHomesGUI, licensed under the Apache License 2.0.
+ *
+ *  Copyright (c) William278 <will27528@gmail.com>
+ *  Copyright (c) contributors
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+
+
+package net.william278.huskhomes.gui.menu;
+
+import de.themoep.inventorygui.GuiElement;
+import de.themoep.inventorygui.InventoryGui;
+import de.themoep.inventorygui.StaticGuiElement;
+import net.wesjd.anvilgui.AnvilGUI;
+import net.william278.huskhomes.gui.HuskHomesGui;
+import net.william278.huskhomes.gui.task.BulkHomeJob;
+import org.bukkit.Material;
+import org.bukkit.entity.Player;
+import org.bukkit.event.inventory.ClickType;
+import org.bukkit.inventory.ItemStack;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+import java.util.List;
+import java.util.Objects;
+import java.util.function.Consumer;
+
+/**
+ * A staff menu for deleting every home matching a filter, e.g. all homes in a removed world or of banned players
+ * <p>
+ * Staff set the filter, preview how many homes match, then start the {@link BulkHomeJob}; the menu redraws as the
+ * job progresses. Only one cleanup runs at a time, and an interrupted one is offered for resuming.
+ */
+public class AdminBulkMenu extends Menu {
+
+    private BulkHomeJob.Filter filter = BulkHomeJob.Filter.ANY;
+
+    private AdminBulkMenu(@NotNull HuskHomesGui plugin) {
+        super(plugin, plugin.getLocales().getLocale("admin_bulk_title"), new String[]{
+                "aaaaaaaaa",
+                "awsogcpra",
+                "aaaaaaaaa"
+        });
+    }
+
+    /**
+     * Open the cleanup menu, picking up the running or interrupted cleanup if there is one
+     *
+     * @param plugin The plugin instance
+     * @param viewer The staff member
+     */
+    public static void open(@NotNull HuskHomesGui plugin, @NotNull Player viewer) {
+        final AdminBulkMenu menu = new AdminBulkMenu(plugin);
+        if (plugin.getBulkJob() == null) {
+            BulkHomeJob.loadCheckpoint(plugin, viewer.getUniqueId()).ifPresent(plugin::setBulkJob);
+        }
+        final BulkHomeJob job = plugin.getBulkJob();
+        if (job != null) {
+            menu.filter = job.getFilter();
+            job.setOnChange(() -> menu.runForViewer(menu::invalidate));
+        }
+        menu.show(menu.api.adaptUser(viewer));
+    }
+
+    @Override
+    protected Consumer<InventoryGui> buildMenu() {
+        return (menu) -> {
+            menu.setFiller(new ItemStack(plugin.getSettings().getHomesFillerItem()));
+            menu.addElement(new StaticGuiElement('a', new ItemStack(plugin.getSettings().getHomeEditorFillerIcon()), " "));
+
+            menu.addElement(createFilterButton('w', Material.GRASS_BLOCK, "admin_bulk_world_button", filter.world(),
+                    "admin_bulk_world_title", value -> filter = filter.withWorld(value)));
+            menu.addElement(createFilterButton('s', Material.COMPASS, "admin_bulk_server_button", filter.server(),
+                    "admin_bulk_server_title", value -> filter = filter.withServer(value)));
+            menu.addElement(createFilterButton('o', Material.PLAYER_HEAD, "admin_bulk_owner_button", filter.owner(),
+                    "admin_bulk_owner_title", value -> filter = filter.withOwner(value)));
+            menu.addElement(createFilterButton('g', Material.CLOCK, "admin_bulk_age_button",
+                    filter.minAgeDays() > 0 ? Integer.toString(filter.minAgeDays()) : null,
+                    "admin_bulk_age_title", value -> {
+                        try {
+                            filter = filter.withMinAgeDays(value == null ? 0 : Integer.parseInt(value.trim()));
+                        } catch (NumberFormatException ignored) {
+                        }
+                    }));
+
+            menu.addElement(memoize('p', viewer -> getDataVersion(), viewer -> createPreviewButton()));
+            menu.addElement(memoize('r', viewer -> getDataVersion(), viewer -> createRunButton()));
+            menu.addElement(memoize('c', viewer -> getDataVersion(), viewer -> createCancelButton()));
+        };
+    }
+
+    // Whether the filter can be changed: not while a cleanup is counting, deleting or waiting to be resumed
+    private boolean isFilterEditable() {
+        final BulkHomeJob job = plugin.getBulkJob();
+        return job == null || switch (job.getState()) {
+            case SCANNING, RUNNING -> false;
+            case READY -> job.getProcessed() == 0;
+            default -> true;
+        };
+    }
+
+    @NotNull
+    private GuiElement createFilterButton(char slot, @NotNull Material icon, @NotNull String label,
+                                          @Nullable String value, @NotNull String promptTitle,
+                                          @NotNull Consumer<String> apply) {
+        return new StaticGuiElement(slot, new ItemStack(icon),
+                click -> {
+                    if (click.getWhoClicked() instanceof Player player && isFilterEditable()) {
+                        this.close(api.adaptUser(player));
+                        new AnvilGUI.Builder()
+                                .mainThreadExecutor(plugin.getScheduler().forPlayer(player))
+                                .title(plugin.getLocales().getLocale(promptTitle))
+                                .itemLeft(new ItemStack(icon))
+                                .text(value != null ? value : " ")
+                                .onClose(playerInAnvil -> this.show(api.adaptUser(player)))
+                                .onClick((anvilSlot, stateSnapshot) -> {
+                                    if (anvilSlot == AnvilGUI.Slot.OUTPUT) {
+                                        apply.accept(stateSnapshot.getText());
+                                        plugin.setBulkJob(null);
+                                        return List.of(AnvilGUI.ResponseAction.close());
+                                    }
+                                    return List.of();
+                                })
+                                .plugin(plugin)
+                                .open(player);
+                    }
+                    return true;
+                },
+                plugin.getLocales().getLocale(label, value != null ? value
+                        : plugin.getLocales().getLocale("admin_bulk_any")),
+                plugin.getLocales().getLocale("admin_bulk_edit_hint"));
+    }
+
+    @NotNull
+    private GuiElement createPreviewButton() {
+        final BulkHomeJob job = plugin.getBulkJob();
+        final String status = job == null ? plugin.getLocales().getLocale("admin_bulk_preview_hint")
+                : switch (job.getState()) {
+            case SCANNING -> plugin.getLocales().getLocale("admin_bulk_scanning",
+                    Integer.toString(job.getScannedPlayerCount()), Integer.toString(job.getPlayerCount()),
+                    Integer.toString(job.getMatchCount()));
+            case RUNNING, DONE -> plugin.getLocales().getLocale("admin_bulk_progress",
+                    Integer.toString(job.getProcessed()), Integer.toString(job.getMatchCount()),
+                    getProgressBar(job.getProgress()));
+            case CANCELLED -> plugin.getLocales().getLocale("admin_bulk_preview_hint");
+            default -> plugin.getLocales().getLocale("admin_bulk_preview_result",
+                    Integer.toString(job.getMatchCount()));
+        };
+        return new StaticGuiElement('p', new ItemStack(Material.SPYGLASS),
+                click -> {
+                    if (click.getWhoClicked() instanceof Player player && isFilterEditable()) {
+                        final BulkHomeJob preview = BulkHomeJob.create(plugin, filter, player.getUniqueId());
+                        preview.setOnChange(() -> runForViewer(this::invalidate));
+                        plugin.setBulkJob(preview);
+                        preview.preview();
+                        invalidate();
+                    }
+                    return true;
+                },
+                plugin.getLocales().getLocale("admin_bulk_preview_button"),
+                status);
+    }
+
+    @NotNull
+    private GuiElement createRunButton() {
+        final BulkHomeJob job = plugin.getBulkJob();
+        if (job == null || job.getState() != BulkHomeJob.State.READY || job.getMatchCount() == 0) {
+            return new StaticGuiElement('r', new ItemStack(plugin.getSettings().getHomeEditorFillerIcon()), " ");
+        }
+        final boolean resuming = job.getProcessed() > 0;
+        return new StaticGuiElement('r', new ItemStack(plugin.getSettings().getEditorDeleteButtonIcon()),
+                click -> {
+                    if (click.getType() == ClickType.RIGHT || click.getType() == ClickType.DROP) {
+                        job.run();
+                        invalidate();
+                    }
+                    return true;
+                },
+                plugin.getLocales().getLocale(resuming ? "admin_bulk_resume_button" : "admin_bulk_run_button"),
+                plugin.getLocales().getLocale("admin_bulk_run_hint",
+                        Integer.toString(job.getMatchCount() - job.getProcessed())));
+    }
+
+    @NotNull
+    private GuiElement createCancelButton() {
+        final BulkHomeJob job = plugin.getBulkJob();
+        if (job == null || job.getState() == BulkHomeJob.State.DONE || job.getState() == BulkHomeJob.State.CANCELLED) {
+            return new StaticGuiElement('c', new ItemStack(plugin.getSettings().getHomeEditorFillerIcon()), " ");
+        }
+        return new StaticGuiElement('c', new ItemStack(Material.RED_WOOL),
+                click -> {
+                    if (Objects.equals(plugin.getBulkJob(), job)) {
+                        job.cancel();
+                        plugin.setBulkJob(null);
+                        invalidate();
+                    }
+                    return true;
+                },
+                plugin.getLocales().getLocale("admin_bulk_cancel_button"));
+    }
+
+    @NotNull
+    private static String getProgressBar(float progress) {
+        final int filled = Math.round(progress * 20);
+        return "&a" + "|".repeat(filled) + "&7" + "|".repeat(20 - filled);
+    }
+
+}
@@ -0,0 +1,233 @@
+/*
+ * This file is part of HuskHomesGUI, licensed under the Apache License 2.0.
+ *
+ *  Copyright (c) William278 <will27528@gmail.com>
+ *  Copyright (c) contributors
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+
+package net.william278.huskhomes.gui.menu;
+
+import de.themoep.inventorygui.GuiElement;
+import de.themoep.inventorygui.GuiElementGroup;
+import de.themoep.inventorygui.InventoryGui;
+import de.themoep.inventorygui.StaticGuiElement;
+import net.william278.huskhomes.gui.HuskHomesGui;
+import net.william278.huskhomes.gui.hook.HuskHomesHook;
+import net.william278.huskhomes.gui.model.PositionView;
+import net.william278.huskhomes.gui.task.GuiExecutor;
+import net.william278.huskhomes.gui.task.TickBudgetScheduler;
+import net.william278.huskhomes.position.Home;
+import net.william278.huskhomes.user.SavedUser;
+import net.william278.huskhomes.user.User;
+import org.bukkit.Material;
+import org.bukkit.entity.Player;
+import org.bukkit.inventory.ItemStack;
+import org.jetbrains.annotations.NotNull;
+
+import java.util.*;
+import java.util.concurrent.CompletableFuture;
+import java.util.function.Consumer;
+
+import static net.william278.huskhomes.gui.config.Locales.textWrap;
+
+/**
+ * A staff menu for browsing the homes of any player, online or offline
+ * <p>
+ * HuskHomes offers no paged home query, so this is a full-list browser: the owner's whole home list is fetched once
+ * and reduced to a sorted index of compact {@link PositionView}s, which grows with the owner's home count. Buttons are
+ * only built for the pages viewed, and only a window of recently viewed pages is kept; with a window of one page, the
+ * next page is not pre-rendered. The full {@link Home} is looked up when one is edited.
+ */
+public class AdminHomesMenu extends Menu {
+
+    private final User owner;
+    private final List<PositionView> index;
+    private final int pageSize;
+    private final int windowSize;
+    private final Map<Integer, List<GuiElement>> pageWindow;
+    private final Set<Integer> renderingPages = new HashSet<>();
+    private final GuiElementGroup homeGroup = new GuiElementGroup('h');
+    private InventoryGui menu;
+    private int page = 0;
+
+    private AdminHomesMenu(@NotNull HuskHomesGui plugin, @NotNull User owner, @NotNull List<PositionView> index) {
+        super(plugin, plugin.getLocales().getLocale("admin_homes_menu_title", owner.getUsername()),
+                getMenuLayout(plugin));
+        this.owner = owner;
+        this.index = index;
+        this.pageSize = (plugin.getSettings().getMenuSize() - 1) * 9;
+        this.windowSize = plugin.getSettings().getAdminPageWindow();
+        this.pageWindow = new LinkedHashMap<>(windowSize + 1, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<Integer, List<GuiElement>> eldest) {
+                return size() > windowSize;
+            }
+        };
+    }
+
+    /**
+     * Look up a player by name and open the admin home browser for them once their home index has been fetched
+     *
+     * @param plugin   The plugin instance
+     * @param viewer   The staff member viewing the menu
+     * @param username The name of the player whose homes to browse
+     * @return A future completing with {@code false} if no player by that name has played on the network
+     */
+    @NotNull
+    public static CompletableFuture<Boolean> open(@NotNull HuskHomesGui plugin, @NotNull Player viewer,
+                                                  @NotNull String username) {
+        final HuskHomesHook api = plugin.getHuskHomes();
+        return plugin.getGuiExecutor().supply(GuiExecutor.Operation.READ, viewer.getUniqueId(), "admin-home-index", () -> {
+            final Optional<User> owner = api.getUserData(username).get().map(SavedUser::getUser);
+            if (owner.isEmpty()) {
+                return false;
+            }
+
+            final List<PositionView> index = PositionView.of(plugin.getDeletions()
+                    .filter(api.getUserHomes(owner.get()).get()));
+            index.sort(Comparator.comparing(PositionView::name, String.CASE_INSENSITIVE_ORDER));
+            plugin.getScheduler().runForPlayer(viewer, () -> {
+                if (viewer.isOnline()) {
+                    new AdminHomesMenu(plugin, owner.get(), index).show(api.adaptUser(viewer));
+                }
+            });
+            return true;
+        });
+    }
+
+    @NotNull
+    private static String[] getMenuLayout(@NotNull HuskHomesGui plugin) {
+        final int rows = plugin.getSettings().getMenuSize();
+        final String[] layout = new String[rows];
+        for (int i = 0; i < rows - 1; i++) {
+            layout[i] = "hhhhhhhhh";
+        }
+        layout[rows - 1] = "<   i   >";
+        return layout;
+    }
+
+    @Override
+    protected int getItemCount() {
+        return Math.min(pageSize, index.size() - page * pageSize);
+    }
+
+    @Override
+    protected Consumer<InventoryGui> buildMenu() {
+        return (menu) -> {
+            this.menu = menu;
+            menu.setFiller(new ItemStack(plugin.getSettings().getHomesFillerItem()));
+            menu.addElement(homeGroup);
+            populatePage();
+
+            menu.addElement(new StaticGuiElement('<', new ItemStack(plugin.getSettings().getPaginatePreviousPage()),
+                    click -> {
+                        if (page > 0) {
+                            page--;
+                            populatePage();
+                            redraw();
+                        }
+                        return true;
+                    },
+                    plugin.getLocales().getLocale("admin_homes_previous_page")));
+            menu.addElement(new StaticGuiElement('>', new ItemStack(plugin.getSettings().getPaginateNextPage()),
+                    click -> {
+                        if (page < getPageCount() - 1) {
+                            page++;
+                            populatePage();
+                            redraw();
+                        }
+                        return true;
+                    },
+                    plugin.getLocales().getLocale("admin_homes_next_page")));
+        };
+    }
+
+    // Fill the home group with the current page, and pre-render the next one if the page window has room for it
+    private void populatePage() {
+        homeGroup.clearElements();
+        pageWindow.computeIfAbsent(page, this::renderPage).forEach(homeGroup::addElement);
+        if (windowSize > 1) {
+            prerenderPage(page + 1);
+        }
+        if (menu != null) {
+            menu.addElement(new StaticGuiElement('i', new ItemStack(Material.OAK_SIGN),
+                    plugin.getLocales().getLocale("admin_homes_page_info",
+                            Integer.toString(page + 1), Integer.toString(getPageCount()),
+                            Integer.toString(index.size()))));
+        }
+    }
+
+    @NotNull
+    private List<GuiElement> renderPage(int pageNumber) {
+        return index.subList(pageNumber * pageSize, Math.min(index.size(), (pageNumber + 1) * pageSize)).stream()
+                .map(this::createHomeButton)
+                .toList();
+    }
+
+    // Render a page into the page window with spare tick time, if not already present or queued
+    private void prerenderPage(int pageNumber) {
+        if (pageNumber >= getPageCount() || pageWindow.containsKey(pageNumber) || !renderingPages.add(pageNumber)) {
+            return;
+        }
+        final boolean scheduled = runForViewer(() -> plugin.getTickScheduler().submit(
+                TickBudgetScheduler.Priority.PRERENDER, "AdminHomesMenu#renderPage", () -> {
+                    renderingPages.remove(pageNumber);
+                    if (!pageWindow.containsKey(pageNumber)) {
+                        pageWindow.put(pageNumber, renderPage(pageNumber));
+                    }
+                }));
+        if (!scheduled) {
+            renderingPages.remove(pageNumber);
+        }
+    }
+
+    @NotNull
+    private GuiElement createHomeButton(@NotNull PositionView home) {
+        return new StaticGuiElement('h',
+                new ItemStack(home.getIcon().orElse(plugin.getSettings().getDefaultIcon())),
+                click -> {
+                    if (click.getWhoClicked() instanceof Player player) {
+                        editHome(player, home);
+                    }
+                    return true;
+                },
+                plugin.getLocales().getLocale("item_name", home.name()),
+                plugin.getLocales().getLocale(
+                        "item_description",
+                        !home.description().isBlank() ?
+                                textWrap(plugin, home.description()) :
+                                plugin.getLocales().getLocale("item_description_blank")
+                ),
+                plugin.getLocales().getLocale("item_info_server", home.server()),
+                plugin.getLocales().getLocale("item_info_world", home.world()),
+                plugin.getLocales().getLocale("item_info_coordinates",
+                        Integer.toString((int) Math.floor(home.x())),
+                        Integer.toString((int) Math.floor(home.y())),
+                        Integer.toString((int) Math.floor(home.z()))),
+                plugin.getLocales().getLocale("admin_homes_edit_hint")
+        );
+    }
+
+    // Look up the full home to edit, then open the editor on the viewer's thread if this menu is still open
+    private void editHome(@NotNull Player player, @NotNull PositionView view) {
+        read(player, "get-home", () -> api.getHome(view.id()).get(),
+                home -> home.ifPresent(found -> EditMenu.home(plugin, found, this, 0).show(api.adaptUser(player))));
+    }
+
+    private int getPageCount() {
+        return Math.max(1, (index.size() + pageSize - 1) / pageSize);
+    }
+
+}
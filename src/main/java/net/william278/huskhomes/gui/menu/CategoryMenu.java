@@ -0,0 +1,161 @@
+/*
+ * This file is part of HuskHomesGUI, licensed under the Apache License 2.0.
+ *
+ *  Copyright (c) William278 <will27528@gmail.com>
+ *  Copyright (c) contributors
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+
+package net.william278.huskhomes.gui.menu;
+
+import de.themoep.inventorygui.GuiElementGroup;
+import de.themoep.inventorygui.GuiPageElement;
+import de.themoep.inventorygui.InventoryGui;
+import de.themoep.inventorygui.StaticGuiElement;
+import net.william278.huskhomes.gui.HuskHomesGui;
+import net.william278.huskhomes.gui.cache.HomeCategoryIndex;
+import net.william278.huskhomes.gui.model.PositionView;
+import net.william278.huskhomes.position.Home;
+import net.william278.huskhomes.user.OnlineUser;
+import net.william278.huskhomes.user.User;
+import org.bukkit.Material;
+import org.bukkit.entity.Player;
+import org.bukkit.inventory.ItemStack;
+import org.jetbrains.annotations.NotNull;
+
+import java.util.List;
+import java.util.function.Consumer;
+
+/**
+ * The first level of grouped home browsing: one button per server and world, each opening a list of the homes
+ * in that category
+ */
+public class CategoryMenu extends Menu {
+
+    private final HomeCategoryIndex index;
+    private final User owner;
+    private final Type type;
+
+    private CategoryMenu(@NotNull HuskHomesGui plugin, @NotNull HomeCategoryIndex index, @NotNull User owner,
+                         @NotNull String title, @NotNull Type type) {
+        super(plugin, title, getMenuLayout(plugin));
+        this.index = index;
+        this.owner = owner;
+        this.type = type;
+    }
+
+    @NotNull
+    public static CategoryMenu create(@NotNull HuskHomesGui plugin, @NotNull List<Home> homes, @NotNull User owner) {
+        return new CategoryMenu(plugin, HomeCategoryIndex.of(PositionView.of(plugin.getDeletions().filter(homes))), owner,
+                plugin.getLocales().getLocale("homes_menu_title", owner.getUsername()), Type.HOME);
+    }
+
+    @NotNull
+    public static CategoryMenu createPublic(@NotNull HuskHomesGui plugin, @NotNull List<Home> homes, @NotNull User viewer) {
+        return new CategoryMenu(plugin, HomeCategoryIndex.of(PositionView.of(plugin.getDeletions().filter(homes))), viewer,
+                plugin.getLocales().getLocale("public_homes_menu_title"), Type.PUBLIC_HOME);
+    }
+
+    @NotNull
+    private static String[] getMenuLayout(@NotNull HuskHomesGui plugin) {
+        final int rows = plugin.getSettings().getMenuSize();
+        final String[] layout = new String[rows];
+        for (int i = 0; i < rows - 1; i++) {
+            layout[i] = "ccccccccc";
+        }
+        layout[rows - 1] = "<       >";
+        return layout;
+    }
+
+    @Override
+    protected int getItemCount() {
+        return index.getCategories().size();
+    }
+
+    @Override
+    protected Consumer<InventoryGui> buildMenu() {
+        return (menu) -> {
+            menu.setFiller(new ItemStack(type.getFillerMaterial(plugin.getSettings())));
+
+            final GuiElementGroup categoryGroup = new GuiElementGroup('c');
+            index.getCategories().forEach(category -> categoryGroup.addElement(createCategoryButton(category)));
+            menu.addElement(categoryGroup);
+
+            menu.addElement(new GuiPageElement('<', new ItemStack(plugin.getSettings().getPaginatePreviousPage()), GuiPageElement.PageAction.PREVIOUS, plugin.getLocales().getLocale("pagination_previous_page")));
+            menu.addElement(new GuiPageElement('>', new ItemStack(plugin.getSettings().getPaginateNextPage()), GuiPageElement.PageAction.NEXT, plugin.getLocales().getLocale("pagination_next_page")));
+        };
+    }
+
+    @NotNull
+    private StaticGuiElement createCategoryButton(@NotNull HomeCategoryIndex.Category category) {
+        return new StaticGuiElement('c',
+                new ItemStack(getCategoryIcon(category)),
+                click -> {
+                    if (click.getWhoClicked() instanceof Player player) {
+                        showCategory(api.adaptUser(player), category);
+                    }
+                    return true;
+                },
+                plugin.getLocales().getLocale("category_name", category.world()),
+                plugin.getLocales().getLocale("item_info_server", category.server()),
+                plugin.getLocales().getLocale("category_home_count", Integer.toString(index.getHomeCount(category)))
+        );
+    }
+
+    /**
+     * Open this menu for a user, going straight to the category they were last browsing if it still exists
+     *
+     * @param user The user to open the menu for
+     */
+    public void open(@NotNull OnlineUser user) {
+        final String filter = plugin.getSessions().get(user.getUuid(), getSessionKey()).filter();
+        index.getCategories().stream().filter(category -> category.getId().equals(filter)).findFirst()
+                .ifPresentOrElse(category -> showCategory(user, category), () -> show(user));
+    }
+
+    @NotNull
+    private String getSessionKey() {
+        return type == Type.PUBLIC_HOME ? "public_homes" : "homes";
+    }
+
+    /**
+     * Show the list of homes in one category, or this menu if the category is now empty
+     *
+     * @param user     The user to show the list to
+     * @param category The category to show
+     */
+    public void showCategory(@NotNull OnlineUser user, @NotNull HomeCategoryIndex.Category category) {
+        final List<PositionView> homes = index.getHomes(category);
+        if (homes.isEmpty()) {
+            this.show(user);
+            return;
+        }
+        NewListMenu.createInCategory(plugin, homes, owner, type, this, category).show(user);
+    }
+
+    @NotNull
+    public HomeCategoryIndex getIndex() {
+        return index;
+    }
+
+    @NotNull
+    private static Material getCategoryIcon(@NotNull HomeCategoryIndex.Category category) {
+        return switch (category.environment()) {
+            case "NETHER" -> Material.NETHERRACK;
+            case "THE_END" -> Material.END_STONE;
+            default -> Material.GRASS_BLOCK;
+        };
+    }
+
+}
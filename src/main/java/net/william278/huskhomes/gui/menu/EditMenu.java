@@ -23,6 +23,7 @@ import de.themoep.inventorygui.InventoryGui;
 import de.themoep.inventorygui.StaticGuiElement;
 import net.wesjd.anvilgui.AnvilGUI;
 import net.william278.huskhomes.gui.HuskHomesGui;
+import net.william278.huskhomes.gui.model.PositionView;
 import net.william278.huskhomes.position.Home;
 import net.william278.huskhomes.position.SavedPosition;
 import net.william278.huskhomes.position.Warp;
@@ -52,7 +53,7 @@ public class EditMenu<T extends SavedPosition> extends Menu {
     private static String[] getEditMenuLayout() {
         return new String[]{
                 "aa     ab",
-                "aundip ra",
+                "aundipcra",
                 "aa     aa"
         };
     }
@@ -102,8 +103,7 @@ public class EditMenu<T extends SavedPosition> extends Menu {
                         if (click.getWhoClicked() instanceof Player player) {
                             final OnlineUser user = api.adaptUser(player);
                             this.close(user);
-                            parentMenu.show(user);
-                            parentMenu.setPageNumber(user, pageNumber);
+                            parentMenu.show(user, pageNumber);
                             this.destroy();
                         }
                         return true;
@@ -140,10 +140,11 @@ public class EditMenu<T extends SavedPosition> extends Menu {
                         if (click.getWhoClicked() instanceof Player player) {
                             this.close(api.adaptUser(player));
                             new AnvilGUI.Builder()
+                                    .mainThreadExecutor(plugin.getScheduler().forPlayer(player))
                                     .title(plugin.getLocales().getLocale("edit_name_title", position.getName()))
                                     .itemLeft(new ItemStack(positionIcon))
                                     .text(position.getName())
-                                    .onClose(playerInAnvil -> this.show(api.adaptUser(player)))
+                                    .onClose(playerInAnvil -> this.reopen(api.adaptUser(player)))
                                     .onClick((slot, stateSnapshot) -> {
                                         if (slot == AnvilGUI.Slot.OUTPUT) {
                                             if (stateSnapshot.getText() != null) {
@@ -159,11 +160,10 @@ public class EditMenu<T extends SavedPosition> extends Menu {
                                             }
                                             position.getMeta().setName(stateSnapshot.getText());
 
-                                            // Refresh menu title
-                                            this.close(api.adaptUser(player));
-                                            this.destroy();
-                                            new EditMenu<>(plugin, position, parentMenu, pageNumber).show(api.adaptUser(player));
-                                            return List.of();
+                                            // Retitle this menu; closing the anvil reopens it without a rebuild
+                                            this.setTitle(plugin.getLocales().getLocale(position instanceof Home
+                                                    ? "home_editor_title" : "warp_editor_title", position.getName()));
+                                            return List.of(AnvilGUI.ResponseAction.close());
                                         }
                                         return List.of();
                                     })
@@ -181,6 +181,7 @@ public class EditMenu<T extends SavedPosition> extends Menu {
                         if (click.getWhoClicked() instanceof Player player) {
                             this.close(api.adaptUser(player));
                             new AnvilGUI.Builder()
+                                    .mainThreadExecutor(plugin.getScheduler().forPlayer(player))
                                     .title(plugin.getLocales().getLocale("edit_description_title", position.getName()))
                                     .itemLeft(new ItemStack(positionIcon))
                                     // Description or default_description
@@ -241,6 +242,18 @@ public class EditMenu<T extends SavedPosition> extends Menu {
                                 : plugin.getLocales().getLocale("edit_privacy_message_private")))));
             }
 
+            // Choosing an icon
+            menu.addElement(new StaticGuiElement('c',
+                    new ItemStack(plugin.getSettings().getEditorEditIconButtonIcon()),
+                    (click) -> {
+                        if (click.getWhoClicked() instanceof Player player) {
+                            this.close(api.adaptUser(player));
+                            IconPickerMenu.create(plugin, position, this).show(api.adaptUser(player));
+                        }
+                        return true;
+                    },
+                    plugin.getLocales().getLocale("edit_icon_button")));
+
             // Deleting
             menu.addElement(new StaticGuiElement('r',
                     new ItemStack(plugin.getSettings().getEditorDeleteButtonIcon()),
@@ -249,23 +262,15 @@ public class EditMenu<T extends SavedPosition> extends Menu {
                             case RIGHT, DROP -> { // DROP: geyser player throw item
                                 if (click.getWhoClicked() instanceof Player player) {
                                     this.close(api.adaptUser(player));
-                                    try {
-                                        if (position instanceof Home home) {
-                                            api.deleteHome(home);
-                                            home.getMeta().setName(plugin.getLocales().getLocale("item_deleted_name", home.getName())); // update listMenu
-                                        } else if (position instanceof Warp warp) {
-                                            api.deleteWarp(warp);
-                                            warp.getMeta().setName(plugin.getLocales().getLocale("item_deleted_name", warp.getName())); // update listMenu
-                                        }
-                                    } catch (ValidationException e) {
-                                        return true;
-                                    }
+
+                                    // Tombstone the position; the deletion is committed once it can no longer be undone
+                                    plugin.getDeletions().delete(PositionView.of(position), position);
+                                    position.getMeta().setName(plugin.getLocales().getLocale("item_deleted_name", position.getName())); // update listMenu
 
                                     // Return to the parent list menu
                                     final OnlineUser user = api.adaptUser(player);
                                     this.close(user);
-                                    parentMenu.show(user);
-                                    parentMenu.setPageNumber(user, pageNumber);
+                                    parentMenu.show(user, pageNumber);
                                     this.destroy();
                                 }
                             }
@@ -276,8 +281,8 @@ public class EditMenu<T extends SavedPosition> extends Menu {
                     plugin.getLocales().getLocale("delete_button_describe")
             ));
 
-            // Controls display
-            menu.addElement(new StaticGuiElement('i',
+            // Controls display, redrawn when the position is renamed
+            menu.addElement(memoize('i', viewer -> position.getName(), viewer -> new StaticGuiElement('i',
                     new ItemStack(Material.OAK_SIGN),
                     // Name
                     plugin.getLocales().getLocale("item_info_name", position.getName()),
@@ -293,7 +298,7 @@ public class EditMenu<T extends SavedPosition> extends Menu {
                     // Owner name (Only for homes)
                     position instanceof Home home ? plugin.getLocales()
                             .getLocale("home_owner_name", home.getOwner().getUsername()) : ""
-            ));
+            )));
         };
     }
 
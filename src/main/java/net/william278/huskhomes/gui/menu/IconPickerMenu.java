@@ -0,0 +1,233 @@
+/*
+ * This file is part of HuskHomesGUI, licensed under the Apache License 2.0.
+ *
+ *  Copyright (c) William278 <will27528@gmail.com>
+ *  Copyright (c) contributors
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+
+
+package net.william278.huskhomes.gui.menu;
+
+import de.themoep.inventorygui.GuiElement;
+import de.themoep.inventorygui.GuiElementGroup;
+import de.themoep.inventorygui.InventoryGui;
+import de.themoep.inventorygui.StaticGuiElement;
+import net.wesjd.anvilgui.AnvilGUI;
+import net.william278.huskhomes.gui.HuskHomesGui;
+import net.william278.huskhomes.gui.cache.MaterialCatalog;
+import net.william278.huskhomes.position.SavedPosition;
+import net.william278.huskhomes.user.OnlineUser;
+import org.bukkit.Material;
+import org.bukkit.entity.Player;
+import org.bukkit.inventory.ItemStack;
+import org.bukkit.inventory.meta.ItemMeta;
+import org.jetbrains.annotations.NotNull;
+
+import java.util.List;
+import java.util.function.Consumer;
+
+/**
+ * A menu for choosing the icon of a saved position from the {@link MaterialCatalog}
+ * <p>
+ * Only the entries on the page being viewed are wrapped in elements; changing page, category or search query just
+ * redraws the icon slots.
+ */
+public class IconPickerMenu extends Menu {
+
+    private static final char[] CATEGORY_SLOTS = {'1', '2', '3', '4', '5'};
+
+    private final SavedPosition position;
+    private final Menu parentMenu;
+    private final MaterialCatalog catalog;
+    private MaterialCatalog.Category category = MaterialCatalog.Category.ALL;
+    private String query = "";
+    private List<MaterialCatalog.Entry> results;
+    private int page;
+
+    private IconPickerMenu(@NotNull HuskHomesGui plugin, @NotNull SavedPosition position, @NotNull Menu parentMenu) {
+        super(plugin, plugin.getLocales().getLocale("icon_picker_title", position.getName()), getMenuLayout(plugin));
+        this.position = position;
+        this.parentMenu = parentMenu;
+        this.catalog = plugin.getMaterialCatalog();
+        this.results = catalog.find(category, query);
+    }
+
+    @NotNull
+    public static IconPickerMenu create(@NotNull HuskHomesGui plugin, @NotNull SavedPosition position,
+                                        @NotNull Menu parentMenu) {
+        return new IconPickerMenu(plugin, position, parentMenu);
+    }
+
+    @NotNull
+    private static String[] getMenuLayout(@NotNull HuskHomesGui plugin) {
+        final int rows = Math.max(2, plugin.getSettings().getMenuSize());
+        final String[] layout = new String[rows];
+        for (int i = 0; i < rows - 1; i++) {
+            layout[i] = "xxxxxxxxx";
+        }
+        layout[rows - 1] = "<s" + new String(CATEGORY_SLOTS) + "b>";
+        return layout;
+    }
+
+    @Override
+    protected int getItemCount() {
+        return Math.min(results.size(), getPageSize());
+    }
+
+    @Override
+    protected Consumer<InventoryGui> buildMenu() {
+        return (menu) -> {
+            menu.setFiller(new ItemStack(plugin.getSettings().getHomeEditorFillerIcon()));
+
+            // One element per icon slot, each showing the result at its position on the current page
+            final GuiElementGroup iconGroup = new GuiElementGroup('x');
+            for (int i = 0; i < getPageSize(); i++) {
+                final int position = i;
+                iconGroup.addElement(memoize(List.of('x', position), 'x', viewer -> List.of(category, query, page),
+                        viewer -> createIconButton(page * getPageSize() + position)));
+            }
+            menu.addElement(iconGroup);
+
+            for (int i = 0; i < CATEGORY_SLOTS.length; i++) {
+                final MaterialCatalog.Category tab = MaterialCatalog.Category.values()[i];
+                menu.addElement(memoize(CATEGORY_SLOTS[i], viewer -> category, viewer -> createCategoryButton(tab)));
+            }
+
+            menu.addElement(memoize('<', viewer -> List.of(category, query, page), viewer -> page > 0
+                    ? new StaticGuiElement('<', new ItemStack(plugin.getSettings().getPaginatePreviousPage()),
+                    click -> {
+                        page--;
+                        redraw();
+                        return true;
+                    },
+                    plugin.getLocales().getLocale("icon_picker_previous_page",
+                            Integer.toString(page + 1), Integer.toString(getPageCount())))
+                    : createFillerButton('<')));
+            menu.addElement(memoize('>', viewer -> List.of(category, query, page), viewer -> page < getPageCount() - 1
+                    ? new StaticGuiElement('>', new ItemStack(plugin.getSettings().getPaginateNextPage()),
+                    click -> {
+                        page++;
+                        redraw();
+                        return true;
+                    },
+                    plugin.getLocales().getLocale("icon_picker_next_page",
+                            Integer.toString(page + 1), Integer.toString(getPageCount())))
+                    : createFillerButton('>')));
+
+            // Search (Via anvil)
+            menu.addElement(new StaticGuiElement('s',
+                    new ItemStack(Material.SPYGLASS),
+                    click -> {
+                        if (click.getWhoClicked() instanceof Player player) {
+                            this.close(api.adaptUser(player));
+                            new AnvilGUI.Builder()
+                                    .mainThreadExecutor(plugin.getScheduler().forPlayer(player))
+                                    .title(plugin.getLocales().getLocale("icon_picker_search_title"))
+                                    .itemLeft(new ItemStack(Material.SPYGLASS))
+                                    .text(query.isEmpty() ? " " : query)
+                                    .onClose(playerInAnvil -> this.show(api.adaptUser(player)))
+                                    .onClick((slot, stateSnapshot) -> {
+                                        if (slot == AnvilGUI.Slot.OUTPUT) {
+                                            query = stateSnapshot.getText() != null ? stateSnapshot.getText().trim() : "";
+                                            updateResults();
+                                            return List.of(AnvilGUI.ResponseAction.close());
+                                        }
+                                        return List.of();
+                                    })
+                                    .plugin(plugin)
+                                    .open(player);
+                        }
+                        return true;
+                    },
+                    plugin.getLocales().getLocale("icon_picker_search_button"),
+                    query.isEmpty() ? plugin.getLocales().getLocale("icon_picker_search_hint")
+                            : plugin.getLocales().getLocale("icon_picker_search_current", query)));
+
+            // Return to the editor
+            menu.addElement(new StaticGuiElement('b',
+                    new ItemStack(plugin.getSettings().getEditorBackButtonIcon()),
+                    click -> {
+                        if (click.getWhoClicked() instanceof Player player) {
+                            returnToParent(api.adaptUser(player));
+                        }
+                        return true;
+                    },
+                    plugin.getLocales().getLocale("back_button")));
+        };
+    }
+
+    @NotNull
+    private GuiElement createIconButton(int index) {
+        if (index >= results.size()) {
+            return createFillerButton('x');
+        }
+        final MaterialCatalog.Entry entry = results.get(index);
+        return new StaticGuiElement('x', entry.item(),
+                click -> {
+                    if (click.getWhoClicked() instanceof Player player) {
+                        setPositionMaterial(position, entry.material());
+                        returnToParent(api.adaptUser(player));
+                    }
+                    return true;
+                },
+                plugin.getLocales().getLocale("item_name", entry.displayName()),
+                plugin.getLocales().getLocale("icon_picker_choose_hint"));
+    }
+
+    @NotNull
+    private GuiElement createCategoryButton(@NotNull MaterialCatalog.Category tab) {
+        final ItemStack icon = new ItemStack(tab.getIcon());
+        if (tab == category) {
+            final ItemMeta meta = icon.getItemMeta();
+            meta.setEnchantmentGlintOverride(true);
+            icon.setItemMeta(meta);
+        }
+        return new StaticGuiElement(CATEGORY_SLOTS[tab.ordinal()], icon,
+                click -> {
+                    if (tab != category) {
+                        category = tab;
+                        updateResults();
+                        redraw();
+                    }
+                    return true;
+                },
+                plugin.getLocales().getLocale("icon_picker_category_" + tab.getId()));
+    }
+
+    @NotNull
+    private GuiElement createFillerButton(char slot) {
+        return new StaticGuiElement(slot, new ItemStack(plugin.getSettings().getHomeEditorFillerIcon()), " ");
+    }
+
+    private void updateResults() {
+        results = catalog.find(category, query);
+        page = 0;
+    }
+
+    private void returnToParent(@NotNull OnlineUser user) {
+        this.close(user);
+        parentMenu.show(user);
+        this.destroy();
+    }
+
+    private int getPageSize() {
+        return (Math.max(2, plugin.getSettings().getMenuSize()) - 1) * 9;
+    }
+
+    private int getPageCount() {
+        return Math.max(1, (results.size() + getPageSize() - 1) / getPageSize());
+    }
+
+}
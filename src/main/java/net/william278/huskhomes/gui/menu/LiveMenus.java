@@ -0,0 +1,176 @@
+/*
+ * This file is part of HuskHomesGUI, licensed under the Apache License 2.0.
+ *
+ *  Copyright (c) William278 <will27528@gmail.com>
+ *  Copyright (c) contributors
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+
+
+package net.william278.huskhomes.gui.menu;
+
+import net.william278.huskhomes.gui.HuskHomesGui;
+import net.william278.huskhomes.gui.model.PositionView;
+import net.william278.huskhomes.position.Home;
+import net.william278.huskhomes.position.SavedPosition;
+import net.william278.huskhomes.position.Warp;
+import org.jetbrains.annotations.NotNull;
+
+import java.util.Map;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Fans HuskHomes home and warp changes out to the open menus that show them
+ * <p>
+ * Home lists subscribe under their owner and public home lists under a shared set, so a change to one player's
+ * home only reaches menus listing that player's (or public) homes. Warp lists all show the same warps and share
+ * one set. Subscribers apply each change to their own slots, without rebuilding.
+ */
+public class LiveMenus {
+
+    private final HuskHomesGui plugin;
+    private final Map<UUID, Set<Subscriber>> homesByOwner = new ConcurrentHashMap<>();
+    private final Map<Subscriber, UUID> ownerBySubscriber = new ConcurrentHashMap<>();
+    private final Set<Subscriber> publicHomes = ConcurrentHashMap.newKeySet();
+    private final Set<Subscriber> warps = ConcurrentHashMap.newKeySet();
+
+    public LiveMenus(@NotNull HuskHomesGui plugin) {
+        this.plugin = plugin;
+    }
+
+    public void subscribeHomes(@NotNull UUID ownerId, @NotNull Subscriber subscriber) {
+        homesByOwner.computeIfAbsent(ownerId, uuid -> ConcurrentHashMap.newKeySet()).add(subscriber);
+        ownerBySubscriber.put(subscriber, ownerId);
+    }
+
+    public void subscribePublicHomes(@NotNull Subscriber subscriber) {
+        publicHomes.add(subscriber);
+    }
+
+    public void subscribeWarps(@NotNull Subscriber subscriber) {
+        warps.add(subscriber);
+    }
+
+    public void unsubscribe(@NotNull Subscriber subscriber) {
+        final UUID ownerId = ownerBySubscriber.remove(subscriber);
+        if (ownerId != null) {
+            homesByOwner.computeIfPresent(ownerId, (uuid, subscribers) -> {
+                subscribers.remove(subscriber);
+                return subscribers.isEmpty() ? null : subscribers;
+            });
+        }
+        publicHomes.remove(subscriber);
+        warps.remove(subscriber);
+    }
+
+    /**
+     * Apply a created or edited home to the menus showing it
+     *
+     * @param home The home in its new state
+     */
+    public void homeUpdated(@NotNull Home home) {
+        plugin.getHomeLists().invalidate(home.getOwner().getUuid());
+        if (plugin.getDeletions().isDeleted(home.getUuid())) {
+            return;
+        }
+        final PositionView view = PositionView.of(home);
+        homesByOwner.getOrDefault(home.getOwner().getUuid(), Set.of())
+                .forEach(subscriber -> subscriber.onPositionUpdated(view, home));
+        if (home.isPublic()) {
+            publicHomes.forEach(subscriber -> subscriber.onPositionUpdated(view, home));
+        } else {
+            publicHomes.forEach(subscriber -> subscriber.onPositionRemoved(home.getUuid()));
+        }
+    }
+
+    /**
+     * Remove a deleted home from the menus showing it
+     *
+     * @param home The deleted home
+     */
+    public void homeRemoved(@NotNull Home home) {
+        plugin.getHomeLists().invalidate(home.getOwner().getUuid());
+        homesByOwner.getOrDefault(home.getOwner().getUuid(), Set.of())
+                .forEach(subscriber -> subscriber.onPositionRemoved(home.getUuid()));
+        publicHomes.forEach(subscriber -> subscriber.onPositionRemoved(home.getUuid()));
+    }
+
+    /**
+     * Hide a tombstoned home or warp from the menus showing it, before its deletion is committed
+     *
+     * @param view The view of the tombstoned position; homes are told apart from warps by their owner
+     */
+    public void positionDeleted(@NotNull PositionView view) {
+        if (view.ownerId() == null) {
+            plugin.getWarpCategories().remove(view.id());
+            warps.forEach(subscriber -> subscriber.onPositionRemoved(view.id()));
+            return;
+        }
+        plugin.getHomeLists().invalidate(view.ownerId());
+        homesByOwner.getOrDefault(view.ownerId(), Set.of())
+                .forEach(subscriber -> subscriber.onPositionRemoved(view.id()));
+        publicHomes.forEach(subscriber -> subscriber.onPositionRemoved(view.id()));
+    }
+
+    /**
+     * Apply a created or edited warp to the warp category index and open warp lists
+     *
+     * @param warp The warp in its new state
+     */
+    public void warpUpdated(@NotNull Warp warp) {
+        if (plugin.getDeletions().isDeleted(warp.getUuid())) {
+            return;
+        }
+        plugin.getWarpCategories().update(warp);
+        final PositionView view = PositionView.of(warp);
+        warps.forEach(subscriber -> subscriber.onPositionUpdated(view, warp));
+    }
+
+    /**
+     * Remove a deleted warp from the warp category index and open warp lists
+     *
+     * @param warp The deleted warp
+     */
+    public void warpRemoved(@NotNull Warp warp) {
+        plugin.getWarpCategories().remove(warp.getUuid());
+        warps.forEach(subscriber -> subscriber.onPositionRemoved(warp.getUuid()));
+    }
+
+    /**
+     * An open menu that applies changes to the positions it shows
+     * <p>
+     * Changes may be delivered on any thread; subscribers move them to their viewer's thread.
+     */
+    public interface Subscriber {
+
+        /**
+         * Called when a position this menu may show is created or edited
+         *
+         * @param view     The position's new view
+         * @param position The position
+         */
+        void onPositionUpdated(@NotNull PositionView view, @NotNull SavedPosition position);
+
+        /**
+         * Called when a position this menu may show is deleted
+         *
+         * @param positionId The id of the deleted position
+         */
+        void onPositionRemoved(@NotNull UUID positionId);
+
+    }
+
+}
@@ -19,36 +19,69 @@
 
 package net.william278.huskhomes.gui.menu;
 
+import de.themoep.inventorygui.DynamicGuiElement;
+import de.themoep.inventorygui.GuiElement;
 import de.themoep.inventorygui.InventoryGui;
-import net.william278.huskhomes.api.HuskHomesAPI;
+import de.themoep.inventorygui.StaticGuiElement;
 import net.william278.huskhomes.gui.HuskHomesGui;
 import net.william278.huskhomes.gui.config.Settings;
+import net.william278.huskhomes.gui.diagnostics.AllocationBudgets;
+import net.william278.huskhomes.gui.diagnostics.GuiMetrics;
+import net.william278.huskhomes.gui.diagnostics.StallWatchdog;
+import net.william278.huskhomes.gui.hook.HuskHomesHook;
+import net.william278.huskhomes.gui.task.GuiExecutor;
+import net.william278.huskhomes.gui.task.TickBudgetScheduler;
 import net.william278.huskhomes.position.Home;
 import net.william278.huskhomes.position.SavedPosition;
 import net.william278.huskhomes.position.Warp;
 import net.william278.huskhomes.user.OnlineUser;
 import org.bukkit.Material;
 import org.bukkit.Sound;
+import org.bukkit.entity.HumanEntity;
 import org.bukkit.entity.Player;
+import org.bukkit.inventory.Inventory;
+import org.bukkit.inventory.ItemStack;
 import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
 
-import java.util.Map;
-import java.util.Optional;
+import java.util.*;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
 import java.util.function.Consumer;
+import java.util.function.Function;
+import java.util.logging.Level;
 
 public abstract class Menu {
-    private static final String TAG_KEY = "huskhomesgui:icon";
+    // The number of dependency states a memoized element keeps built
+    private static final int MEMOIZED_STATES = 4;
+    // The slots of the row of recently visited positions at the top of list menus
+    protected static final String RECENT_ROW = "ABCDEFGHI";
+    // The menu each player currently has open
+    private static final Map<UUID, Menu> OPEN_MENUS = new ConcurrentHashMap<>();
 
     protected final HuskHomesGui plugin;
-    protected final HuskHomesAPI api;
+    protected final HuskHomesHook api;
     private final InventoryGui gui;
+    // The players this menu is open for, and those with a redraw queued
+    private final Set<UUID> viewers = ConcurrentHashMap.newKeySet();
+    private final Set<UUID> queuedRedraws = ConcurrentHashMap.newKeySet();
+    private final AtomicLong dataVersion = new AtomicLong();
+    private final Map<UUID, Long> positionVersions = new ConcurrentHashMap<>();
+    // Memoized elements of the current build by what they show, refreshed before a changed-slot draw
+    private final Map<Object, DynamicGuiElement> memoized = new ConcurrentHashMap<>();
 
     protected Menu(@NotNull HuskHomesGui plugin, @NotNull String title, @NotNull String[] layout) {
         this.plugin = plugin;
-        this.api = HuskHomesAPI.getInstance();
+        this.api = plugin.getHuskHomes();
         this.gui = new InventoryGui(plugin, title, layout);
         this.gui.setCloseAction(close -> {
+            plugin.getGuiExecutor().cancel(this);
+            viewers.remove(close.getPlayer().getUniqueId());
+            OPEN_MENUS.remove(close.getPlayer().getUniqueId(), this);
             if (close.getPlayer() instanceof Player p) {
+                onClosed(p);
                 playSound(p, plugin.getSettings().getMenuCloseSound());
             }
             return true;
@@ -57,11 +90,385 @@ public abstract class Menu {
 
     protected abstract Consumer<InventoryGui> buildMenu();
 
+    /**
+     * Get the menu a player currently has open
+     *
+     * @param playerId The player's UUID
+     * @return the open menu, if the player has one open
+     */
+    @NotNull
+    public static Optional<Menu> getOpen(@NotNull UUID playerId) {
+        return Optional.ofNullable(OPEN_MENUS.get(playerId));
+    }
+
+    /**
+     * Restore the view a player last left this menu at, before the menu is built for them
+     *
+     * @param player The player the menu is being shown to
+     * @return the page to open the menu at, or {@code -1} to keep the current page
+     */
+    protected int restoreSession(@NotNull Player player) {
+        return -1;
+    }
+
+    /**
+     * Called when a player closes this menu, e.g. to remember where they left it
+     *
+     * @param player The player who closed the menu
+     */
+    protected void onClosed(@NotNull Player player) {
+    }
+
+    /**
+     * Build and show this menu to a user; the build is queued on the {@link TickBudgetScheduler}
+     *
+     * @param user The user to show the menu to
+     */
     public final void show(@NotNull OnlineUser user) {
-        buildMenu().accept(gui);
+        show(user, -1);
+    }
+
+    /**
+     * Build and show this menu to a user at a page; the build is queued on the {@link TickBudgetScheduler}
+     *
+     * @param user       The user to show the menu to
+     * @param pageNumber The page to open the menu at, or {@code -1} to restore the player's last view
+     */
+    public final void show(@NotNull OnlineUser user, int pageNumber) {
+        final Player player = api.getPlayer(user);
+        plugin.getTickScheduler().submit(TickBudgetScheduler.Priority.BUILD, getClass().getSimpleName() + "#show", player, () -> {
+            if (!player.isOnline()) {
+                return;
+            }
+            final StallWatchdog.Section section = plugin.getStallWatchdog()
+                    .enter(getClass().getSimpleName(), "build", player.getName());
+            try {
+                final int page = pageNumber >= 0 ? pageNumber : restoreSession(player);
+                final GuiMetrics metrics = plugin.getMetrics();
+                final long beforeBuild = metrics.getAllocatedBytes();
+                memoized.clear();
+                positionVersions.clear();
+                buildMenu().accept(gui);
+                final long afterBuild = metrics.getAllocatedBytes();
+                gui.show(player);
+                viewers.add(player.getUniqueId());
+                OPEN_MENUS.put(player.getUniqueId(), this);
+                recordAllocation(AllocationBudgets.Operation.BUILD, beforeBuild, afterBuild);
+                recordAllocation(AllocationBudgets.Operation.DRAW, afterBuild, metrics.getAllocatedBytes());
+                if (page >= 0) {
+                    gui.setPageNumber(player, page);
+                }
+                playSound(player, plugin.getSettings().getMenuOpenSound());
+            } finally {
+                plugin.getStallWatchdog().exit(section);
+            }
+        });
+    }
+
+    /**
+     * Show this menu again to a user as it was last built, e.g. when they come back from an anvil prompt
+     * <p>
+     * Unlike {@link #show(OnlineUser)} the menu is not rebuilt: only memoized elements whose dependencies changed are
+     * recomputed, and the title set with {@link #setTitle(String)} is kept.
+     *
+     * @param user The user to show the menu to
+     */
+    public final void reopen(@NotNull OnlineUser user) {
         final Player player = api.getPlayer(user);
-        gui.show(player);
-        playSound(player, plugin.getSettings().getMenuOpenSound());
+        plugin.getTickScheduler().submit(TickBudgetScheduler.Priority.BUILD, getClass().getSimpleName() + "#reopen", player, () -> {
+            if (!player.isOnline()) {
+                return;
+            }
+            final StallWatchdog.Section section = plugin.getStallWatchdog()
+                    .enter(getClass().getSimpleName(), "draw", player.getName());
+            try {
+                final long before = plugin.getMetrics().getAllocatedBytes();
+                memoized.values().forEach(element -> element.update(player));
+                gui.show(player);
+                viewers.add(player.getUniqueId());
+                OPEN_MENUS.put(player.getUniqueId(), this);
+                recordAllocation(AllocationBudgets.Operation.DRAW, before, plugin.getMetrics().getAllocatedBytes());
+                playSound(player, plugin.getSettings().getMenuOpenSound());
+            } finally {
+                plugin.getStallWatchdog().exit(section);
+            }
+        });
+    }
+
+    /**
+     * Queue a redraw of this menu for its current viewers on the {@link TickBudgetScheduler}
+     * <p>
+     * Redraws are coalesced: however many are requested within a tick, the menu is drawn once per viewer at the
+     * start of the next tick, and only elements whose dependencies changed are recomputed (see {@link #memoize}).
+     * Only slots whose item changed are sent to the viewer.
+     */
+    protected final void redraw() {
+        for (UUID viewerId : viewers) {
+            final Player viewer = plugin.getServer().getPlayer(viewerId);
+            if (viewer == null || !queuedRedraws.add(viewerId)) {
+                continue;
+            }
+            plugin.getTickScheduler().submitNextTick(TickBudgetScheduler.Priority.IN_VIEW, getClass().getSimpleName() + "#draw", viewer, () -> {
+                queuedRedraws.remove(viewerId);
+                final StallWatchdog.Section section = plugin.getStallWatchdog()
+                        .enter(getClass().getSimpleName(), "draw", viewer.getName());
+                try {
+                    final long before = plugin.getMetrics().getAllocatedBytes();
+                    drawChanges(viewer);
+                    recordAllocation(AllocationBudgets.Operation.DRAW, before, plugin.getMetrics().getAllocatedBytes());
+                } finally {
+                    plugin.getStallWatchdog().exit(section);
+                }
+            });
+        }
+    }
+
+    // Set only the slots whose item differs from what the viewer's open inventory holds, so that only changed
+    // slots are sent to the client; falls back to a full draw if the viewer no longer has this menu open
+    private void drawChanges(@NotNull Player viewer) {
+        if (InventoryGui.getOpen(viewer) != gui) {
+            gui.draw(viewer);
+            return;
+        }
+        memoized.values().forEach(element -> element.update(viewer));
+        final Inventory top = viewer.getOpenInventory().getTopInventory();
+        final GuiElement filler = gui.getFiller();
+        for (int slot = 0; slot < top.getSize(); slot++) {
+            final GuiElement element = gui.getElement(slot);
+            ItemStack item = element != null ? element.getItem(viewer, slot) : null;
+            if (isEmpty(item) && filler != null) {
+                item = filler.getItem(viewer, slot);
+            }
+            final ItemStack current = top.getItem(slot);
+            if (isEmpty(item) ? !isEmpty(current) : !item.equals(current)) {
+                top.setItem(slot, item);
+            }
+        }
+    }
+
+    private static boolean isEmpty(@Nullable ItemStack item) {
+        return item == null || item.getType().isAir();
+    }
+
+    /**
+     * Change the title of this menu, updating it in place for players who have it open
+     *
+     * @param title The new title
+     */
+    protected final void setTitle(@NotNull String title) {
+        gui.setTitle(title);
+        for (UUID viewerId : viewers) {
+            final Player viewer = plugin.getServer().getPlayer(viewerId);
+            if (viewer != null) {
+                plugin.getScheduler().runForPlayer(viewer, () -> {
+                    if (InventoryGui.getOpen(viewer) == gui) {
+                        viewer.getOpenInventory().setTitle(title);
+                    }
+                });
+            }
+        }
+    }
+
+    /**
+     * Run a lookup for this menu on the {@link GuiExecutor}, scoped to the menu so that it is cancelled if the menu is
+     * closed first; the result is handed over on the viewer's thread, and dropped if they no longer have it open
+     *
+     * @param viewer   The player the lookup is for
+     * @param name     A short name for the lookup, shown in thread dumps and logged on failure
+     * @param lookup   The lookup to run; may block
+     * @param onResult Called with the result on the viewer's thread
+     * @param <T>      The type of the result
+     */
+    protected final <T> void read(@NotNull Player viewer, @NotNull String name, @NotNull Callable<T> lookup,
+                                  @NotNull Consumer<T> onResult) {
+        plugin.getGuiExecutor().supply(GuiExecutor.Operation.READ, this, name, lookup)
+                .thenAccept(result -> plugin.getScheduler().runForPlayer(viewer, () -> {
+                    if (viewers.contains(viewer.getUniqueId())) {
+                        onResult.accept(result);
+                    }
+                })).exceptionally(e -> {
+                    if (!(e instanceof CancellationException || e.getCause() instanceof CancellationException)) {
+                        plugin.getLogger().log(Level.WARNING, "Failed to run " + name + " for "
+                                + getClass().getSimpleName(), e);
+                    }
+                    return null;
+                });
+    }
+
+    /**
+     * Run a task on the thread owning this menu's viewer, e.g. to apply the result of {@link GuiExecutor} work; the
+     * task is dropped if the menu is no longer open
+     *
+     * @param task The task to run
+     * @return {@code false} if the task was dropped
+     */
+    protected final boolean runForViewer(@NotNull Runnable task) {
+        final Optional<Player> viewer = viewers.stream().map(plugin.getServer()::getPlayer)
+                .filter(Objects::nonNull).findFirst();
+        viewer.ifPresent(player -> plugin.getScheduler().runForPlayer(player, task));
+        return viewer.isPresent();
+    }
+
+    /**
+     * Whether any player has this menu open
+     *
+     * @return {@code true} if the menu has viewers
+     */
+    protected final boolean hasViewers() {
+        return !viewers.isEmpty();
+    }
+
+    /**
+     * Mark the data shown by this menu as changed and queue a redraw, so memoized elements depending on
+     * {@link #getDataVersion()} are recomputed
+     */
+    protected final void invalidate() {
+        dataVersion.incrementAndGet();
+        redraw();
+    }
+
+    /**
+     * Get the version of the data shown by this menu, incremented by {@link #invalidate()}
+     *
+     * @return the data version
+     */
+    protected final long getDataVersion() {
+        return dataVersion.get();
+    }
+
+    /**
+     * Mark a single listed position as changed and queue a redraw, so only memoized elements depending on
+     * {@link #getDataVersion(UUID)} for that position are recomputed
+     *
+     * @param positionId The id of the changed position
+     */
+    protected final void invalidate(@NotNull UUID positionId) {
+        positionVersions.merge(positionId, 1L, Long::sum);
+        redraw();
+    }
+
+    /**
+     * Get the version of a listed position, incremented by {@link #invalidate(UUID)}
+     *
+     * @param positionId The id of the position
+     * @return the position's data version
+     */
+    protected final long getDataVersion(@NotNull UUID positionId) {
+        return positionVersions.getOrDefault(positionId, 0L);
+    }
+
+    /**
+     * Create a dynamic element for a slot that is only recomputed when its dependencies change, replacing any element
+     * memoized for the same slot
+     *
+     * @param slot         The slot character of the element
+     * @param dependencies Get the values the element depends on for a viewer
+     * @param query        Build the element for a viewer
+     * @return the memoized element
+     * @see #memoize(Object, char, Function, Function)
+     */
+    @NotNull
+    protected final DynamicGuiElement memoize(char slot, @NotNull Function<HumanEntity, Object> dependencies,
+                                              @NotNull Function<HumanEntity, GuiElement> query) {
+        return memoize(slot, slot, dependencies, query);
+    }
+
+    /**
+     * Create a dynamic element that is only recomputed when its dependencies change
+     * <p>
+     * The last few elements built are kept by dependency value, so toggling back to a previous state (e.g. a menu
+     * mode) reuses the element built for it. Dependencies must have value equality, e.g. enums or {@link List#of}.
+     * Elements are registered by key, e.g. the id of the position a button shows, so memoizing a new element for a
+     * key replaces the old one; use {@link #forget(Object)} when an element is dropped without a replacement.
+     *
+     * @param key          What the element shows, unique within this menu
+     * @param slot         The slot character of the element
+     * @param dependencies Get the values the element depends on for a viewer
+     * @param query        Build the element for a viewer
+     * @return the memoized element
+     */
+    @NotNull
+    protected final DynamicGuiElement memoize(@NotNull Object key, char slot,
+                                              @NotNull Function<HumanEntity, Object> dependencies,
+                                              @NotNull Function<HumanEntity, GuiElement> query) {
+        final Map<Object, GuiElement> built = Collections.synchronizedMap(new LinkedHashMap<>(MEMOIZED_STATES + 1, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<Object, GuiElement> eldest) {
+                return size() > MEMOIZED_STATES;
+            }
+        });
+        final DynamicGuiElement element = new DynamicGuiElement(slot, viewer -> built.computeIfAbsent(
+                dependencies.apply(viewer), state -> query.apply(viewer)));
+        memoized.put(key, element);
+        return element;
+    }
+
+    /**
+     * Stop refreshing the element memoized for a key, e.g. when the position it shows is removed from the menu
+     *
+     * @param key The key the element was memoized with
+     */
+    protected final void forget(@NotNull Object key) {
+        memoized.remove(key);
+        if (key instanceof UUID positionId) {
+            positionVersions.remove(positionId);
+        }
+    }
+
+    /**
+     * Get the number of rows at the top of list menus given to recently visited positions
+     *
+     * @param plugin The plugin instance
+     * @return {@code 1} if the recent row is enabled and the menu is tall enough for it, otherwise {@code 0}
+     */
+    protected static int getRecentRows(@NotNull HuskHomesGui plugin) {
+        return plugin.getSettings().getRecentCount() > 0 && plugin.getSettings().getMenuSize() >= 3 ? 1 : 0;
+    }
+
+    /**
+     * Add the row of positions the viewer last teleported to from this kind of menu, if enabled
+     * <p>
+     * Only positions this menu lists are shown, using the same buttons as the list itself.
+     *
+     * @param menu    The menu being built
+     * @param key     The menu key the positions were recorded under, e.g. {@code "homes"}
+     * @param buttons Get the button for a listed position by id, or {@code null} if it is not listed
+     */
+    protected final void addRecentRow(@NotNull InventoryGui menu, @NotNull String key,
+                                      @NotNull Function<UUID, GuiElement> buttons) {
+        if (getRecentRows(plugin) == 0) {
+            return;
+        }
+        for (int i = 0; i < RECENT_ROW.length(); i++) {
+            final char slot = RECENT_ROW.charAt(i);
+            final int position = i;
+            menu.addElement(memoize(slot, viewer -> List.of(viewer.getUniqueId(), getDataVersion()), viewer -> {
+                final List<GuiElement> recent = new ArrayList<>();
+                for (UUID id : plugin.getRecentPositions().get(viewer.getUniqueId(), key)) {
+                    final GuiElement button = buttons.apply(id);
+                    if (button != null) {
+                        recent.add(button);
+                    }
+                }
+                return position < recent.size() ? recent.get(position)
+                        : new StaticGuiElement(slot, new ItemStack(Material.AIR));
+            }));
+        }
+    }
+
+    /**
+     * Get the number of positions this menu lists, used to normalise allocation measurements
+     *
+     * @return the number of listed items
+     */
+    protected int getItemCount() {
+        return 1;
+    }
+
+    private void recordAllocation(@NotNull AllocationBudgets.Operation operation, long before, long after) {
+        if (before >= 0) {
+            plugin.getAllocationBudgets().record(getClass().getSimpleName(), operation, getItemCount(), after - before);
+        }
     }
 
     public final void setPageNumber(@NotNull OnlineUser user, int pageNumber) {
@@ -72,6 +479,11 @@ public abstract class Menu {
         return gui.getPageNumber(api.getPlayer(user));
     }
 
+    @NotNull
+    protected final String getTitle() {
+        return gui.getTitle();
+    }
+
     public final void close(@NotNull OnlineUser user) {
         gui.close(api.getPlayer(user));
     }
@@ -87,29 +499,21 @@ public abstract class Menu {
      * @return The material to use if found
      */
     protected Optional<Material> getPositionMaterial(@NotNull SavedPosition position) {
-        final Map<String, String> tags = position.getMeta().getTags();
-        if (tags.containsKey(TAG_KEY)) {
-            return Optional.ofNullable(Material.matchMaterial(tags.get(TAG_KEY)));
-        }
-        return Optional.empty();
+        return plugin.getDataStore().getIcon(position);
     }
 
     /**
-     * Set the material to use for a {@link SavedPosition} and update it in the database
+     * Set the material to use for a {@link SavedPosition} in the local GUI data store, and update open menus
      *
      * @param position The saved position
      * @param material The {@link Material} to use
      */
     protected void setPositionMaterial(@NotNull SavedPosition position, @NotNull Material material) {
-        final Map<String, String> tags = position.getMeta().getTags();
-        tags.put(TAG_KEY, material.getKey().toString());
-
+        plugin.getDataStore().setIcon(position.getUuid(), material);
         if (position instanceof Warp warp) {
-            api.setWarpMetaTags(warp, tags);
+            plugin.getLiveMenus().warpUpdated(warp);
         } else if (position instanceof Home home) {
-            api.setHomeMetaTags(home, tags);
-        } else {
-            throw new IllegalArgumentException("Position must be a warp or home");
+            plugin.getLiveMenus().homeUpdated(home);
         }
     }
 
@@ -22,71 +22,176 @@ package net.william278.huskhomes.gui.menu;
 import de.themoep.inventorygui.*;
 import net.wesjd.anvilgui.AnvilGUI;
 import net.william278.huskhomes.gui.HuskHomesGui;
+import net.william278.huskhomes.gui.cache.HomeCategoryIndex;
+import net.william278.huskhomes.gui.cache.HomeMapIndex;
+import net.william278.huskhomes.gui.cache.MenuSessions;
+import net.william278.huskhomes.gui.model.PositionView;
+import net.william278.huskhomes.gui.task.GuiExecutor;
 import net.william278.huskhomes.position.Home;
+import net.william278.huskhomes.position.SavedPosition;
 import net.william278.huskhomes.teleport.TeleportationException;
 import net.william278.huskhomes.user.OnlineUser;
 import net.william278.huskhomes.user.User;
 import net.william278.huskhomes.util.ValidationException;
 import org.bukkit.Material;
 import org.bukkit.enchantments.Enchantment;
+import org.bukkit.entity.HumanEntity;
 import org.bukkit.entity.Player;
+import org.bukkit.event.inventory.ClickType;
 import org.bukkit.inventory.ItemFlag;
 import org.bukkit.inventory.ItemStack;
 import org.bukkit.inventory.meta.ItemMeta;
 import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
 
+import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.Collections;
 import java.util.Comparator;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Optional;
+import java.util.UUID;
 import java.util.function.Consumer;
 import java.util.logging.Level;
 
-import static net.william278.huskhomes.gui.config.Locales.textWrap;
+public class NewListMenu extends Menu implements LiveMenus.Subscriber {
 
-public class NewListMenu extends Menu {
-
-    private final List<Home> homes;
+    private final List<PositionView> homes;
     private final User owner;
+    private final Type type;
     private MenuMode mode = MenuMode.TELEPORT;
-    private final SortMode sortMode;
+    private SortMode sortMode;
+    private final GuiElementGroup homeGroup = new GuiElementGroup('h');
+    private final Map<UUID, GuiElement> homeButtons = new HashMap<>();
     private final boolean addHomeButton;
-
-    private NewListMenu(@NotNull HuskHomesGui plugin, @NotNull List<Home> homes, @NotNull User owner, @NotNull String title, boolean addHomeButton, @NotNull SortMode sortMode) {
+    @Nullable
+    private CategoryMenu parent;
+    @Nullable
+    private HomeCategoryIndex.Category category;
+    private boolean leavingToParent;
+    @Nullable
+    private HomeMapIndex mapIndex;
+    @Nullable
+    private MapView mapView;
+
+    private NewListMenu(@NotNull HuskHomesGui plugin, @NotNull List<PositionView> homes, @NotNull User owner, @NotNull String title, @NotNull Type type, boolean addHomeButton, @NotNull SortMode sortMode) {
         super(plugin, title, getMenuLayout(plugin));
         this.homes = homes;
         this.owner = owner;
+        this.type = type;
         this.addHomeButton = addHomeButton;
         this.sortMode = sortMode;
     }
 
     @NotNull
     public static NewListMenu create(@NotNull HuskHomesGui plugin, @NotNull List<Home> homes, @NotNull User owner) {
-        return new NewListMenu(plugin, homes, owner, plugin.getLocales().getLocale("homes_menu_title", owner.getUsername()), true, SortMode.ALPHABETICAL_ASCENDING);
+        return create(plugin, homes, owner, SortMode.ALPHABETICAL_ASCENDING);
     }
 
     @NotNull
     public static NewListMenu create(@NotNull HuskHomesGui plugin, @NotNull List<Home> homes, @NotNull User owner, @NotNull SortMode sortMode) {
-        return new NewListMenu(plugin, homes, owner, plugin.getLocales().getLocale("homes_menu_title", owner.getUsername()), true, sortMode);
+        // Reuse the views built when the owner was pre-warmed on join, if they are of the same homes
+        final List<Home> listed = plugin.getDeletions().filter(homes);
+        final List<PositionView> views = plugin.getHomeLists().get(owner.getUuid(), listed)
+                .orElseGet(() -> PositionView.of(listed));
+        return new NewListMenu(plugin, views, owner, plugin.getLocales().getLocale("homes_menu_title", owner.getUsername()), Type.HOME, true, sortMode);
+    }
+
+    // Create a list of the homes in one category of a grouped view
+    @NotNull
+    static NewListMenu createInCategory(@NotNull HuskHomesGui plugin, @NotNull List<PositionView> homes, @NotNull User owner,
+                                        @NotNull Type type, @NotNull CategoryMenu parent,
+                                        @NotNull HomeCategoryIndex.Category category) {
+        final NewListMenu menu = type == Type.PUBLIC_HOME
+                ? new NewListMenu(plugin, homes, owner, plugin.getLocales().getLocale("public_homes_menu_title"), Type.PUBLIC_HOME, false, SortMode.ALPHABETICAL_ASCENDING)
+                : new NewListMenu(plugin, homes, owner, plugin.getLocales().getLocale("homes_menu_title", owner.getUsername()), Type.HOME, true, SortMode.ALPHABETICAL_ASCENDING);
+        menu.parent = parent;
+        menu.category = category;
+        return menu;
     }
 
     @NotNull
     public static NewListMenu createPublic(@NotNull HuskHomesGui plugin, @NotNull List<Home> homes, @NotNull User viewer) {
-        return new NewListMenu(plugin, homes, viewer, plugin.getLocales().getLocale("public_homes_menu_title"), false, SortMode.ALPHABETICAL_ASCENDING);
+        return new NewListMenu(plugin, PositionView.of(plugin.getDeletions().filter(homes)), viewer, plugin.getLocales().getLocale("public_homes_menu_title"), Type.PUBLIC_HOME, false, SortMode.ALPHABETICAL_ASCENDING);
     }
 
     @NotNull
     private static String[] getMenuLayout(@NotNull HuskHomesGui plugin) {
         final int rows = plugin.getSettings().getMenuSize();
         final String[] layout = new String[rows];
-        for (int i = 0; i < rows - 1; i++) {
+        final int recentRows = getRecentRows(plugin);
+        if (recentRows > 0) {
+            layout[0] = RECENT_ROW;
+        }
+        for (int i = recentRows; i < rows - 1; i++) {
             layout[i] = "hhhhhhhhh";
         }
-        layout[rows - 1] = "<maos>f";
+        layout[rows - 1] = "<maos>fbu";
         plugin.getLogger().info("Menu layout: " + Arrays.toString(layout));
         return layout;
     }
 
+    @Override
+    protected int getItemCount() {
+        return homes.size();
+    }
+
+    @NotNull
+    private String getSessionKey() {
+        return type == Type.PUBLIC_HOME ? "public_homes" : "homes";
+    }
+
+    // Restore the sort order, and the page if the player left this same list (or category) last time
+    @Override
+    protected int restoreSession(@NotNull Player player) {
+        final MenuSessions.View view = plugin.getSessions().get(player.getUniqueId(), getSessionKey());
+        Arrays.stream(SortMode.values()).filter(sort -> sort.name().equals(view.sort())).findFirst()
+                .ifPresent(sort -> this.sortMode = sort);
+        if (sortMode == SortMode.MAP) {
+            openMap(player);
+            return 0;
+        }
+        final String filter = category != null ? category.getId() : null;
+        if (!Objects.equals(filter, view.filter())) {
+            return 0;
+        }
+        final int pageSize = (plugin.getSettings().getMenuSize() - 1 - getRecentRows(plugin)) * 9;
+        final int lastPage = Math.max(0, (homes.size() - 1) / pageSize);
+        return Math.min(view.page(), lastPage);
+    }
+
+    @Override
+    protected void onClosed(@NotNull Player player) {
+        final String filter = category != null && !leavingToParent ? category.getId() : null;
+        plugin.getSessions().put(player.getUniqueId(), getSessionKey(),
+                new MenuSessions.View(getPageNumber(api.adaptUser(player)), sortMode.name(), filter));
+        if (!hasViewers()) {
+            plugin.getLiveMenus().unsubscribe(this);
+        }
+    }
+
+    // Apply a home created or edited elsewhere to this list, without rebuilding it
+    @Override
+    public void onPositionUpdated(@NotNull PositionView view, @NotNull SavedPosition position) {
+        runForViewer(() -> {
+            putHome(view);
+            invalidate();
+        });
+    }
+
+    // Drop a home deleted elsewhere from this list, without rebuilding it
+    @Override
+    public void onPositionRemoved(@NotNull UUID positionId) {
+        runForViewer(() -> {
+            removeHome(positionId);
+            sortHomes();
+            invalidate();
+        });
+    }
+
     @Override
     protected Consumer<InventoryGui> buildMenu() {
         return (menu) -> {
@@ -98,18 +203,22 @@ public class NewListMenu extends Menu {
                 menu.setFiller(new ItemStack(plugin.getSettings().getHomesFillerItem()));
             }
 
-            homes.sort(Comparator.comparing(home -> home.getMeta().getName()));
-            if (sortMode == SortMode.ALPHABETICAL_DESCENDING) {
-                Collections.reverse(homes);
-            }
-
-            final GuiElementGroup homeGroup = new GuiElementGroup('h');
-            homes.forEach(home -> homeGroup.addElement(createHomeButton(home)));
+            homeButtons.clear();
+            homes.forEach(home -> homeButtons.put(home.id(), createHomeButton(home)));
+            sortHomes();
             menu.addElement(homeGroup);
+            addRecentRow(menu, getSessionKey(), homeButtons::get);
 
-            // Navigation buttons
-            menu.addElement(new GuiPageElement('<', new ItemStack(plugin.getSettings().getPaginatePreviousPage()), GuiPageElement.PageAction.PREVIOUS, plugin.getLocales().getLocale("pagination_previous_page")));
-            menu.addElement(new GuiPageElement('>', new ItemStack(plugin.getSettings().getPaginateNextPage()), GuiPageElement.PageAction.NEXT, plugin.getLocales().getLocale("pagination_next_page")));
+            // Keep the list up to date with changes made elsewhere while it is open
+            if (type == Type.PUBLIC_HOME) {
+                plugin.getLiveMenus().subscribePublicHomes(this);
+            } else {
+                plugin.getLiveMenus().subscribeHomes(owner.getUuid(), this);
+            }
+
+            // Navigation buttons, which pan and zoom in map view
+            menu.addElement(createPreviousButton());
+            menu.addElement(createNextButton());
 
             // Action buttons
             menu.addElement(createTeleportButton());
@@ -122,88 +231,275 @@ public class NewListMenu extends Menu {
             // Home count display
             menu.addElement(createHomeCountElement());
 
+            // Restore the last home deleted, while its deletion can still be undone
+            menu.addElement(createUndoButton());
+
+            // Back to the category list, when browsing grouped homes
+            if (parent != null) {
+                menu.addElement(new StaticGuiElement('b', new ItemStack(plugin.getSettings().getEditorBackButtonIcon()),
+                        click -> {
+                            if (click.getWhoClicked() instanceof Player player) {
+                                leavingToParent = true;
+                                parent.show(api.adaptUser(player));
+                            }
+                            return true;
+                        },
+                        plugin.getLocales().getLocale("back_button")));
+            }
+
             plugin.getLogger().info("Menu built successfully");
         };
     }
 
-    private String formatServerName(String serverName) {
-        switch (serverName.toLowerCase()) {
-            case "minage_survie_001":
-                return "Minage";
-            case "survie":
-                return "Survie";
-            default:
-                return serverName;
+    // Order the home buttons by the current sort mode, reusing the buttons already built; the map view draws from
+    // its index instead, so the list is only sorted when it is shown
+    private void sortHomes() {
+        homeGroup.clearElements();
+        if (sortMode == SortMode.MAP) {
+            drawMap();
+            return;
+        }
+        homes.sort(Comparator.comparing(PositionView::name));
+        if (sortMode == SortMode.ALPHABETICAL_DESCENDING) {
+            Collections.reverse(homes);
+        }
+        homes.forEach(home -> homeGroup.addElement(homeButtons.get(home.id())));
+    }
+
+    private int getMapRows() {
+        return Math.max(1, plugin.getSettings().getMenuSize() - 1 - getRecentRows(plugin));
+    }
+
+    // Switch to map view, showing the viewer's current world if they have homes there
+    private void openMap(@NotNull Player viewer) {
+        if (mapIndex == null) {
+            mapIndex = HomeMapIndex.of(homes);
+        }
+        final List<HomeCategoryIndex.Category> worlds = mapIndex.getWorlds();
+        if (mapView != null && worlds.contains(mapView.world())) {
+            return;
+        }
+        worlds.stream().filter(world -> world.world().equals(viewer.getWorld().getName())).findFirst()
+                .or(() -> worlds.stream().findFirst())
+                .ifPresentOrElse(this::fitMap, () -> mapView = null);
+    }
+
+    // Centre the map on a world's homes, at the closest zoom that shows all of them
+    private void fitMap(@NotNull HomeCategoryIndex.Category world) {
+        final float[] bounds = Objects.requireNonNull(mapIndex).getBounds(world).orElse(new float[4]);
+        final float span = Math.max((bounds[2] - bounds[0]) / 9, (bounds[3] - bounds[1]) / getMapRows());
+        int scale = MapView.DEFAULT_SCALE;
+        while (scale < span && scale < MapView.MAX_SCALE) {
+            scale *= 2;
+        }
+        mapView = new MapView(world, (bounds[0] + bounds[2]) / 2, (bounds[1] + bounds[3]) / 2, scale);
+    }
+
+    // Fill the home group with one element per map cell, from a single range query over the viewport; cells with
+    // one home reuse its button, and cells with several show a cluster
+    private void drawMap() {
+        if (mapIndex == null || mapView == null) {
+            return;
+        }
+        if (!mapIndex.getWorlds().contains(mapView.world())) {
+            mapIndex.getWorlds().stream().findFirst().ifPresent(this::fitMap);
+        }
+        final MapView view = mapView;
+        final int rows = getMapRows();
+        final float minX = view.centerX() - 4.5f * view.scale();
+        final float minZ = view.centerZ() - rows / 2f * view.scale();
+        @SuppressWarnings("unchecked") final List<PositionView>[] cells = new List[9 * rows];
+        mapIndex.query(view.world(), minX, minZ, minX + 9 * view.scale(), minZ + rows * view.scale(), home -> {
+            final int column = Math.min(8, (int) ((home.x() - minX) / view.scale()));
+            final int row = Math.min(rows - 1, (int) ((home.z() - minZ) / view.scale()));
+            final int cell = row * 9 + column;
+            if (cells[cell] == null) {
+                cells[cell] = new ArrayList<>(1);
+            }
+            cells[cell].add(home);
+        });
+
+        for (int cell = 0; cell < cells.length; cell++) {
+            final float cellX = minX + (cell % 9 + 0.5f) * view.scale();
+            final float cellZ = minZ + (cell / 9 + 0.5f) * view.scale();
+            if (cells[cell] == null) {
+                homeGroup.addElement(new StaticGuiElement('h', new ItemStack(Material.AIR), click -> {
+                    moveMap(click.getWhoClicked(), view.withCenter(cellX, cellZ));
+                    return true;
+                }));
+            } else if (cells[cell].size() == 1) {
+                homeGroup.addElement(homeButtons.get(cells[cell].get(0).id()));
+            } else {
+                homeGroup.addElement(createClusterButton(view, cells[cell], cellX, cellZ));
+            }
+        }
+    }
+
+    // A map cell holding several homes, which zooms in on them when clicked
+    @NotNull
+    private GuiElement createClusterButton(@NotNull MapView view, @NotNull List<PositionView> cluster,
+                                           float cellX, float cellZ) {
+        cluster.sort(Comparator.comparing(PositionView::name));
+        final ItemStack icon = cluster.get(0).getIcon().map(ItemStack::new)
+                .orElseGet(() -> new ItemStack(plugin.getSettings().getDefaultIcon()));
+        icon.setAmount(Math.min(cluster.size(), icon.getMaxStackSize()));
+        final List<String> lines = new ArrayList<>();
+        lines.add(plugin.getLocales().getLocale("map_cluster_name", Integer.toString(cluster.size())));
+        cluster.stream().limit(MapView.CLUSTER_NAMES).forEach(home ->
+                lines.add(plugin.getLocales().getLocale("map_cluster_home", home.name())));
+        if (cluster.size() > MapView.CLUSTER_NAMES) {
+            lines.add(plugin.getLocales().getLocale("map_cluster_more",
+                    Integer.toString(cluster.size() - MapView.CLUSTER_NAMES)));
+        }
+        lines.add(plugin.getLocales().getLocale("map_cluster_hint"));
+        return new StaticGuiElement('h', icon, click -> {
+            moveMap(click.getWhoClicked(), view.withCenter(cellX, cellZ).zoomIn(4));
+            return true;
+        }, lines.toArray(String[]::new));
+    }
+
+    // Apply a pan or zoom, redrawing only the map cells
+    private void moveMap(@NotNull HumanEntity viewer, @NotNull MapView view) {
+        this.mapView = view;
+        if (viewer instanceof Player player) {
+            playSound(player, plugin.getSettings().getClickSound());
         }
+        homeGroup.clearElements();
+        drawMap();
+        invalidate();
+    }
+
+    // In list view, the previous page; in map view, pans the map
+    private DynamicGuiElement createPreviousButton() {
+        return memoize('<', viewer -> getMapDependency(), viewer -> {
+            if (sortMode != SortMode.MAP) {
+                return new GuiPageElement('<', new ItemStack(plugin.getSettings().getPaginatePreviousPage()), GuiPageElement.PageAction.PREVIOUS, plugin.getLocales().getLocale("pagination_previous_page"));
+            }
+            if (mapView == null) {
+                return new StaticGuiElement('<', new ItemStack(Material.AIR));
+            }
+            final MapView view = mapView;
+            return new StaticGuiElement('<', new ItemStack(Material.COMPASS), click -> {
+                final float columns = 4 * view.scale();
+                final float rows = Math.max(1, getMapRows() / 2) * view.scale();
+                moveMap(click.getWhoClicked(), switch (click.getType()) {
+                    case RIGHT -> view.withCenter(view.centerX() + columns, view.centerZ());
+                    case SHIFT_LEFT -> view.withCenter(view.centerX(), view.centerZ() - rows);
+                    case SHIFT_RIGHT -> view.withCenter(view.centerX(), view.centerZ() + rows);
+                    default -> view.withCenter(view.centerX() - columns, view.centerZ());
+                });
+                return true;
+            },
+                    plugin.getLocales().getLocale("map_pan_button", view.world().world(),
+                            Integer.toString(Math.round(view.centerX())), Integer.toString(Math.round(view.centerZ()))),
+                    plugin.getLocales().getLocale("map_pan_hint"));
+        });
     }
 
-    private DynamicGuiElement createHomeButton(@NotNull Home home) {
-        plugin.getLogger().info("Creating home button for: " + home.getName() + " at " + home.getX() + "," + home.getY() + "," + home.getZ());
-        return new DynamicGuiElement('h', (viewer) -> new StaticGuiElement('h',
-                new ItemStack(getPositionMaterial(home).orElse(plugin.getSettings().getDefaultIcon())),
+    // In list view, the next page; in map view, zooms the map or switches world
+    private DynamicGuiElement createNextButton() {
+        return memoize('>', viewer -> getMapDependency(), viewer -> {
+            if (sortMode != SortMode.MAP) {
+                return new GuiPageElement('>', new ItemStack(plugin.getSettings().getPaginateNextPage()), GuiPageElement.PageAction.NEXT, plugin.getLocales().getLocale("pagination_next_page"));
+            }
+            if (mapView == null || mapIndex == null) {
+                return new StaticGuiElement('>', new ItemStack(Material.AIR));
+            }
+            final MapView view = mapView;
+            final List<HomeCategoryIndex.Category> worlds = mapIndex.getWorlds();
+            return new StaticGuiElement('>', new ItemStack(Material.SPYGLASS), click -> {
+                if (click.getType() == ClickType.SHIFT_LEFT || click.getType() == ClickType.SHIFT_RIGHT) {
+                    fitMap(worlds.get((worlds.indexOf(view.world()) + 1) % worlds.size()));
+                    moveMap(click.getWhoClicked(), Objects.requireNonNull(mapView));
+                    return true;
+                }
+                moveMap(click.getWhoClicked(), click.getType() == ClickType.RIGHT ? view.zoomOut() : view.zoomIn(2));
+                return true;
+            },
+                    plugin.getLocales().getLocale("map_zoom_button", Integer.toString(view.scale())),
+                    plugin.getLocales().getLocale(worlds.size() > 1 ? "map_zoom_world_hint" : "map_zoom_hint"));
+        });
+    }
+
+    // The navigation buttons depend on the map view while the map is shown
+    @NotNull
+    private Object getMapDependency() {
+        return sortMode == SortMode.MAP ? Optional.ofNullable(mapView) : SortMode.ALPHABETICAL_ASCENDING;
+    }
+
+    // Home buttons only change with the menu mode and when the owner's head resolves; an edited home gets a new button
+    private DynamicGuiElement createHomeButton(@NotNull PositionView home) {
+        return memoize(home.id(), 'h', viewer -> List.of(mode, getDataVersion(home.id())), (viewer) -> new StaticGuiElement('h',
+                createHomeIcon(home),
                 click -> {
                     if (click.getWhoClicked() instanceof Player player) {
                         final OnlineUser user = api.adaptUser(player);
                         switch (mode) {
                             case TELEPORT -> {
-                                this.close(user);
-                                try {
-                                    api.teleportBuilder(user).target(home).toTimedTeleport().execute();
-                                } catch (TeleportationException ignored) {
-                                }
+                                plugin.getRecentPositions().record(player.getUniqueId(), getSessionKey(), home.id());
+                                withHome(player, home, target -> {
+                                    this.close(user);
+                                    try {
+                                        api.teleport(user, target);
+                                    } catch (TeleportationException ignored) {
+                                    }
+                                });
                             }
                             case DELETE -> showDeleteConfirmation(player, home);
                         }
                     }
                     return true;
                 },
-                "§b" + home.getName(),
-                plugin.getLocales().getLocale(
-                        "item_description",
-                        !home.getMeta().getDescription().isBlank() ?
-                                textWrap(plugin, home.getMeta().getDescription()) :
-                                plugin.getLocales().getLocale("item_description_blank")
-                ),
-                "",
-                "§7Coordonnées : §e" + String.format("X: %.1f, Y: %.1f, Z: %.1f", home.getX(), home.getY(), home.getZ()),
-                "§7Serveur : §e" + formatServerName(home.getServer()),
-                "",
-                mode == MenuMode.TELEPORT ? "§7Cliquez pour vous téléporter" : "§cCliquez pour supprimer"
+                getHomeText(home)
         ));
     }
 
-    private void showDeleteConfirmation(@NotNull Player player, @NotNull Home home) {
+    // Cached name and lore lines, followed by the owner and the action for the current mode
+    @NotNull
+    private String[] getHomeText(@NotNull PositionView home) {
+        final List<String> lines = new ArrayList<>(plugin.getItemPrototypes().getHomeLines(home));
+        lines.add(type == Type.PUBLIC_HOME ? plugin.getLocales().getLocale("home_owner_name", Objects.requireNonNullElse(home.ownerName(), "")) : "");
+        lines.add(mode == MenuMode.TELEPORT ? "§7Cliquez pour vous téléporter" : "§cCliquez pour supprimer");
+        return lines.toArray(String[]::new);
+    }
+
+    // Public homes without a custom icon show their owner's head
+    @NotNull
+    private ItemStack createHomeIcon(@NotNull PositionView home) {
+        return home.getIcon().map(ItemStack::new).orElseGet(() -> type == Type.PUBLIC_HOME && home.ownerId() != null
+                ? plugin.getProfileCache().createHead(home.ownerId(), () -> invalidate(home.id()))
+                : new ItemStack(plugin.getSettings().getDefaultIcon()));
+    }
+
+    // Look up the full home when an action needs it, then run the action on the player's thread if the menu is
+    // still open
+    private void withHome(@NotNull Player player, @NotNull PositionView view, @NotNull Consumer<Home> action) {
+        read(player, "get-home", () -> api.getHome(view.id()).get(), home -> home.ifPresent(action));
+    }
+
+    private void showDeleteConfirmation(@NotNull Player player, @NotNull PositionView home) {
         final OnlineUser user = api.adaptUser(player);
         final String[] layout = {"xxxxxxxxx", "xcyxxxxnx", "xxxxxxxxx"};
-        final InventoryGui gui = new InventoryGui(plugin, plugin.getLocales().getLocale("delete_home_title", home.getName()), layout);
+        final InventoryGui gui = new InventoryGui(plugin, plugin.getLocales().getLocale("delete_home_title", home.name()), layout);
         gui.setFiller(new ItemStack(Material.GRAY_STAINED_GLASS_PANE));
         gui.setCloseAction(close -> false);
         gui.addElement(new StaticGuiElement('c', new ItemStack(Material.LIME_WOOL), click -> {
-            try {
-                plugin.getLogger().info("Attempting to delete home: " + home.getName());
-                api.deleteHome(home);
-                plugin.getLogger().info("Home deletion successful");
-                
-                // Fermer le menu de confirmation
-                click.getGui().close();
-                
-                // Attendre un court instant pour la synchronisation
-                plugin.getServer().getScheduler().runTaskLater(plugin, () -> {
-                    // Puis récupérer la liste mise à jour
-                    api.getUserHomes(owner).thenAccept(updatedHomes -> {
-                        plugin.getLogger().info("Got " + updatedHomes.size() + " homes after deletion");
-                        plugin.getServer().getScheduler().runTask(plugin, () -> {
-                            // Rouvrir le menu principal avec les données à jour
-                            NewListMenu.create(plugin, updatedHomes, owner).show(user);
-                        });
-                    }).exceptionally(e -> {
-                        plugin.getLogger().log(Level.SEVERE, "Failed to refresh homes list after deletion", e);
-                        return null;
-                    });
-                }, 10L); // Délai de 10 ticks (0.5 seconde)
-            } catch (ValidationException e) {
-                plugin.getLogger().log(Level.SEVERE, "Failed to delete home", e);
+            plugin.getLogger().info("Attempting to delete home: " + home.name());
+
+            // Fermer le menu de confirmation
+            click.getGui().close();
+
+            // Hide the home now; the deletion is committed once it can no longer be undone
+            plugin.getDeletions().delete(home, null);
+            removeHome(home.id());
+            if (parent != null) {
+                if (homes.isEmpty()) {
+                    leavingToParent = true;
+                    parent.show(user);
+                    return true;
+                }
             }
+            this.show(user);
             return true;
         }, plugin.getLocales().getLocale("delete_confirm_button")));
         gui.addElement(new StaticGuiElement('n', new ItemStack(Material.RED_WOOL), click -> {
@@ -213,8 +509,57 @@ public class NewListMenu extends Menu {
         gui.show(player);
     }
 
+    private DynamicGuiElement createUndoButton() {
+        return memoize('u', viewer -> List.of(viewer.getUniqueId(), getDataVersion()), viewer -> {
+            final UUID ownerId = type == Type.PUBLIC_HOME ? viewer.getUniqueId() : owner.getUuid();
+            final Optional<PositionView> deleted = plugin.getDeletions().getLatestHome(ownerId);
+            if (deleted.isEmpty()) {
+                return new StaticGuiElement('u', new ItemStack(Material.AIR));
+            }
+            return new StaticGuiElement('u', new ItemStack(Material.CLOCK), click -> {
+                plugin.getDeletions().undo(deleted.get().id()).ifPresent(this::putHome);
+                if (click.getWhoClicked() instanceof Player player) {
+                    playSound(player, plugin.getSettings().getClickSound());
+                }
+                this.invalidate();
+                return true;
+            },
+                    plugin.getLocales().getLocale("undo_delete_button", deleted.get().name()),
+                    plugin.getLocales().getLocale("undo_delete_hint"));
+        });
+    }
+
+    // Put a home in this list, replacing any older view of it, and in the category index; homes in other
+    // categories only go in the index
+    private void putHome(@NotNull PositionView home) {
+        removeHome(home.id());
+        if (parent != null) {
+            parent.getIndex().add(home);
+        }
+        if (mapIndex != null && (category == null || category.equals(HomeCategoryIndex.Category.of(home)))) {
+            mapIndex.add(home);
+        }
+        if (category == null || category.equals(HomeCategoryIndex.Category.of(home))) {
+            homes.add(home);
+            homeButtons.put(home.id(), createHomeButton(home));
+        }
+        sortHomes();
+    }
+
+    private void removeHome(@NotNull UUID homeId) {
+        homes.removeIf(home -> home.id().equals(homeId));
+        homeButtons.remove(homeId);
+        forget(homeId);
+        if (mapIndex != null) {
+            mapIndex.remove(homeId);
+        }
+        if (parent != null) {
+            parent.getIndex().remove(homeId);
+        }
+    }
+
     private DynamicGuiElement createTeleportButton() {
-        return new DynamicGuiElement('m', (viewer) -> {
+        return memoize('m', viewer -> mode, (viewer) -> {
             final ItemStack icon = new ItemStack(plugin.getSettings().getTeleportButton());
             final ItemMeta meta = icon.getItemMeta();
             if (mode == MenuMode.TELEPORT) {
@@ -230,14 +575,14 @@ public class NewListMenu extends Menu {
                 }
                 plugin.getLogger().info("Updating menu display - Mode: " + this.mode);
                 click.getGui().setFiller(new ItemStack(plugin.getSettings().getHomesFillerItem()));
-                click.getGui().draw();
+                this.redraw();
                 return true;
             }, plugin.getLocales().getLocale("teleport_mode_button"));
         });
     }
 
     private DynamicGuiElement createDeleteButton() {
-        return new DynamicGuiElement('s', (viewer) -> {
+        return memoize('s', viewer -> mode, (viewer) -> {
             final ItemStack icon = new ItemStack(plugin.getSettings().getDeleteButton());
             final ItemMeta meta = icon.getItemMeta();
             if (mode == MenuMode.DELETE) {
@@ -253,21 +598,21 @@ public class NewListMenu extends Menu {
                 }
                 plugin.getLogger().info("Updating menu display - Mode: " + this.mode);
                 click.getGui().setFiller(new ItemStack(plugin.getSettings().getDeleteFillerItem()));
-                click.getGui().draw();
+                this.redraw();
                 return true;
             }, plugin.getLocales().getLocale("delete_mode_button"));
         });
     }
 
     private DynamicGuiElement createAddButton() {
-        return new DynamicGuiElement('a', viewer -> {
+        return memoize('a', viewer -> List.of(viewer.getUniqueId(), getDataVersion()), viewer -> {
             if (!(viewer instanceof Player player)) {
                 return new StaticGuiElement('a', new ItemStack(Material.AIR));
             }
 
             final OnlineUser user = api.adaptUser(player);
             final int currentHomes = homes.size();
-            final int maxHomes = api.getMaxHomeSlots(user);
+            final int maxHomes = plugin.getHomeSlots().getMaxHomeSlots(user);
             plugin.getLogger().info("Current homes: " + currentHomes + ", Max homes: " + maxHomes);
 
             if (currentHomes >= maxHomes) {
@@ -302,6 +647,7 @@ public class NewListMenu extends Menu {
                     final OnlineUser u = api.adaptUser(p);
                     this.close(u);
                     new AnvilGUI.Builder()
+                            .mainThreadExecutor(plugin.getScheduler().forPlayer(p))
                             .title(plugin.getLocales().getLocale("add_home_title"))
                             .text(plugin.getLocales().getLocale("add_home_default_name"))
                             .itemLeft(new ItemStack(Material.OAK_SIGN))
@@ -325,23 +671,32 @@ public class NewListMenu extends Menu {
                                             AnvilGUI.ResponseAction.replaceInputText("Création en cours...")
                                         );
                                         
-                                        // Attendre un court instant pour la synchronisation
-                                        plugin.getServer().getScheduler().runTaskLater(plugin, () -> {
-                                            plugin.getLogger().info("Fetching updated homes list");
-                                            api.getUserHomes(owner).thenAccept(updatedHomes -> {
-                                                plugin.getLogger().info("Got " + updatedHomes.size() + " homes");
-                                                plugin.getServer().getScheduler().runTask(plugin, () -> {
-                                                    // Fermer l'interface AnvilGUI
-                                                    state.getPlayer().closeInventory();
-                                                    // Rouvrir le menu avec les données à jour
-                                                    NewListMenu.create(plugin, updatedHomes, owner).show(user);
-                                                });
-                                            }).exceptionally(e -> {
-                                                plugin.getLogger().log(Level.SEVERE, "Failed to refresh homes list", e);
-                                                return null;
+                                        // Récupérer la liste mise à jour
+                                        plugin.getLogger().info("Fetching updated homes list");
+                                        plugin.getGuiExecutor().supply(GuiExecutor.Operation.READ, p.getUniqueId(), "get-user-homes",
+                                                () -> api.getUserHomes(owner).get()
+                                        ).thenAccept(updatedHomes -> {
+                                            plugin.getLogger().info("Got " + updatedHomes.size() + " homes");
+                                            plugin.getScheduler().runForPlayer(p, () -> {
+                                                // Fermer l'interface AnvilGUI
+                                                state.getPlayer().closeInventory();
+                                                // Rouvrir le menu avec les données à jour
+                                                if (parent != null) {
+                                                    final Optional<PositionView> created = updatedHomes.stream()
+                                                            .filter(home -> home.getName().equals(homeName))
+                                                            .findFirst().map(PositionView::of);
+                                                    created.ifPresent(home -> parent.getIndex().add(home));
+                                                    parent.showCategory(user, created.map(HomeCategoryIndex.Category::of)
+                                                            .orElse(Objects.requireNonNull(category)));
+                                                    return;
+                                                }
+                                                NewListMenu.create(plugin, updatedHomes, owner).show(user);
                                             });
-                                        }, 10L); // Délai de 10 ticks (0.5 seconde)
-                                        
+                                        }).exceptionally(e -> {
+                                            plugin.getLogger().log(Level.SEVERE, "Failed to refresh homes list", e);
+                                            return null;
+                                        });
+
                                         return actions;
                                     } catch (ValidationException e) {
                                         return Collections.singletonList(AnvilGUI.ResponseAction.replaceInputText(plugin.getLocales().getLocale("error_invalid_name")));
@@ -357,15 +712,15 @@ public class NewListMenu extends Menu {
     }
 
     private GuiElement createHomeCountElement() {
-        return new DynamicGuiElement('f', viewer -> {
+        return memoize('f', viewer -> List.of(viewer.getUniqueId(), getDataVersion()), viewer -> {
             if (viewer instanceof Player player) {
                 final OnlineUser onlineUser = api.adaptUser(player);
                 plugin.getLogger().info("Attempting to get max homes for user: " + onlineUser.getUsername());
                 final int currentHomes = homes.size();
-                final int maxHomes = api.getMaxHomeSlots(onlineUser);
+                final int maxHomes = plugin.getHomeSlots().getMaxHomeSlots(onlineUser);
                 plugin.getLogger().info("Retrieved max homes: " + maxHomes + " for user: " + onlineUser.getUsername());
 
-                final ItemStack item = new ItemStack(Material.PLAYER_HEAD);
+                final ItemStack item = plugin.getProfileCache().createHead(player.getUniqueId(), this::invalidate);
                 final ItemMeta meta = item.getItemMeta();
 
                 meta.setDisplayName("§bVos Homes");
@@ -381,15 +736,17 @@ public class NewListMenu extends Menu {
     }
 
     private DynamicGuiElement createSortButton() {
-        return new DynamicGuiElement('o', (viewer) -> {
+        return memoize('o', viewer -> sortMode, (viewer) -> {
             plugin.getLogger().info("Creating sort button with mode: " + sortMode);
             final ItemStack icon = new ItemStack(Material.COMPARATOR);
             final ItemMeta meta = icon.getItemMeta();
             if (meta != null) {
                 meta.setDisplayName("§bTrier les homes");
-                final String sortDescription = sortMode == SortMode.ALPHABETICAL_ASCENDING ?
-                    "§7Tri actuel : §eA → Z" :
-                    "§7Tri actuel : §eZ → A";
+                final String sortDescription = switch (sortMode) {
+                    case ALPHABETICAL_ASCENDING -> "§7Tri actuel : §eA → Z";
+                    case ALPHABETICAL_DESCENDING -> "§7Tri actuel : §eZ → A";
+                    case MAP -> "§7Tri actuel : §eCarte";
+                };
                 meta.setLore(Arrays.asList(
                     sortDescription,
                     "§7Cliquez pour changer l'ordre"
@@ -398,11 +755,16 @@ public class NewListMenu extends Menu {
                 plugin.getLogger().info("Sort button meta set: " + meta.getDisplayName());
             }
             return new StaticGuiElement('o', icon, click -> {
+                this.sortMode = this.sortMode.getNext();
                 if (click.getWhoClicked() instanceof Player player) {
-                    final OnlineUser user = api.adaptUser(player);
-                    final SortMode nextSortMode = this.sortMode.getNext();
-                    NewListMenu.create(plugin, homes, owner, nextSortMode).show(user);
+                    playSound(player, plugin.getSettings().getClickSound());
+                    if (sortMode == SortMode.MAP) {
+                        openMap(player);
+                        setPageNumber(api.adaptUser(player), 0);
+                    }
                 }
+                sortHomes();
+                this.redraw();
                 return true;
             });
         });
@@ -415,10 +777,40 @@ public class NewListMenu extends Menu {
 
     private enum SortMode {
         ALPHABETICAL_ASCENDING,
-        ALPHABETICAL_DESCENDING;
+        ALPHABETICAL_DESCENDING,
+        MAP;
 
         public SortMode getNext() {
-            return this == ALPHABETICAL_ASCENDING ? ALPHABETICAL_DESCENDING : ALPHABETICAL_ASCENDING;
+            return values()[(ordinal() + 1) % values().length];
+        }
+    }
+
+    /**
+     * The area of a world shown in map view
+     *
+     * @param world   The world shown
+     * @param centerX The X coordinate at the centre of the map
+     * @param centerZ The Z coordinate at the centre of the map
+     * @param scale   The width of each map cell in blocks
+     */
+    private record MapView(@NotNull HomeCategoryIndex.Category world, float centerX, float centerZ, int scale) {
+        private static final int DEFAULT_SCALE = 16;
+        private static final int MAX_SCALE = 65536;
+        private static final int CLUSTER_NAMES = 5;
+
+        @NotNull
+        private MapView withCenter(float centerX, float centerZ) {
+            return new MapView(world, centerX, centerZ, scale);
+        }
+
+        @NotNull
+        private MapView zoomIn(int factor) {
+            return new MapView(world, centerX, centerZ, Math.max(1, scale / factor));
+        }
+
+        @NotNull
+        private MapView zoomOut() {
+            return new MapView(world, centerX, centerZ, Math.min(MAX_SCALE, scale * 2));
         }
     }
 }
\ No newline at end of file
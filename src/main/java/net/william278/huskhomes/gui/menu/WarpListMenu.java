@@ -17,43 +17,149 @@
  *  limitations under the License.
  */
 
+
 package net.william278.huskhomes.gui.menu;
 
 import de.themoep.inventorygui.*;
 import net.william278.huskhomes.gui.HuskHomesGui;
+import net.william278.huskhomes.gui.cache.MenuSessions;
+import net.william278.huskhomes.gui.cache.WarpCategoryIndex;
+import net.william278.huskhomes.gui.cache.WarpVisibility;
+import net.william278.huskhomes.gui.model.PositionView;
+import net.william278.huskhomes.position.SavedPosition;
 import net.william278.huskhomes.position.Warp;
 import net.william278.huskhomes.teleport.TeleportationException;
 import net.william278.huskhomes.user.OnlineUser;
+import org.bukkit.Material;
 import org.bukkit.entity.Player;
 import org.bukkit.inventory.ItemStack;
+import org.bukkit.inventory.meta.ItemMeta;
 import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
 
-import java.util.List;
+import java.util.*;
 import java.util.function.Consumer;
 
 import static net.william278.huskhomes.gui.config.Locales.textWrap;
 
-public class WarpListMenu extends Menu {
+/**
+ * The warp list, with a tab in the bottom row for each warp category
+ * <p>
+ * Warps are read from the server-wide {@link WarpCategoryIndex}; switching tabs only builds the buttons of the
+ * selected category's warps, and buttons already built are kept for switching back. Only the warps the viewer may
+ * see are listed, filtered by their cached {@link WarpVisibility} bitset.
+ */
+public class WarpListMenu extends Menu implements LiveMenus.Subscriber {
+
+    private static final char[] TAB_SLOTS = {'1', '2', '3', '4', '5', '6', '7'};
+    // The tab for all warps, including uncategorised ones
+    private static final String ALL_TAB = "";
 
-    private final List<Warp> warps;
+    private final Map<UUID, Warp> warps;
+    private final WarpCategoryIndex index;
+    private final UUID viewerId;
+    private BitSet visible;
+    private final List<String> tabs = new ArrayList<>();
+    private final Map<UUID, GuiElement> warpButtons = new HashMap<>();
+    private final GuiElementGroup warpGroup = new GuiElementGroup('w');
+    private String selectedTab = ALL_TAB;
+    private int tabOffset;
 
-    private WarpListMenu(@NotNull HuskHomesGui plugin, @NotNull List<Warp> warps) {
-        super(plugin, plugin.getLocales().getLocale("warps_menu_title"), getMenuLayout());
-        this.warps = warps;
+    private WarpListMenu(@NotNull HuskHomesGui plugin, @NotNull List<Warp> warps, @NotNull WarpCategoryIndex index,
+                         @NotNull UUID viewerId, @NotNull BitSet visible) {
+        super(plugin, plugin.getLocales().getLocale("warps_menu_title"), getMenuLayout(plugin, !index.getCategories(visible).isEmpty()));
+        this.warps = new HashMap<>(warps.size());
+        warps.forEach(warp -> this.warps.put(warp.getUuid(), warp));
+        this.index = index;
+        this.viewerId = viewerId;
+        this.visible = visible;
+        this.tabs.add(ALL_TAB);
+        this.tabs.addAll(index.getCategories(visible));
     }
 
     @NotNull
-    public static WarpListMenu create(@NotNull HuskHomesGui plugin, @NotNull List<Warp> warps) {
-        return new WarpListMenu(plugin, warps);
+    public static WarpListMenu create(@NotNull HuskHomesGui plugin, @NotNull List<Warp> warps, @NotNull Player viewer) {
+        final List<Warp> listed = plugin.getDeletions().filter(warps);
+        final WarpCategoryIndex index = plugin.getWarpCategories();
+        index.sync(listed);
+        return new WarpListMenu(plugin, listed, index, viewer.getUniqueId(), plugin.getWarpVisibility().getVisible(viewer));
     }
 
     @NotNull
-    private static String[] getMenuLayout() {
-        return new String[]{
-                "wwwwwwwww",
-                "wwwwwwwww",
-                "<#######>"
-        };
+    private static String[] getMenuLayout(@NotNull HuskHomesGui plugin, boolean tabbed) {
+        final int rows = Math.max(2, plugin.getSettings().getMenuSize());
+        final String[] layout = new String[rows];
+        final int recentRows = getRecentRows(plugin);
+        if (recentRows > 0) {
+            layout[0] = RECENT_ROW;
+        }
+        for (int i = recentRows; i < rows - 1; i++) {
+            layout[i] = "wwwwwwwww";
+        }
+        layout[rows - 1] = tabbed ? "<" + new String(TAB_SLOTS) + ">" : "<#######>";
+        return layout;
+    }
+
+    @Override
+    protected int getItemCount() {
+        return index.getWarpCount(getSelectedCategory(), visible);
+    }
+
+    @Override
+    protected int restoreSession(@NotNull Player player) {
+        final MenuSessions.View view = plugin.getSessions().get(player.getUniqueId(), "warps");
+        if (view.filter() != null && tabs.contains(view.filter())) {
+            selectTab(view.filter());
+        }
+        final int lastPage = Math.max(0, (getItemCount() - 1) / getPageSize());
+        return Math.min(view.page(), lastPage);
+    }
+
+    @Override
+    protected void onClosed(@NotNull Player player) {
+        plugin.getSessions().put(player.getUniqueId(), "warps", new MenuSessions.View(
+                getPageNumber(api.adaptUser(player)), "", selectedTab.equals(ALL_TAB) ? null : selectedTab));
+        if (!hasViewers()) {
+            plugin.getLiveMenus().unsubscribe(this);
+        }
+    }
+
+    // Apply a warp created or edited elsewhere; the category index has already been updated
+    @Override
+    public void onPositionUpdated(@NotNull PositionView view, @NotNull SavedPosition position) {
+        if (position instanceof Warp warp) {
+            runForViewer(() -> {
+                warps.put(warp.getUuid(), warp);
+                warpButtons.remove(warp.getUuid());
+                refreshTabs();
+            });
+        }
+    }
+
+    // Drop a warp deleted elsewhere from this list
+    @Override
+    public void onPositionRemoved(@NotNull UUID positionId) {
+        runForViewer(() -> {
+            if (warps.remove(positionId) != null) {
+                warpButtons.remove(positionId);
+                refreshTabs();
+            }
+        });
+    }
+
+    // Re-read the visible warps and categories after a change, falling back to all warps if the selected one is
+    // now empty
+    private void refreshTabs() {
+        final Player viewer = plugin.getServer().getPlayer(viewerId);
+        if (viewer != null) {
+            visible = plugin.getWarpVisibility().getVisible(viewer);
+        }
+        tabs.clear();
+        tabs.add(ALL_TAB);
+        tabs.addAll(index.getCategories(visible));
+        selectTab(tabs.contains(selectedTab) ? selectedTab : ALL_TAB);
+        fillWarpGroup();
+        invalidate();
     }
 
     @Override
@@ -61,36 +167,127 @@ public class WarpListMenu extends Menu {
         return (menu) -> {
             menu.setFiller(new ItemStack(plugin.getSettings().getWarpsFillerItem()));
 
-            final GuiElementGroup warpGroup = new GuiElementGroup('w');
-            warps.forEach(warp -> warpGroup.addElement(createWarpButton(warp)));
+            fillWarpGroup();
             menu.addElement(warpGroup);
+            plugin.getLiveMenus().subscribeWarps(this);
+            addRecentRow(menu, "warps", id -> {
+                final Warp warp = warps.get(id);
+                final int slot = index.getSlot(id);
+                return warp != null && slot >= 0 && visible.get(slot) ? warpButtons.computeIfAbsent(id, key -> createWarpButton(PositionView.of(warp), warp)) : null;
+            });
+
+            if (tabs.size() > 1) {
+                for (int i = 0; i < TAB_SLOTS.length; i++) {
+                    final int position = i;
+                    menu.addElement(memoize(TAB_SLOTS[i], viewer -> List.of(tabOffset, selectedTab, getDataVersion()),
+                            viewer -> createTabButton(TAB_SLOTS[position], position)));
+                }
+            }
 
             menu.addElement(new GuiPageElement('<', new ItemStack(plugin.getSettings().getPaginatePreviousPage()), GuiPageElement.PageAction.PREVIOUS, plugin.getLocales().getLocale("pagination_previous_page")));
             menu.addElement(new GuiPageElement('>', new ItemStack(plugin.getSettings().getPaginateNextPage()), GuiPageElement.PageAction.NEXT, plugin.getLocales().getLocale("pagination_next_page")));
         };
     }
 
-    private StaticGuiElement createWarpButton(@NotNull Warp warp) {
+    // Fill the warp group with the selected category's warps, reusing buttons built for earlier tabs
+    private void fillWarpGroup() {
+        warpGroup.clearElements();
+        for (PositionView view : index.getWarps(getSelectedCategory(), visible)) {
+            final Warp warp = warps.get(view.id());
+            if (warp != null) {
+                warpGroup.addElement(warpButtons.computeIfAbsent(view.id(), id -> createWarpButton(view, warp)));
+            }
+        }
+    }
+
+    // Whether every tab fits in the bottom row; if not, the last tab slot cycles through the rest
+    private boolean isTabRowFull() {
+        return tabs.size() > TAB_SLOTS.length;
+    }
+
+    @NotNull
+    private GuiElement createTabButton(char slot, int position) {
+        if (isTabRowFull() && position == TAB_SLOTS.length - 1) {
+            return new StaticGuiElement(slot, new ItemStack(plugin.getSettings().getPaginateNextPage()),
+                    click -> {
+                        tabOffset = tabOffset + position >= tabs.size() ? 0 : tabOffset + position;
+                        invalidate();
+                        return true;
+                    },
+                    plugin.getLocales().getLocale("warp_category_more"));
+        }
+
+        final int tabIndex = tabOffset + position;
+        if (tabIndex >= tabs.size()) {
+            return new StaticGuiElement(slot, new ItemStack(plugin.getSettings().getWarpsFillerItem()), " ");
+        }
+        final String tab = tabs.get(tabIndex);
+        final ItemStack icon = new ItemStack(tab.equals(ALL_TAB) ? Material.COMPASS : Material.NAME_TAG);
+        if (tab.equals(selectedTab)) {
+            final ItemMeta meta = icon.getItemMeta();
+            meta.setEnchantmentGlintOverride(true);
+            icon.setItemMeta(meta);
+        }
+        return new StaticGuiElement(slot, icon,
+                click -> {
+                    if (click.getWhoClicked() instanceof Player player && !tab.equals(selectedTab)) {
+                        selectTab(tab);
+                        fillWarpGroup();
+                        setPageNumber(api.adaptUser(player), 0);
+                        invalidate();
+                    }
+                    return true;
+                },
+                tab.equals(ALL_TAB) ? plugin.getLocales().getLocale("warp_category_all")
+                        : plugin.getLocales().getLocale("warp_category_name", tab),
+                plugin.getLocales().getLocale("warp_category_count",
+                        Integer.toString(index.getWarpCount(tab.equals(ALL_TAB) ? null : tab, visible))));
+    }
+
+    // Select a tab, scrolling the tab row so that it is visible
+    private void selectTab(@NotNull String tab) {
+        selectedTab = tab;
+        if (isTabRowFull()) {
+            final int perRow = TAB_SLOTS.length - 1;
+            tabOffset = (tabs.indexOf(tab) / perRow) * perRow;
+        } else {
+            tabOffset = 0;
+        }
+    }
+
+    @Nullable
+    private String getSelectedCategory() {
+        return selectedTab.equals(ALL_TAB) ? null : selectedTab;
+    }
+
+    private int getPageSize() {
+        return (Math.max(2, plugin.getSettings().getMenuSize()) - 1 - getRecentRows(plugin)) * 9;
+    }
+
+    @NotNull
+    private StaticGuiElement createWarpButton(@NotNull PositionView view, @NotNull Warp warp) {
         return new StaticGuiElement('w',
-                new ItemStack(getPositionMaterial(warp).orElse(plugin.getSettings().getDefaultIcon())),
+                new ItemStack(view.getIcon().orElse(plugin.getSettings().getDefaultIcon())),
                 click -> {
                     if (click.getWhoClicked() instanceof Player player) {
                         final OnlineUser user = api.adaptUser(player);
                         this.close(user);
+                        plugin.getHotWarps().recordUse(warp);
+                        plugin.getRecentPositions().record(player.getUniqueId(), "warps", warp.getUuid());
                         try {
-                            api.teleportBuilder(user).target(warp).toTimedTeleport().execute();
+                            api.teleport(user, warp);
                         } catch (TeleportationException ignored) {
                         }
                     }
                     return true;
                 },
-                plugin.getLocales().getLocale("item_name", warp.getName()),
+                plugin.getLocales().getLocale("item_name", view.name()),
                 plugin.getLocales().getLocale(
                         "item_description",
-                        !warp.getMeta().getDescription().isBlank() ?
-                                textWrap(plugin, warp.getMeta().getDescription()) :
+                        !view.description().isBlank() ?
+                                textWrap(plugin, view.description()) :
                                 plugin.getLocales().getLocale("item_description_blank")
                 )
         );
     }
-}
\ No newline at end of file
+}
@@ -0,0 +1,108 @@
+/*
+ * This file is part of HuskHomesGUI, licensed under the Apache License 2.0.
+ *
+ *  Copyright (c) William278 <will27528@gmail.com>
+ *  Copyright (c) contributors
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+
+
+package net.william278.huskhomes.gui.model;
+
+import net.william278.huskhomes.position.Home;
+import net.william278.huskhomes.position.SavedPosition;
+import org.bukkit.Material;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+import java.util.*;
+import java.util.function.Function;
+
+/**
+ * A compact, immutable view of a home or warp, holding only what menus display
+ * <p>
+ * Menus hold these instead of HuskHomes' {@link SavedPosition} objects, so that open menus do not keep full
+ * positions (and their metadata maps) alive, and so that lists can be shared read-only with async workers. Server,
+ * world and environment names are interned, coordinates are stored as floats and the icon as a material ordinal.
+ * The full position is looked up by {@link #id()} when an action needs it.
+ *
+ * @param id          The position id
+ * @param name        The position name
+ * @param description The position description
+ * @param x           The x coordinate
+ * @param y           The y coordinate
+ * @param z           The z coordinate
+ * @param icon        The ordinal of the custom icon material, or {@code -1} if none is set
+ * @param server      The server name
+ * @param world       The world name
+ * @param environment The world environment name
+ * @param ownerId     The owner's UUID, for homes
+ * @param ownerName   The owner's username, for homes
+ */
+public record PositionView(@NotNull UUID id, @NotNull String name, @NotNull String description,
+                           float x, float y, float z, short icon,
+                           @NotNull String server, @NotNull String world, @NotNull String environment,
+                           @Nullable UUID ownerId, @Nullable String ownerName) {
+
+    /**
+     * The meta tag holding a position's custom icon
+     */
+    public static final String ICON_TAG = "huskhomesgui:icon";
+    /**
+     * The meta tag holding a warp's category, shown as a tab in the warp list
+     */
+    public static final String CATEGORY_TAG = "huskhomesgui:category";
+    private static final Material[] MATERIALS = Material.values();
+    private static Function<SavedPosition, Optional<Material>> iconSource = position ->
+            Optional.ofNullable(position.getMeta().getTags().get(ICON_TAG)).map(Material::matchMaterial);
+
+    /**
+     * Set where custom icons are read from, e.g. the local GUI data store; defaults to the {@link #ICON_TAG} tag
+     *
+     * @param source Get the custom icon of a position
+     */
+    public static void setIconSource(@NotNull Function<SavedPosition, Optional<Material>> source) {
+        iconSource = source;
+    }
+
+    @NotNull
+    public static PositionView of(@NotNull SavedPosition position) {
+        final Material icon = iconSource.apply(position).orElse(null);
+        return new PositionView(position.getUuid(), position.getName(), position.getMeta().getDescription(),
+                (float) position.getX(), (float) position.getY(), (float) position.getZ(),
+                icon != null ? (short) icon.ordinal() : -1,
+                position.getServer().intern(), position.getWorld().getName().intern(),
+                position.getWorld().getEnvironment().name().intern(),
+                position instanceof Home home ? home.getOwner().getUuid() : null,
+                position instanceof Home home ? home.getOwner().getUsername() : null);
+    }
+
+    @NotNull
+    public static List<PositionView> of(@NotNull Collection<? extends SavedPosition> positions) {
+        final List<PositionView> views = new ArrayList<>(positions.size());
+        positions.forEach(position -> views.add(of(position)));
+        return views;
+    }
+
+    /**
+     * Get the custom icon material, if one is set
+     *
+     * @return the icon material
+     */
+    @NotNull
+    public Optional<Material> getIcon() {
+        return icon >= 0 && icon < MATERIALS.length ? Optional.of(MATERIALS[icon]) : Optional.empty();
+    }
+
+}
@@ -0,0 +1,719 @@
+/*
+ * This file is part of HuskHomesGUI, licensed under the Apache License 2.0.
+ *
+ *  Copyright (c) William278 <will27528@gmail.com>
+ *  Copyright (c) contributors
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+
+
+package net.william278.huskhomes.gui.store;
+
+import net.william278.huskhomes.gui.HuskHomesGui;
+import net.william278.huskhomes.gui.model.PositionView;
+import net.william278.huskhomes.gui.task.GuiExecutor;
+import net.william278.huskhomes.gui.task.TaskScheduler;
+import net.william278.huskhomes.position.SavedPosition;
+import net.william278.huskhomes.position.Warp;
+import org.bukkit.Material;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.*;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.logging.Level;
+import java.util.zip.CRC32;
+
+/**
+ * A small key-value store in the plugin folder for data the GUI owns: custom icons, warp categories, warp usage
+ * counts, menu sessions and recently visited positions
+ * <p>
+ * Keeping this data here rather than in HuskHomes meta tags means a GUI tweak never costs a round trip to the
+ * shared HuskHomes database. Writes are buffered in memory and appended to {@code store/data.log} once a second on
+ * the {@link GuiExecutor}. Periodically, once most of the log is overwritten or removed records, the log is
+ * compacted to its live records and {@code store/data.idx} is rewritten: a table of key hashes and record offsets,
+ * sorted by hash. The index is held in memory as two primitive arrays, so a read is a binary search of the index and
+ * a positional read of one record, with keys written since the last compaction looked up in a small in-memory table
+ * instead. The files are never memory-mapped, so they can be replaced while the server runs on any platform.
+ * <p>
+ * Each record is {@code keyLength, valueLength, key, value, crc32}; a value length of {@code -1} marks a removal.
+ * A torn record at the end of the log (e.g. after a crash) is dropped when the store is opened.
+ */
+public class GuiDataStore {
+
+    private static final String FOLDER = "store";
+    private static final String LOG_FILE = "data.log";
+    private static final String INDEX_FILE = "data.idx";
+    private static final int LOG_MAGIC = 0x48474C47;
+    private static final int INDEX_MAGIC = 0x48474958;
+    private static final int FORMAT_VERSION = 1;
+    // Magic, version and generation
+    private static final int LOG_HEADER_BYTES = 16;
+    // Magic, version, generation, length of the log the index covers, and entry count
+    private static final int INDEX_HEADER_BYTES = 28;
+    // Key hash and record offset
+    private static final int INDEX_ENTRY_BYTES = 16;
+    // Key length, value length and checksum
+    private static final int RECORD_OVERHEAD_BYTES = 12;
+    private static final int REMOVED = -1;
+    private static final long MIN_COMPACT_BYTES = 64 * 1024;
+    private static final long STOP_TIMEOUT_MILLIS = 5000;
+
+    private final HuskHomesGui plugin;
+    private final Path folder;
+    // Writes not yet appended to the log; a null value is a removal
+    private final Map<String, byte[]> pending = new LinkedHashMap<>();
+    // Offsets of records appended since the index was written; REMOVED for keys removed since
+    private final Map<String, Long> tail = new HashMap<>();
+    private FileChannel log;
+    private long generation;
+    private long logLength;
+    // Key hashes and record offsets of the index, sorted by hash
+    private long[] indexHashes = new long[0];
+    private long[] indexOffsets = new long[0];
+    private long garbageBytes;
+    private boolean flushing;
+    private TaskScheduler.Task flushTask;
+    private TaskScheduler.Task compactTask;
+
+    public GuiDataStore(@NotNull HuskHomesGui plugin) {
+        this.plugin = plugin;
+        this.folder = plugin.getDataFolder().toPath().resolve(FOLDER);
+    }
+
+    /**
+     * Open the store and start the flush and compaction timers
+     *
+     * @throws IOException if the store could not be opened
+     */
+    public void start() throws IOException {
+        synchronized (this) {
+            open();
+        }
+        this.flushTask = plugin.getScheduler().runGlobalTimer(this::flushAsync, 20L, 20L);
+        final long compactPeriod = plugin.getSettings().getStoreCompactIntervalMinutes() * 60L * 20L;
+        this.compactTask = plugin.getScheduler().runGlobalTimer(this::compactAsync, compactPeriod, compactPeriod);
+    }
+
+    /**
+     * Stop the timers, append any buffered writes and close the store
+     */
+    public synchronized void stop() {
+        if (flushTask != null) {
+            flushTask.cancel();
+            compactTask.cancel();
+        }
+        if (log == null) {
+            return;
+        }
+        try {
+            // Let an in-flight flush or compaction finish, so records are not written twice
+            final long deadline = System.currentTimeMillis() + STOP_TIMEOUT_MILLIS;
+            while (flushing && System.currentTimeMillis() < deadline) {
+                wait(Math.max(1, deadline - System.currentTimeMillis()));
+            }
+            flushNow();
+            log.close();
+        } catch (IOException e) {
+            plugin.getLogger().log(Level.WARNING, "Failed to close the GUI data store", e);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        log = null;
+    }
+
+    /**
+     * Whether the store's files are open; if not, writes are only kept in memory until shutdown
+     *
+     * @return {@code true} if the store was opened
+     */
+    public synchronized boolean isOpen() {
+        return log != null;
+    }
+
+    /**
+     * Get a value
+     *
+     * @param key The key
+     * @return the value, if one is stored
+     */
+    @NotNull
+    public synchronized Optional<byte[]> get(@NotNull String key) {
+        if (pending.containsKey(key)) {
+            return Optional.ofNullable(pending.get(key));
+        }
+        try {
+            final long offset = findRecord(key);
+            return offset == REMOVED ? Optional.empty() : Optional.ofNullable(readValue(offset));
+        } catch (IOException e) {
+            plugin.getLogger().log(Level.WARNING, "Failed to read " + key + " from the GUI data store", e);
+            return Optional.empty();
+        }
+    }
+
+    /**
+     * Store a value, replacing any value stored under its key
+     *
+     * @param key   The key
+     * @param value The value
+     */
+    public synchronized void put(@NotNull String key, @NotNull byte[] value) {
+        pending.put(key, value);
+    }
+
+    /**
+     * Remove a value
+     *
+     * @param key The key
+     */
+    public synchronized void remove(@NotNull String key) {
+        pending.put(key, null);
+    }
+
+    /**
+     * Get every value whose key starts with a prefix, e.g. all warp usage counts
+     *
+     * @param prefix The key prefix
+     * @return the matching keys and values
+     */
+    @NotNull
+    public synchronized Map<String, byte[]> getAll(@NotNull String prefix) {
+        final Set<String> keys = new HashSet<>();
+        try {
+            for (long offset : indexOffsets) {
+                final String key = readKey(offset);
+                if (key.startsWith(prefix)) {
+                    keys.add(key);
+                }
+            }
+        } catch (IOException e) {
+            plugin.getLogger().log(Level.WARNING, "Failed to read keys from the GUI data store", e);
+        }
+        tail.keySet().stream().filter(key -> key.startsWith(prefix)).forEach(keys::add);
+        pending.keySet().stream().filter(key -> key.startsWith(prefix)).forEach(keys::add);
+
+        final Map<String, byte[]> values = new HashMap<>(keys.size());
+        keys.forEach(key -> get(key).ifPresent(value -> values.put(key, value)));
+        return values;
+    }
+
+    /**
+     * Get a value, first moving it into the store from the file it used to be saved to, if that file still exists
+     *
+     * @param key        The key
+     * @param legacyFile The name of the old file in the plugin folder, e.g. {@code "sessions.txt"}
+     * @return the value, if one is stored
+     */
+    @NotNull
+    public Optional<byte[]> getOrImport(@NotNull String key, @NotNull String legacyFile) {
+        final Optional<byte[]> stored = get(key);
+        final Path legacy = plugin.getDataFolder().toPath().resolve(legacyFile);
+        if (stored.isPresent() || !Files.exists(legacy)) {
+            return stored;
+        }
+        try {
+            final byte[] value = Files.readAllBytes(legacy);
+            put(key, value);
+            if (isOpen()) {
+                Files.delete(legacy);
+            }
+            return Optional.of(value);
+        } catch (IOException e) {
+            plugin.getLogger().log(Level.WARNING, "Failed to move " + legacyFile + " into the GUI data store", e);
+            return Optional.empty();
+        }
+    }
+
+    @NotNull
+    public Optional<String> getString(@NotNull String key) {
+        return get(key).map(value -> new String(value, StandardCharsets.UTF_8));
+    }
+
+    public void putString(@NotNull String key, @NotNull String value) {
+        put(key, value.getBytes(StandardCharsets.UTF_8));
+    }
+
+    /**
+     * Get the custom icon of a home or warp, falling back to its legacy meta tag
+     *
+     * @param position The home or warp
+     * @return the icon material, if one is set
+     */
+    @NotNull
+    public Optional<Material> getIcon(@NotNull SavedPosition position) {
+        return getString(getIconKey(position.getUuid()))
+                .or(() -> Optional.ofNullable(position.getMeta().getTags().get(PositionView.ICON_TAG)))
+                .map(Material::matchMaterial);
+    }
+
+    public void setIcon(@NotNull UUID positionId, @NotNull Material material) {
+        putString(getIconKey(positionId), material.getKey().toString());
+    }
+
+    /**
+     * Get the category of a warp, falling back to its legacy meta tag
+     *
+     * @param warp The warp
+     * @return the category, or an empty string if the warp has none
+     */
+    @NotNull
+    public String getCategory(@NotNull Warp warp) {
+        return getString(getCategoryKey(warp.getUuid()))
+                .or(() -> Optional.ofNullable(warp.getMeta().getTags().get(PositionView.CATEGORY_TAG)))
+                .map(String::trim).orElse("");
+    }
+
+    /**
+     * Set or clear the category of a warp; an empty string stays stored, so that a legacy tag is not used instead
+     *
+     * @param warpId   The warp id
+     * @param category The category, or an empty string for none
+     */
+    public void setCategory(@NotNull UUID warpId, @NotNull String category) {
+        putString(getCategoryKey(warpId), category.trim());
+    }
+
+    /**
+     * Forget everything stored about a deleted home or warp
+     *
+     * @param positionId The position id
+     */
+    public void removePosition(@NotNull UUID positionId) {
+        remove(getIconKey(positionId));
+        remove(getCategoryKey(positionId));
+        remove("usage/" + positionId);
+    }
+
+    @NotNull
+    static String getIconKey(@NotNull UUID positionId) {
+        return "icon/" + positionId;
+    }
+
+    @NotNull
+    static String getCategoryKey(@NotNull UUID positionId) {
+        return "category/" + positionId;
+    }
+
+    // Open the log, drop a torn tail, load the index if it matches the log, and replay records written after it
+    private void open() throws IOException {
+        Files.createDirectories(folder);
+        final Path logPath = folder.resolve(LOG_FILE);
+        log = FileChannel.open(logPath, StandardOpenOption.CREATE, StandardOpenOption.READ, StandardOpenOption.WRITE);
+        final ByteBuffer header = ByteBuffer.allocate(LOG_HEADER_BYTES);
+        if (log.size() < LOG_HEADER_BYTES || log.read(header, 0) < LOG_HEADER_BYTES
+            || header.getInt(0) != LOG_MAGIC || header.getInt(4) != FORMAT_VERSION) {
+            if (log.size() > 0) {
+                plugin.getLogger().log(Level.WARNING, "The GUI data store log is not readable; starting a new one");
+                log.close();
+                Files.move(logPath, folder.resolve(LOG_FILE + ".unreadable"), StandardCopyOption.REPLACE_EXISTING);
+                log = FileChannel.open(logPath, StandardOpenOption.CREATE, StandardOpenOption.READ,
+                        StandardOpenOption.WRITE);
+            }
+            generation = ThreadLocalRandom.current().nextLong();
+            writeLogHeader(log, generation);
+        } else {
+            generation = header.getLong(8);
+        }
+        logLength = log.size();
+
+        final long covered = openIndex();
+        replay(covered);
+    }
+
+    // Load the index if it was written for this log; returns the log length it covers
+    private long openIndex() throws IOException {
+        indexHashes = new long[0];
+        indexOffsets = new long[0];
+        final Path indexPath = folder.resolve(INDEX_FILE);
+        if (!Files.exists(indexPath)) {
+            return LOG_HEADER_BYTES;
+        }
+        final ByteBuffer index = ByteBuffer.wrap(Files.readAllBytes(indexPath));
+        if (index.capacity() < INDEX_HEADER_BYTES) {
+            return LOG_HEADER_BYTES;
+        }
+        final long covered = index.getLong(16);
+        final int count = index.getInt(24);
+        if (index.getInt(0) != INDEX_MAGIC || index.getInt(4) != FORMAT_VERSION || index.getLong(8) != generation
+            || covered > logLength || index.capacity() != INDEX_HEADER_BYTES + (long) count * INDEX_ENTRY_BYTES) {
+            return LOG_HEADER_BYTES;
+        }
+        final long[] hashes = new long[count];
+        final long[] offsets = new long[count];
+        index.position(INDEX_HEADER_BYTES);
+        for (int i = 0; i < count; i++) {
+            hashes[i] = index.getLong();
+            offsets[i] = index.getLong();
+        }
+        indexHashes = hashes;
+        indexOffsets = offsets;
+        return covered;
+    }
+
+    // Re-read the records after the index into the tail table, truncating the log at the first torn record
+    private void replay(long from) throws IOException {
+        long position = from;
+        while (position < logLength) {
+            final int size = getRecordSize(position);
+            final ByteBuffer record = size >= 0 ? read(position, size) : null;
+            if (record == null || !isRecordIntact(record)) {
+                plugin.getLogger().log(Level.WARNING, "Dropping " + (logLength - position)
+                        + " unreadable bytes from the end of the GUI data store log");
+                log.truncate(position);
+                logLength = position;
+                break;
+            }
+            final String key = new String(record.array(), 8, record.getInt(0), StandardCharsets.UTF_8);
+            final boolean removed = record.getInt(4) == REMOVED;
+            addGarbage(findRecord(key));
+            tail.put(key, removed ? REMOVED : position);
+            if (removed) {
+                garbageBytes += size;
+            }
+            position += size;
+        }
+    }
+
+    // The offset of the newest appended record for a key, or REMOVED if there is none
+    private long findRecord(@NotNull String key) throws IOException {
+        final Long offset = tail.get(key);
+        if (offset != null) {
+            return offset;
+        }
+        final long hash = hash(key);
+        for (int i = lowerBound(indexHashes, hash); i < indexHashes.length && indexHashes[i] == hash; i++) {
+            if (readKey(indexOffsets[i]).equals(key)) {
+                return indexOffsets[i];
+            }
+        }
+        return REMOVED;
+    }
+
+    // The first position in a sorted array holding a value of at least the given one
+    private static int lowerBound(@NotNull long[] sorted, long value) {
+        int low = 0;
+        int high = sorted.length - 1;
+        while (low <= high) {
+            final int middle = (low + high) >>> 1;
+            if (sorted[middle] < value) {
+                low = middle + 1;
+            } else {
+                high = middle - 1;
+            }
+        }
+        return low;
+    }
+
+    @NotNull
+    private String readKey(long offset) throws IOException {
+        return readKey(log, offset);
+    }
+
+    @NotNull
+    private static String readKey(@NotNull FileChannel channel, long offset) throws IOException {
+        final int keyLength = read(channel, offset, 4).getInt(0);
+        return new String(read(channel, offset + 8, keyLength).array(), StandardCharsets.UTF_8);
+    }
+
+    @Nullable
+    private byte[] readValue(long offset) throws IOException {
+        final ByteBuffer header = read(offset, 8);
+        final int valueLength = header.getInt(4);
+        if (valueLength == REMOVED) {
+            return null;
+        }
+        return read(offset + 8 + header.getInt(0), valueLength).array();
+    }
+
+    // The size of the record at an offset, or -1 if its header runs past the end of the log
+    private int getRecordSize(long offset) throws IOException {
+        if (offset + 8 > logLength) {
+            return -1;
+        }
+        final ByteBuffer header = read(offset, 8);
+        final int keyLength = header.getInt(0);
+        final int valueLength = header.getInt(4);
+        if (keyLength < 0 || valueLength < REMOVED) {
+            return -1;
+        }
+        final long size = RECORD_OVERHEAD_BYTES + (long) keyLength + Math.max(0, valueLength);
+        return offset + size > logLength || size > Integer.MAX_VALUE ? -1 : (int) size;
+    }
+
+    private static boolean isRecordIntact(@NotNull ByteBuffer record) {
+        final CRC32 crc = new CRC32();
+        crc.update(record.array(), 0, record.capacity() - 4);
+        return (int) crc.getValue() == record.getInt(record.capacity() - 4);
+    }
+
+    @NotNull
+    private ByteBuffer read(long offset, int length) throws IOException {
+        return read(log, offset, length);
+    }
+
+    // Read bytes from the log at an offset; positional reads are safe alongside appends and other reads
+    @NotNull
+    private static ByteBuffer read(@NotNull FileChannel channel, long offset, int length) throws IOException {
+        final ByteBuffer buffer = ByteBuffer.allocate(length);
+        while (buffer.hasRemaining()) {
+            if (channel.read(buffer, offset + buffer.position()) < 0) {
+                throw new IOException("Unexpected end of the GUI data store log at " + (offset + buffer.position()));
+            }
+        }
+        return buffer.flip();
+    }
+
+    // Count a record that has been overwritten or removed towards compaction
+    private void addGarbage(long offset) throws IOException {
+        final int size = offset != REMOVED ? getRecordSize(offset) : -1;
+        if (size > 0) {
+            garbageBytes += size;
+        }
+    }
+
+    // Append buffered writes on the GUI executor, one flush at a time; the records are written outside the lock,
+    // and reads keep being served from the buffer until they are
+    private void flushAsync() {
+        final Map<String, byte[]> batch;
+        final long start;
+        synchronized (this) {
+            if (flushing || pending.isEmpty() || log == null) {
+                return;
+            }
+            flushing = true;
+            batch = new LinkedHashMap<>(pending);
+            start = logLength;
+        }
+        plugin.getGuiExecutor().supply(GuiExecutor.Operation.WRITE, this, "store-flush", () -> {
+            final long[] offsets = append(batch, start);
+            synchronized (this) {
+                applyAppended(batch, offsets);
+            }
+            return null;
+        }).whenComplete((result, error) -> {
+            synchronized (this) {
+                flushing = false;
+                notifyAll();
+            }
+            if (error != null) {
+                plugin.getLogger().log(Level.WARNING, "Failed to write to the GUI data store", error);
+            }
+        });
+    }
+
+    // Append buffered writes on the calling thread
+    synchronized void flush() throws IOException {
+        flushNow();
+    }
+
+    private void flushNow() throws IOException {
+        if (pending.isEmpty() || log == null) {
+            return;
+        }
+        final Map<String, byte[]> batch = new LinkedHashMap<>(pending);
+        applyAppended(batch, append(batch, logLength));
+    }
+
+    // Write a batch of records to the log and force them to disk; returns the offset of each record, followed by
+    // the new end of the log
+    @NotNull
+    private long[] append(@NotNull Map<String, byte[]> batch, long start) throws IOException {
+        final List<byte[]> keys = new ArrayList<>(batch.size());
+        int size = 0;
+        for (Map.Entry<String, byte[]> entry : batch.entrySet()) {
+            final byte[] key = entry.getKey().getBytes(StandardCharsets.UTF_8);
+            keys.add(key);
+            size += RECORD_OVERHEAD_BYTES + key.length + (entry.getValue() != null ? entry.getValue().length : 0);
+        }
+        final ByteBuffer buffer = ByteBuffer.allocate(size);
+        final long[] offsets = new long[batch.size() + 1];
+        int i = 0;
+        for (byte[] value : batch.values()) {
+            offsets[i] = start + buffer.position();
+            writeRecord(buffer, keys.get(i++), value);
+        }
+        offsets[i] = start + size;
+        buffer.flip();
+        while (buffer.hasRemaining()) {
+            log.write(buffer, start + buffer.position());
+        }
+        log.force(false);
+        return offsets;
+    }
+
+    // Point the tail table at appended records, and drop buffered writes that have not changed since
+    private void applyAppended(@NotNull Map<String, byte[]> batch, @NotNull long[] offsets) throws IOException {
+        int i = 0;
+        for (Map.Entry<String, byte[]> entry : batch.entrySet()) {
+            addGarbage(findRecord(entry.getKey()));
+            tail.put(entry.getKey(), entry.getValue() == null ? REMOVED : offsets[i]);
+            if (entry.getValue() == null) {
+                garbageBytes += offsets[i + 1] - offsets[i];
+            }
+            if (pending.containsKey(entry.getKey()) && pending.get(entry.getKey()) == entry.getValue()) {
+                pending.remove(entry.getKey());
+            }
+            i++;
+        }
+        logLength = offsets[offsets.length - 1];
+    }
+
+    private static void writeRecord(@NotNull ByteBuffer buffer, @NotNull byte[] key, @Nullable byte[] value) {
+        final int start = buffer.position();
+        buffer.putInt(key.length);
+        buffer.putInt(value != null ? value.length : REMOVED);
+        buffer.put(key);
+        if (value != null) {
+            buffer.put(value);
+        }
+        final CRC32 crc = new CRC32();
+        crc.update(buffer.array(), start, buffer.position() - start);
+        buffer.putInt((int) crc.getValue());
+    }
+
+    // Compact on the GUI executor once at least half of a large enough log is dead records; flushes wait meanwhile
+    private void compactAsync() {
+        synchronized (this) {
+            if (flushing || log == null || logLength < MIN_COMPACT_BYTES || garbageBytes * 2 < logLength) {
+                return;
+            }
+            flushing = true;
+        }
+        plugin.getGuiExecutor().supply(GuiExecutor.Operation.WRITE, this, "store-compact", () -> {
+            compact();
+            return null;
+        }).whenComplete((result, error) -> {
+            synchronized (this) {
+                flushing = false;
+                notifyAll();
+            }
+            if (error != null) {
+                plugin.getLogger().log(Level.WARNING, "Failed to compact the GUI data store", error);
+            }
+        });
+    }
+
+    // Rewrite the log with only live records under a new generation, then write the index for it. The new files are
+    // written outside the lock, so reads and writes carry on meanwhile; the log is append-only and flushes wait, so
+    // the records copied stay valid. The lock is only taken again to swap the new files in.
+    void compact() throws IOException {
+        final FileChannel source;
+        final long before;
+        final long[] indexed;
+        final Map<String, Long> appended;
+        synchronized (this) {
+            if (log == null) {
+                return;
+            }
+            flushNow();
+            source = log;
+            before = logLength;
+            indexed = indexOffsets;
+            appended = new HashMap<>(tail);
+        }
+
+        // Gather the newest offset of every live key
+        final Map<String, Long> live = new HashMap<>();
+        for (long offset : indexed) {
+            live.put(readKey(source, offset), offset);
+        }
+        live.putAll(appended);
+        live.values().removeIf(offset -> offset == REMOVED);
+
+        final long newGeneration = ThreadLocalRandom.current().nextLong();
+        final Path logTemp = folder.resolve(LOG_FILE + ".tmp");
+        final Path indexTemp = folder.resolve(INDEX_FILE + ".tmp");
+        final long[][] entries = new long[live.size()][];
+        long newLength = LOG_HEADER_BYTES;
+        try (FileChannel out = FileChannel.open(logTemp, StandardOpenOption.CREATE, StandardOpenOption.WRITE,
+                StandardOpenOption.TRUNCATE_EXISTING)) {
+            writeLogHeader(out, newGeneration);
+            out.position(LOG_HEADER_BYTES);
+            int i = 0;
+            for (Map.Entry<String, Long> entry : live.entrySet()) {
+                final long offset = entry.getValue();
+                final ByteBuffer header = read(source, offset, 8);
+                final long size = RECORD_OVERHEAD_BYTES + (long) header.getInt(0) + Math.max(0, header.getInt(4));
+                entries[i++] = new long[]{hash(entry.getKey()), newLength};
+                for (long copied = 0; copied < size; ) {
+                    copied += source.transferTo(offset + copied, size - copied, out);
+                }
+                newLength += size;
+            }
+            out.force(false);
+        }
+
+        Arrays.sort(entries, Comparator.comparingLong((long[] entry) -> entry[0]).thenComparingLong(entry -> entry[1]));
+        final ByteBuffer index = ByteBuffer.allocate(INDEX_HEADER_BYTES + entries.length * INDEX_ENTRY_BYTES);
+        index.putInt(INDEX_MAGIC).putInt(FORMAT_VERSION).putLong(newGeneration).putLong(newLength)
+                .putInt(entries.length);
+        for (long[] entry : entries) {
+            index.putLong(entry[0]).putLong(entry[1]);
+        }
+        Files.write(indexTemp, index.array());
+
+        synchronized (this) {
+            if (log != source || logLength != before) {
+                // The store was closed, and its buffered writes appended, while compacting; keep the log as it is
+                Files.deleteIfExists(logTemp);
+                Files.deleteIfExists(indexTemp);
+                return;
+            }
+
+            // Swap in the compacted log first; until the index is swapped too, its generation no longer matches and
+            // a restart would simply replay the whole compacted log
+            log.close();
+            try {
+                Files.move(logTemp, folder.resolve(LOG_FILE), StandardCopyOption.REPLACE_EXISTING,
+                        StandardCopyOption.ATOMIC_MOVE);
+                Files.move(indexTemp, folder.resolve(INDEX_FILE), StandardCopyOption.REPLACE_EXISTING,
+                        StandardCopyOption.ATOMIC_MOVE);
+            } finally {
+                // Reopen whichever log is now in place, rebuilding the tail table from it
+                tail.clear();
+                garbageBytes = 0;
+                open();
+            }
+        }
+        plugin.getLogger().log(Level.INFO, String.format("Compacted the GUI data store from %d to %d bytes",
+                before, newLength));
+    }
+
+    private static void writeLogHeader(@NotNull FileChannel channel, long generation) throws IOException {
+        final ByteBuffer header = ByteBuffer.allocate(LOG_HEADER_BYTES);
+        header.putInt(LOG_MAGIC).putInt(FORMAT_VERSION).putLong(generation).flip();
+        while (header.hasRemaining()) {
+            channel.write(header, header.position());
+        }
+    }
+
+    // 64-bit FNV-1a over the key's UTF-8 bytes
+    private static long hash(@NotNull String key) {
+        long hash = 0xcbf29ce484222325L;
+        for (byte b : key.getBytes(StandardCharsets.UTF_8)) {
+            hash ^= b & 0xff;
+            hash *= 0x100000001b3L;
+        }
+        return hash;
+    }
+
+}
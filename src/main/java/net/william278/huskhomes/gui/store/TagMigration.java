@@ -0,0 +1,163 @@
+/*
+ * This file is part of HuskHomesGUI, licensed under the Apache License 2.0.
+ *
+ *  Copyright (c) William278 <will27528@gmail.com>
+ *  Copyright (c) contributors
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+
+
+package net.william278.huskhomes.gui.store;
+
+import net.william278.huskhomes.gui.HuskHomesGui;
+import net.william278.huskhomes.gui.hook.HuskHomesHook;
+import net.william278.huskhomes.gui.model.PositionView;
+import net.william278.huskhomes.gui.task.GuiExecutor;
+import net.william278.huskhomes.gui.task.TaskScheduler;
+import net.william278.huskhomes.position.SavedPosition;
+import net.william278.huskhomes.position.Warp;
+import net.william278.huskhomes.user.User;
+import org.bukkit.OfflinePlayer;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+import java.util.*;
+import java.util.logging.Level;
+
+/**
+ * Copies the icons and warp categories the GUI used to keep in HuskHomes meta tags into the {@link GuiDataStore}, once
+ * <p>
+ * Warps are copied in one go. HuskHomes has no query for every home, so homes are copied by scanning the homes of
+ * every player who has played on the server in UUID order, a capped number of players per second; the last player
+ * scanned is saved in the store, so a restart carries on after them even if players have joined since. Values already
+ * in the store are never overwritten, and the tags themselves are left in place (until migrated, positions still fall
+ * back to them).
+ */
+public class TagMigration {
+
+    private static final String DONE_KEY = "migration/meta-tags";
+    private static final String PROGRESS_KEY = "migration/meta-tags-last-player";
+
+    private final HuskHomesGui plugin;
+    private final Deque<User> unscanned = new ArrayDeque<>();
+    @Nullable
+    private UUID lastScanned;
+    private int copied;
+    private boolean batchRunning;
+    private TaskScheduler.Task timer;
+
+    public TagMigration(@NotNull HuskHomesGui plugin) {
+        this.plugin = plugin;
+    }
+
+    /**
+     * Start or resume the migration, unless it has already completed
+     */
+    public void start() {
+        final GuiDataStore store = plugin.getDataStore();
+        if (store.get(DONE_KEY).isPresent()) {
+            return;
+        }
+        lastScanned = store.getString(PROGRESS_KEY).map(UUID::fromString).orElse(null);
+        final HuskHomesHook api = plugin.getHuskHomes();
+        plugin.getGuiExecutor().supply(GuiExecutor.Operation.READ, this, "migrate-warp-tags", () -> {
+            if (lastScanned == null) {
+                api.getWarps().get().forEach(this::copy);
+            }
+            // Sorted, so that the scan resumes after the last player scanned
+            return Arrays.stream(plugin.getServer().getOfflinePlayers())
+                    .filter(player -> player.getName() != null)
+                    .filter(player -> lastScanned == null || player.getUniqueId().compareTo(lastScanned) > 0)
+                    .sorted(Comparator.comparing(OfflinePlayer::getUniqueId))
+                    .map(player -> User.of(player.getUniqueId(), player.getName()))
+                    .toList();
+        }).thenAccept(owners -> {
+            synchronized (this) {
+                unscanned.addAll(owners);
+            }
+            plugin.getLogger().log(Level.INFO, "Moving GUI icons from HuskHomes meta tags to the local data store ("
+                                               + owners.size() + " players left to scan)");
+            timer = plugin.getScheduler().runGlobalTimer(this::scanNext, 20L, 20L);
+        }).exceptionally(e -> {
+            plugin.getLogger().log(Level.WARNING, "Failed to start moving GUI meta tags to the data store", e);
+            return null;
+        });
+    }
+
+    public void stop() {
+        if (timer != null) {
+            timer.cancel();
+        }
+        plugin.getGuiExecutor().cancel(this);
+    }
+
+    private void scanNext() {
+        final List<User> batch = new ArrayList<>();
+        synchronized (this) {
+            if (batchRunning) {
+                return;
+            }
+            while (batch.size() < plugin.getSettings().getBulkScanPlayersPerSecond() && !unscanned.isEmpty()) {
+                batch.add(unscanned.poll());
+            }
+            if (batch.isEmpty()) {
+                timer.cancel();
+                plugin.getDataStore().putString(DONE_KEY, "1");
+                plugin.getDataStore().remove(PROGRESS_KEY);
+                plugin.getLogger().log(Level.INFO, "Finished moving GUI meta tags to the local data store ("
+                                                   + copied + " values copied)");
+                return;
+            }
+            batchRunning = true;
+        }
+
+        final HuskHomesHook api = plugin.getHuskHomes();
+        plugin.getGuiExecutor().supply(GuiExecutor.Operation.READ, this, "migrate-home-tags", () -> {
+            for (User user : batch) {
+                api.getUserHomes(user).get().forEach(this::copy);
+            }
+            return null;
+        }).whenComplete((result, error) -> {
+            synchronized (this) {
+                batchRunning = false;
+                if (error != null) {
+                    // Try the batch again next time
+                    batch.reversed().forEach(unscanned::addFirst);
+                    plugin.getLogger().log(Level.WARNING, "Failed to read homes while moving GUI meta tags", error);
+                    return;
+                }
+                lastScanned = batch.getLast().getUuid();
+                plugin.getDataStore().putString(PROGRESS_KEY, lastScanned.toString());
+            }
+        });
+    }
+
+    // Copy a position's legacy tags into the store, unless the store already has a value for them
+    private void copy(@NotNull SavedPosition position) {
+        final GuiDataStore store = plugin.getDataStore();
+        final Map<String, String> tags = position.getMeta().getTags();
+        final String icon = tags.get(PositionView.ICON_TAG);
+        if (icon != null && store.get(GuiDataStore.getIconKey(position.getUuid())).isEmpty()) {
+            store.putString(GuiDataStore.getIconKey(position.getUuid()), icon);
+            copied++;
+        }
+        final String category = tags.get(PositionView.CATEGORY_TAG);
+        if (position instanceof Warp && category != null
+            && store.get(GuiDataStore.getCategoryKey(position.getUuid())).isEmpty()) {
+            store.putString(GuiDataStore.getCategoryKey(position.getUuid()), category.trim());
+            copied++;
+        }
+    }
+
+}
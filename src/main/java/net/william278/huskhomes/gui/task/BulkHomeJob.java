@@ -0,0 +1,436 @@
+/*
+ * This file is part of HuskHomesGUI, licensed under the Apache License 2.0.
+ *
+ *  Copyright (c) William278 <will27528@gmail.com>
+ *  Copyright (c) contributors
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+
+
+package net.william278.huskhomes.gui.task;
+
+import de.themoep.minedown.adventure.MineDown;
+import net.kyori.adventure.audience.Audience;
+import net.kyori.adventure.bossbar.BossBar;
+import net.kyori.adventure.text.Component;
+import net.william278.huskhomes.gui.HuskHomesGui;
+import net.william278.huskhomes.gui.hook.HuskHomesHook;
+import net.william278.huskhomes.gui.store.GuiDataStore;
+import net.william278.huskhomes.position.Home;
+import net.william278.huskhomes.user.SavedUser;
+import net.william278.huskhomes.user.User;
+import org.bukkit.OfflinePlayer;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.*;
+import java.util.logging.Level;
+
+/**
+ * A staff cleanup that selects homes by world, server, owner and age, then deletes them at a throttled rate
+ * <p>
+ * HuskHomes has no query for every home, so the scan reads the homes of each known player, a capped number of
+ * players per second. Deletion runs one small batch per second on the {@link GuiExecutor}, never more than one
+ * batch at a time, at no more than the configured writes per second; if a batch is slow the rate is halved and
+ * then grows back by one per batch, so cleanups give way to live database work. HuskHomes writes a deletion before
+ * returning, so the batch time covers the writes themselves. The matched home ids are saved in the
+ * {@link GuiDataStore} when deletion starts and the progress after every batch, so a cleanup interrupted by a restart
+ * can be resumed.
+ */
+public class BulkHomeJob {
+
+    private static final String CHECKPOINT_IDS_KEY = "bulk-cleanup/ids";
+    private static final String CHECKPOINT_PROGRESS_KEY = "bulk-cleanup/progress";
+    private static final String LEGACY_IDS_FILE = "bulk-cleanup.ids";
+    private static final String LEGACY_PROGRESS_FILE = "bulk-cleanup.progress";
+    private static final String BANNED_OWNERS = "#banned";
+    // Batches slower than this halve the delete rate
+    private static final long SLOW_BATCH_MILLIS = 1000L;
+
+    private final HuskHomesGui plugin;
+    private final Filter filter;
+    private final UUID staffId;
+    private final List<UUID> matches = new ArrayList<>();
+    private final Deque<User> unscanned = new ArrayDeque<>();
+    private volatile State state = State.NEW;
+    private volatile int players;
+    private volatile int processed;
+    private volatile int failed;
+    private int rate;
+    private boolean batchRunning;
+    private volatile TaskScheduler.Task timer;
+    private BossBar progressBar;
+    private Runnable onChange = () -> {
+    };
+
+    private BulkHomeJob(@NotNull HuskHomesGui plugin, @NotNull Filter filter, @NotNull UUID staffId) {
+        this.plugin = plugin;
+        this.filter = filter;
+        this.staffId = staffId;
+        this.rate = plugin.getSettings().getBulkWritesPerSecond();
+    }
+
+    @NotNull
+    public static BulkHomeJob create(@NotNull HuskHomesGui plugin, @NotNull Filter filter, @NotNull UUID staffId) {
+        return new BulkHomeJob(plugin, filter, staffId);
+    }
+
+    /**
+     * Load a cleanup that was interrupted before it finished deleting
+     *
+     * @param plugin  The plugin instance
+     * @param staffId The staff member resuming it
+     * @return the interrupted cleanup, ready to resume, if there is one
+     */
+    @NotNull
+    public static Optional<BulkHomeJob> loadCheckpoint(@NotNull HuskHomesGui plugin, @NotNull UUID staffId) {
+        final GuiDataStore store = plugin.getDataStore();
+        final Optional<byte[]> savedIds = store.getOrImport(CHECKPOINT_IDS_KEY, LEGACY_IDS_FILE);
+        final Optional<byte[]> savedProgress = store.getOrImport(CHECKPOINT_PROGRESS_KEY, LEGACY_PROGRESS_FILE);
+        if (savedIds.isEmpty() || savedProgress.isEmpty()) {
+            return Optional.empty();
+        }
+        try {
+            final List<String> ids = new String(savedIds.get(), StandardCharsets.UTF_8).lines().toList();
+            final String[] progress = new String(savedProgress.get(), StandardCharsets.UTF_8).trim().split("\t", -1);
+            final BulkHomeJob job = new BulkHomeJob(plugin, Filter.deserialize(ids.getFirst()), staffId);
+            ids.subList(1, ids.size()).forEach(id -> job.matches.add(UUID.fromString(id)));
+            job.processed = Integer.parseInt(progress[0]);
+            job.failed = Integer.parseInt(progress[1]);
+            job.state = State.READY;
+            return Optional.of(job);
+        } catch (RuntimeException e) {
+            plugin.getLogger().log(Level.WARNING, "Failed to load bulk cleanup checkpoint", e);
+            return Optional.empty();
+        }
+    }
+
+    /**
+     * Set a callback run whenever the job's progress changes, e.g. to redraw a menu
+     *
+     * @param onChange The callback; may run on any thread
+     */
+    public void setOnChange(@NotNull Runnable onChange) {
+        this.onChange = onChange;
+    }
+
+    /**
+     * Count the homes matching the filter, a capped number of players per second
+     */
+    public void preview() {
+        if (state != State.NEW) {
+            return;
+        }
+        state = State.SCANNING;
+        plugin.getGuiExecutor().supply(GuiExecutor.Operation.READ, this, "bulk-resolve-owners", this::getOwners)
+                .thenAccept(owners -> {
+                    synchronized (this) {
+                        unscanned.addAll(owners);
+                        players = owners.size();
+                    }
+                    timer = plugin.getScheduler().runGlobalTimer(this::scanNext, 1L, 20L);
+                }).exceptionally(e -> {
+                    plugin.getLogger().log(Level.WARNING, "Failed to resolve bulk cleanup owners", e);
+                    cancel();
+                    return null;
+                });
+    }
+
+    // The players whose homes to scan: a named owner, banned players, or everyone who has played here
+    @NotNull
+    private List<User> getOwners() throws Exception {
+        final HuskHomesHook api = plugin.getHuskHomes();
+        if (filter.owner() != null && !filter.owner().equalsIgnoreCase(BANNED_OWNERS)) {
+            return api.getUserData(filter.owner()).get().map(SavedUser::getUser).map(List::of).orElse(List.of());
+        }
+        final Collection<OfflinePlayer> players = filter.owner() != null ? plugin.getServer().getBannedPlayers()
+                : Arrays.asList(plugin.getServer().getOfflinePlayers());
+        return players.stream().filter(player -> player.getName() != null)
+                .map(player -> User.of(player.getUniqueId(), player.getName())).toList();
+    }
+
+    private void scanNext() {
+        final List<User> batch = new ArrayList<>();
+        synchronized (this) {
+            if (batchRunning) {
+                return;
+            }
+            while (batch.size() < plugin.getSettings().getBulkScanPlayersPerSecond() && !unscanned.isEmpty()) {
+                batch.add(unscanned.poll());
+            }
+            if (batch.isEmpty()) {
+                timer.cancel();
+                state = State.READY;
+                onChange.run();
+                return;
+            }
+            batchRunning = true;
+        }
+
+        final HuskHomesHook api = plugin.getHuskHomes();
+        plugin.getGuiExecutor().supply(GuiExecutor.Operation.READ, this, "bulk-scan", () -> {
+            final List<UUID> found = new ArrayList<>();
+            for (User user : batch) {
+                api.getUserHomes(user).get().stream().filter(filter::matches).map(Home::getUuid).forEach(found::add);
+            }
+            return found;
+        }).whenComplete((found, error) -> {
+            synchronized (this) {
+                batchRunning = false;
+                if (found != null) {
+                    matches.addAll(found);
+                }
+            }
+            if (error != null) {
+                plugin.getLogger().log(Level.WARNING, "Failed to scan homes for bulk cleanup", error);
+            }
+            onChange.run();
+        });
+    }
+
+    /**
+     * Start (or resume) deleting the matched homes
+     */
+    public void run() {
+        if (state != State.READY) {
+            return;
+        }
+        state = State.RUNNING;
+        if (processed == 0) {
+            saveIds();
+        }
+        plugin.getAudiences().player(staffId).showBossBar(getProgressBar());
+        timer = plugin.getScheduler().runGlobalTimer(this::deleteNext, 1L, 20L);
+        onChange.run();
+    }
+
+    private void deleteNext() {
+        final List<UUID> batch;
+        synchronized (this) {
+            if (batchRunning || state != State.RUNNING) {
+                return;
+            }
+            if (processed >= matches.size()) {
+                finish();
+                return;
+            }
+            batch = new ArrayList<>(matches.subList(processed, Math.min(matches.size(), processed + rate)));
+            batchRunning = true;
+        }
+
+        final HuskHomesHook api = plugin.getHuskHomes();
+        final long startedAt = System.currentTimeMillis();
+        plugin.getGuiExecutor().supply(GuiExecutor.Operation.WRITE, this, "bulk-delete", () -> {
+            int failures = 0;
+            for (UUID id : batch) {
+                try {
+                    api.getHome(id).get().ifPresent(api::deleteHome);
+                } catch (InterruptedException e) {
+                    // The executor is shutting down; fail the batch so it is retried when the cleanup is resumed
+                    throw e;
+                } catch (Exception e) {
+                    failures++;
+                }
+            }
+            return failures;
+        }).whenComplete((failures, error) -> {
+            synchronized (this) {
+                batchRunning = false;
+                if (error != null) {
+                    plugin.getLogger().log(Level.WARNING, "Bulk cleanup batch failed; it will be retried", error);
+                    rate = Math.max(1, rate / 2);
+                    return;
+                }
+                processed += batch.size();
+                failed += failures;
+                final long took = System.currentTimeMillis() - startedAt;
+                rate = took > SLOW_BATCH_MILLIS ? Math.max(1, rate / 2)
+                        : Math.min(plugin.getSettings().getBulkWritesPerSecond(), rate + 1);
+            }
+            saveProgress();
+            getProgressBar().progress(getProgress()).name(getProgressTitle());
+            onChange.run();
+        });
+    }
+
+    private void finish() {
+        state = State.DONE;
+        timer.cancel();
+        final Audience staff = plugin.getAudiences().player(staffId);
+        staff.hideBossBar(getProgressBar());
+        plugin.getLocales().getRawLocale("admin_bulk_done", Integer.toString(processed - failed),
+                Integer.toString(failed)).ifPresent(locale -> staff.sendMessage(new MineDown(locale).toComponent()));
+        clearCheckpoint(plugin);
+        onChange.run();
+    }
+
+    /**
+     * Stop the job; an interrupted deletion keeps its checkpoint so it can be resumed later
+     */
+    public void stop() {
+        if (timer != null) {
+            timer.cancel();
+        }
+        plugin.getGuiExecutor().cancel(this);
+        if (progressBar != null) {
+            plugin.getAudiences().player(staffId).hideBossBar(progressBar);
+        }
+    }
+
+    /**
+     * Stop the job and discard its checkpoint
+     */
+    public void cancel() {
+        stop();
+        state = State.CANCELLED;
+        clearCheckpoint(plugin);
+        onChange.run();
+    }
+
+    @NotNull
+    private BossBar getProgressBar() {
+        if (progressBar == null) {
+            progressBar = BossBar.bossBar(getProgressTitle(), getProgress(), BossBar.Color.RED, BossBar.Overlay.NOTCHED_20);
+        }
+        return progressBar;
+    }
+
+    @NotNull
+    private Component getProgressTitle() {
+        return Component.text(plugin.getLocales().getLocale("admin_bulk_progress_bar",
+                Integer.toString(getProcessed()), Integer.toString(getMatchCount())));
+    }
+
+    private void saveIds() {
+        final List<String> lines = new ArrayList<>(matches.size() + 1);
+        lines.add(filter.serialize());
+        synchronized (this) {
+            matches.forEach(id -> lines.add(id.toString()));
+        }
+        plugin.getDataStore().putString(CHECKPOINT_IDS_KEY, String.join("\n", lines));
+        saveProgress();
+    }
+
+    private void saveProgress() {
+        plugin.getDataStore().putString(CHECKPOINT_PROGRESS_KEY, processed + "\t" + failed);
+    }
+
+    private static void clearCheckpoint(@NotNull HuskHomesGui plugin) {
+        plugin.getDataStore().remove(CHECKPOINT_IDS_KEY);
+        plugin.getDataStore().remove(CHECKPOINT_PROGRESS_KEY);
+    }
+
+    @NotNull
+    public Filter getFilter() {
+        return filter;
+    }
+
+    @NotNull
+    public State getState() {
+        return state;
+    }
+
+    public synchronized int getMatchCount() {
+        return matches.size();
+    }
+
+    public int getPlayerCount() {
+        return players;
+    }
+
+    public synchronized int getScannedPlayerCount() {
+        return players - unscanned.size();
+    }
+
+    public synchronized int getProcessed() {
+        return processed;
+    }
+
+    public synchronized float getProgress() {
+        return matches.isEmpty() ? 1f : Math.min(1f, (float) processed / matches.size());
+    }
+
+    /**
+     * The stages of a cleanup
+     */
+    public enum State {
+        NEW,
+        SCANNING,
+        READY,
+        RUNNING,
+        DONE,
+        CANCELLED
+    }
+
+    /**
+     * Which homes a cleanup selects; unset criteria match every home
+     *
+     * @param world       The world name
+     * @param server      The server name
+     * @param owner       The owner's username, or {@code #banned} for all banned players
+     * @param minAgeDays  The minimum age in days, or {@code 0} for any age
+     */
+    public record Filter(@Nullable String world, @Nullable String server, @Nullable String owner, int minAgeDays) {
+        public static final Filter ANY = new Filter(null, null, null, 0);
+
+        public boolean matches(@NotNull Home home) {
+            return (world == null || world.equalsIgnoreCase(home.getWorld().getName()))
+                   && (server == null || server.equalsIgnoreCase(home.getServer()))
+                   && (minAgeDays <= 0 || home.getMeta().getCreationTime()
+                    .isBefore(Instant.now().minus(Duration.ofDays(minAgeDays))));
+        }
+
+        @NotNull
+        public Filter withWorld(@Nullable String world) {
+            return new Filter(blankToNull(world), server, owner, minAgeDays);
+        }
+
+        @NotNull
+        public Filter withServer(@Nullable String server) {
+            return new Filter(world, blankToNull(server), owner, minAgeDays);
+        }
+
+        @NotNull
+        public Filter withOwner(@Nullable String owner) {
+            return new Filter(world, server, blankToNull(owner), minAgeDays);
+        }
+
+        @NotNull
+        public Filter withMinAgeDays(int minAgeDays) {
+            return new Filter(world, server, owner, Math.max(0, minAgeDays));
+        }
+
+        @NotNull
+        private String serialize() {
+            return String.join("\t", Objects.requireNonNullElse(world, ""), Objects.requireNonNullElse(server, ""),
+                    Objects.requireNonNullElse(owner, ""), Integer.toString(minAgeDays));
+        }
+
+        @NotNull
+        private static Filter deserialize(@NotNull String line) {
+            final String[] parts = line.split("\t", -1);
+            return new Filter(blankToNull(parts[0]), blankToNull(parts[1]), blankToNull(parts[2]),
+                    Integer.parseInt(parts[3]));
+        }
+
+        @Nullable
+        private static String blankToNull(@Nullable String value) {
+            return value == null || value.isBlank() ? null : value.trim();
+        }
+    }
+
+}
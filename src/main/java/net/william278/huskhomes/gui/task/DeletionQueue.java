@@ -0,0 +1,215 @@
+/*
+ * This file is part of HuskHomesGUI, licensed under the Apache License 2.0.
+ *
+ *  Copyright (c) William278 <will27528@gmail.com>
+ *  Copyright (c) contributors
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+
+
+package net.william278.huskhomes.gui.task;
+
+import net.william278.huskhomes.gui.HuskHomesGui;
+import net.william278.huskhomes.gui.hook.HuskHomesHook;
+import net.william278.huskhomes.gui.model.PositionView;
+import net.william278.huskhomes.position.Home;
+import net.william278.huskhomes.position.SavedPosition;
+import net.william278.huskhomes.position.Warp;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.logging.Level;
+
+/**
+ * Holds homes and warps deleted from the GUI as tombstones until their undo window has passed, then commits the
+ * deletions to HuskHomes in batches
+ * <p>
+ * Tombstoned positions are hidden from every open menu straight away and can be restored with {@link #undo(UUID)}
+ * until they are committed, which shows them in open menus again. Due tombstones are collected once a second and
+ * deleted in a single write-behind task on the {@link GuiExecutor}, so a burst of deletions costs one task rather
+ * than one per click. Outstanding tombstones are committed on the disabling thread when the plugin is disabled, as
+ * the executor is shut down straight after.
+ * <p>
+ * Only the home lists have an undo button, so warps are committed on the next flush rather than held for the undo
+ * window; they are still hidden from menus until then.
+ */
+public class DeletionQueue {
+
+    private final HuskHomesGui plugin;
+    private final Map<UUID, Tombstone> tombstones = new ConcurrentHashMap<>();
+    private TaskScheduler.Task flushTask;
+
+    public DeletionQueue(@NotNull HuskHomesGui plugin) {
+        this.plugin = plugin;
+    }
+
+    public void start() {
+        this.flushTask = plugin.getScheduler().runGlobalTimer(() -> commit(false), 20L, 20L);
+    }
+
+    /**
+     * Stop the flush timer and commit every outstanding tombstone, blocking until they are deleted
+     */
+    public void stop() {
+        if (flushTask != null) {
+            flushTask.cancel();
+            flushTask = null;
+        }
+        final List<Tombstone> due = takeDue(true);
+        if (!due.isEmpty()) {
+            deleteAll(due);
+        }
+    }
+
+    /**
+     * Tombstone a home or warp, deleting it once the undo window has passed
+     *
+     * @param view     The view of the position to delete
+     * @param position The position, if already loaded; otherwise it is looked up when the deletion is committed
+     */
+    public void delete(@NotNull PositionView view, @Nullable SavedPosition position) {
+        final Kind kind = position instanceof Warp ? Kind.WARP : Kind.HOME;
+        final long undoMillis = kind == Kind.HOME ? plugin.getSettings().getDeletionUndoSeconds() * 1000L : 0;
+        tombstones.put(view.id(), new Tombstone(view, kind, position, System.currentTimeMillis() + undoMillis));
+        plugin.getLiveMenus().positionDeleted(view);
+        if (undoMillis <= 0) {
+            commit(false);
+        }
+    }
+
+    /**
+     * Restore a tombstoned position, if its deletion has not been committed yet
+     *
+     * @param positionId The id of the position
+     * @return the restored position's view, if it was still tombstoned
+     */
+    @NotNull
+    public Optional<PositionView> undo(@NotNull UUID positionId) {
+        final Tombstone tombstone = tombstones.remove(positionId);
+        if (tombstone == null) {
+            return Optional.empty();
+        }
+        restored(tombstone);
+        return Optional.of(tombstone.view());
+    }
+
+    /**
+     * Whether a position is tombstoned and should be hidden from menus
+     *
+     * @param positionId The id of the position
+     * @return {@code true} if the position is awaiting deletion
+     */
+    public boolean isDeleted(@NotNull UUID positionId) {
+        return tombstones.containsKey(positionId);
+    }
+
+    /**
+     * Remove tombstoned positions from a list fetched from HuskHomes
+     *
+     * @param positions The positions
+     * @return the positions that are not awaiting deletion
+     */
+    @NotNull
+    public <T extends SavedPosition> List<T> filter(@NotNull List<T> positions) {
+        if (tombstones.isEmpty()) {
+            return positions;
+        }
+        return positions.stream().filter(position -> !isDeleted(position.getUuid())).toList();
+    }
+
+    /**
+     * Get the most recently tombstoned home of an owner that can still be restored
+     *
+     * @param ownerId The owner's UUID
+     * @return the view of the home, if the owner has one awaiting deletion
+     */
+    @NotNull
+    public Optional<PositionView> getLatestHome(@NotNull UUID ownerId) {
+        return tombstones.values().stream()
+                .filter(tombstone -> tombstone.kind() == Kind.HOME && ownerId.equals(tombstone.view().ownerId()))
+                .max(Comparator.comparingLong(Tombstone::commitAt))
+                .map(Tombstone::view);
+    }
+
+    // Show a restored position in the other open menus again; homes deleted from a list are looked up first
+    private void restored(@NotNull Tombstone tombstone) {
+        if (tombstone.position() instanceof Home home) {
+            plugin.getLiveMenus().homeUpdated(home);
+            return;
+        }
+        if (tombstone.position() instanceof Warp warp) {
+            plugin.getLiveMenus().warpUpdated(warp);
+            return;
+        }
+        plugin.getGuiExecutor().supply(GuiExecutor.Operation.READ, this, "restore-home",
+                () -> plugin.getHuskHomes().getHome(tombstone.view().id()).get()
+        ).thenAccept(home -> home.ifPresent(plugin.getLiveMenus()::homeUpdated)).exceptionally(e -> {
+            plugin.getLogger().log(Level.WARNING, "Failed to show restored home " + tombstone.view().name(), e);
+            return null;
+        });
+    }
+
+    // Take the due tombstones and delete them in one write-behind task
+    private void commit(boolean all) {
+        final List<Tombstone> due = takeDue(all);
+        if (due.isEmpty()) {
+            return;
+        }
+        plugin.getGuiExecutor().run(GuiExecutor.Operation.WRITE, this, "commit-deletions", () -> deleteAll(due))
+                .exceptionally(e -> {
+                    plugin.getLogger().log(Level.WARNING, "Failed to commit " + due.size() + " deletions", e);
+                    return null;
+                });
+    }
+
+    @NotNull
+    private List<Tombstone> takeDue(boolean all) {
+        final long now = System.currentTimeMillis();
+        final List<Tombstone> due = new ArrayList<>();
+        for (Tombstone tombstone : tombstones.values()) {
+            if ((all || tombstone.commitAt() <= now) && tombstones.remove(tombstone.view().id(), tombstone)) {
+                due.add(tombstone);
+            }
+        }
+        return due;
+    }
+
+    private void deleteAll(@NotNull List<Tombstone> due) {
+        final HuskHomesHook api = plugin.getHuskHomes();
+        for (Tombstone tombstone : due) {
+            try {
+                switch (tombstone.kind()) {
+                    case HOME -> (tombstone.position() instanceof Home home ? Optional.of(home)
+                            : api.getHome(tombstone.view().id()).get()).ifPresent(api::deleteHome);
+                    case WARP -> (tombstone.position() instanceof Warp warp ? Optional.of(warp)
+                            : api.getWarp(tombstone.view().name()).get()).ifPresent(api::deleteWarp);
+                }
+            } catch (Exception e) {
+                plugin.getLogger().log(Level.WARNING, "Failed to delete " + tombstone.view().name(), e);
+            }
+        }
+    }
+
+    private enum Kind {
+        HOME,
+        WARP
+    }
+
+    private record Tombstone(@NotNull PositionView view, @NotNull Kind kind, @Nullable SavedPosition position,
+                             long commitAt) {
+    }
+
+}
@@ -0,0 +1,83 @@
+/*
+ * This file is part of HuskHomesGUI, licensed under the Apache License 2.0.
+ *
+ *  Copyright (c) William278 <will27528@gmail.com>
+ *  Copyright (c) contributors
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+
+
+package net.william278.huskhomes.gui.task;
+
+import io.papermc.paper.threadedregions.scheduler.ScheduledTask;
+import org.bukkit.Location;
+import org.bukkit.entity.Player;
+import org.bukkit.plugin.Plugin;
+import org.jetbrains.annotations.NotNull;
+
+/**
+ * A {@link TaskScheduler} for Folia's region threads
+ * <p>
+ * Player work runs on the player's entity scheduler, so it follows them between regions, location work runs on the
+ * owning region's scheduler and everything else runs on the global region scheduler.
+ */
+public class FoliaTaskScheduler implements TaskScheduler {
+
+    private final Plugin plugin;
+
+    public FoliaTaskScheduler(@NotNull Plugin plugin) {
+        this.plugin = plugin;
+    }
+
+    @Override
+    public boolean isRegionized() {
+        return true;
+    }
+
+    @Override
+    public void runGlobal(@NotNull Runnable task) {
+        plugin.getServer().getGlobalRegionScheduler().execute(plugin, task);
+    }
+
+    @Override
+    public void runGlobalLater(@NotNull Runnable task, long delayTicks) {
+        plugin.getServer().getGlobalRegionScheduler().runDelayed(plugin, scheduled -> task.run(),
+                Math.max(1L, delayTicks));
+    }
+
+    @NotNull
+    @Override
+    public Task runGlobalTimer(@NotNull Runnable task, long delayTicks, long periodTicks) {
+        final ScheduledTask timer = plugin.getServer().getGlobalRegionScheduler().runAtFixedRate(plugin,
+                scheduled -> task.run(), Math.max(1L, delayTicks), Math.max(1L, periodTicks));
+        return timer::cancel;
+    }
+
+    @Override
+    public void runForPlayerLater(@NotNull Player player, @NotNull Runnable task, long delayTicks) {
+        player.getScheduler().execute(plugin, task, null, Math.max(1L, delayTicks));
+    }
+
+    @Override
+    public void runAt(@NotNull Location location, @NotNull Runnable task) {
+        plugin.getServer().getRegionScheduler().execute(plugin, location, task);
+    }
+
+    @Override
+    public void cancelAll() {
+        plugin.getServer().getGlobalRegionScheduler().cancelTasks(plugin);
+        plugin.getServer().getAsyncScheduler().cancelTasks(plugin);
+    }
+
+}
@@ -0,0 +1,169 @@
+/*
+ * This file is part of HuskHomesGUI, licensed under the Apache License 2.0.
+ *
+ *  Copyright (c) William278 <will27528@gmail.com>
+ *  Copyright (c) contributors
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+
+package net.william278.huskhomes.gui.task;
+
+import net.william278.huskhomes.gui.HuskHomesGui;
+import org.jetbrains.annotations.NotNull;
+
+import java.util.EnumMap;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.*;
+import java.util.logging.Level;
+
+/**
+ * Runs GUI I/O work (HuskHomes API lookups and writes) on virtual threads
+ * <p>
+ * Each {@link Operation} class has its own concurrency cap, and every task belongs to a scope (a player's
+ * {@link java.util.UUID} or a {@link net.william278.huskhomes.gui.menu.Menu}) so that outstanding work can be
+ * cancelled together when the player quits or the menu is closed.
+ */
+public class GuiExecutor {
+
+    private static final String THREAD_PREFIX = "HuskHomesGUI-IO";
+
+    private final HuskHomesGui plugin;
+    private final ExecutorService executor;
+    private final Map<Operation, Semaphore> permits = new EnumMap<>(Operation.class);
+    private final Map<Object, Set<CompletableFuture<?>>> scopes = new ConcurrentHashMap<>();
+
+    public GuiExecutor(@NotNull HuskHomesGui plugin) {
+        this.plugin = plugin;
+        this.executor = Executors.newThreadPerTaskExecutor(Thread.ofVirtual().name(THREAD_PREFIX + "-", 0).factory());
+        this.permits.put(Operation.READ, new Semaphore(plugin.getSettings().getMaxConcurrentReads(), true));
+        this.permits.put(Operation.WRITE, new Semaphore(plugin.getSettings().getMaxConcurrentWrites(), true));
+    }
+
+    /**
+     * Run a task on a virtual thread, bound to a scope
+     *
+     * @param operation The class of operation, used to apply the matching concurrency cap
+     * @param scope     The scope the task belongs to; cancelled by {@link #cancel(Object)}
+     * @param name      A short name for the task, shown in thread dumps
+     * @param task      The task to run; may block
+     * @param <T>       The type of the task result
+     * @return A future completing with the task result, or exceptionally if it failed or was cancelled
+     */
+    @NotNull
+    public <T> CompletableFuture<T> supply(@NotNull Operation operation, @NotNull Object scope,
+                                           @NotNull String name, @NotNull Callable<T> task) {
+        final CompletableFuture<T> result = new CompletableFuture<>();
+        final Set<CompletableFuture<?>> scopeTasks = scopes.computeIfAbsent(scope, s -> ConcurrentHashMap.newKeySet());
+        final Semaphore semaphore = permits.get(operation);
+        final Future<?> handle;
+        try {
+            handle = executor.submit(() -> {
+                final Thread thread = Thread.currentThread();
+                thread.setName(THREAD_PREFIX + "-" + operation.getId() + ":" + name);
+                try {
+                    semaphore.acquire();
+                    final long start = System.nanoTime();
+                    try {
+                        result.complete(task.call());
+                    } finally {
+                        semaphore.release();
+                        plugin.getMetrics().record("io-" + operation.getId() + ":" + name,
+                                System.nanoTime() - start, -1);
+                    }
+                } catch (InterruptedException e) {
+                    result.cancel(false);
+                } catch (Throwable e) {
+                    result.completeExceptionally(e);
+                }
+            });
+        } catch (RejectedExecutionException e) {
+            result.completeExceptionally(e);
+            return result;
+        }
+        scopeTasks.add(result);
+        result.whenComplete((value, error) -> {
+            scopeTasks.remove(result);
+            if (result.isCancelled()) {
+                handle.cancel(true);
+            }
+        });
+        return result;
+    }
+
+    /**
+     * Run a task on a virtual thread, bound to a scope, without a result
+     *
+     * @see #supply(Operation, Object, String, Callable)
+     */
+    @NotNull
+    public CompletableFuture<Void> run(@NotNull Operation operation, @NotNull Object scope,
+                                       @NotNull String name, @NotNull ThrowingRunnable task) {
+        return supply(operation, scope, name, () -> {
+            task.run();
+            return null;
+        });
+    }
+
+    /**
+     * Cancel all outstanding tasks belonging to a scope, interrupting those already running
+     *
+     * @param scope The scope to cancel
+     */
+    public void cancel(@NotNull Object scope) {
+        final Set<CompletableFuture<?>> tasks = scopes.remove(scope);
+        if (tasks != null) {
+            tasks.forEach(task -> task.cancel(false));
+        }
+    }
+
+    /**
+     * Stop accepting work and wait briefly for running tasks (such as pending writes) to finish
+     */
+    public void shutdown() {
+        executor.shutdown();
+        try {
+            if (!executor.awaitTermination(5, TimeUnit.SECONDS)) {
+                plugin.getLogger().log(Level.WARNING, "Timed out waiting for GUI I/O tasks to finish");
+                executor.shutdownNow();
+            }
+        } catch (InterruptedException e) {
+            executor.shutdownNow();
+            Thread.currentThread().interrupt();
+        }
+        scopes.clear();
+    }
+
+    /**
+     * Classes of GUI I/O work, each with its own concurrency cap
+     */
+    public enum Operation {
+        READ,
+        WRITE;
+
+        @NotNull
+        private String getId() {
+            return name().toLowerCase();
+        }
+    }
+
+    /**
+     * A runnable that may throw a checked exception
+     */
+    @FunctionalInterface
+    public interface ThrowingRunnable {
+        void run() throws Exception;
+    }
+
+}
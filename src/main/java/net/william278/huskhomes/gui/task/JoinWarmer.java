@@ -0,0 +1,121 @@
+/*
+ * This file is part of HuskHomesGUI, licensed under the Apache License 2.0.
+ *
+ *  Copyright (c) William278 <will27528@gmail.com>
+ *  Copyright (c) contributors
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+
+
+package net.william278.huskhomes.gui.task;
+
+import net.william278.huskhomes.gui.HuskHomesGui;
+import net.william278.huskhomes.gui.hook.HuskHomesHook;
+import net.william278.huskhomes.gui.model.PositionView;
+import net.william278.huskhomes.user.OnlineUser;
+import org.bukkit.entity.Player;
+import org.jetbrains.annotations.NotNull;
+
+import java.util.ArrayDeque;
+import java.util.List;
+import java.util.Queue;
+import java.util.UUID;
+import java.util.logging.Level;
+
+/**
+ * Pre-warms a player's GUI data after they join, so their first home list opens as fast as later ones
+ * <p>
+ * Joined players are queued and warmed at a capped rate, so a mass reconnect after a restart does not flood the
+ * database. Warming fetches the player's homes on the {@link GuiExecutor}, keeps their views in the
+ * {@link net.william278.huskhomes.gui.cache.HomeListCache} for the player's first home list and builds their button
+ * lines, then caches their home slot limit and resolves their head on the server thread.
+ */
+public class JoinWarmer {
+
+    private final HuskHomesGui plugin;
+    private final Queue<UUID> queue = new ArrayDeque<>();
+    private TaskScheduler.Task drainTask;
+
+    public JoinWarmer(@NotNull HuskHomesGui plugin) {
+        this.plugin = plugin;
+    }
+
+    /**
+     * Start warming queued players each second, if enabled
+     */
+    public void start() {
+        if (plugin.getSettings().doPrewarmOnJoin()) {
+            this.drainTask = plugin.getScheduler().runGlobalTimer(this::drain, 20L, 20L);
+        }
+    }
+
+    public void stop() {
+        if (drainTask != null) {
+            drainTask.cancel();
+        }
+        synchronized (queue) {
+            queue.clear();
+        }
+    }
+
+    /**
+     * Queue a player to be warmed
+     *
+     * @param player The player who joined
+     */
+    public void enqueue(@NotNull Player player) {
+        if (drainTask == null) {
+            return;
+        }
+        synchronized (queue) {
+            queue.add(player.getUniqueId());
+        }
+    }
+
+    private void drain() {
+        for (int i = 0; i < plugin.getSettings().getPrewarmJoinsPerSecond(); i++) {
+            final UUID uuid;
+            synchronized (queue) {
+                uuid = queue.poll();
+            }
+            if (uuid == null) {
+                return;
+            }
+            final Player player = plugin.getServer().getPlayer(uuid);
+            if (player != null) {
+                warm(player);
+            }
+        }
+    }
+
+    private void warm(@NotNull Player player) {
+        final HuskHomesHook api = plugin.getHuskHomes();
+        final OnlineUser user = api.adaptUser(player);
+        plugin.getGuiExecutor().supply(GuiExecutor.Operation.READ, player.getUniqueId(), "warm-homes", () -> {
+            final List<PositionView> homes = PositionView.of(
+                    plugin.getDeletions().filter(api.getUserHomes(user).get()));
+            plugin.getHomeLists().put(player.getUniqueId(), homes);
+            plugin.getItemPrototypes().warm(homes);
+            return homes;
+        }).thenAccept(homes -> plugin.getScheduler().runForPlayer(player, () -> {
+            plugin.getHomeSlots().getMaxHomeSlots(user);
+            plugin.getProfileCache().getProfile(player.getUniqueId(), () -> {
+            });
+        })).exceptionally(e -> {
+            plugin.getLogger().log(Level.FINE, "Failed to pre-warm GUI data for " + player.getName(), e);
+            return null;
+        });
+    }
+
+}
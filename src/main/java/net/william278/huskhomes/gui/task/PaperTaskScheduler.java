@@ -0,0 +1,81 @@
+/*
+ * This file is part of HuskHomesGUI, licensed under the Apache License 2.0.
+ *
+ *  Copyright (c) William278 <will27528@gmail.com>
+ *  Copyright (c) contributors
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+
+
+package net.william278.huskhomes.gui.task;
+
+import org.bukkit.Location;
+import org.bukkit.entity.Player;
+import org.bukkit.plugin.Plugin;
+import org.bukkit.scheduler.BukkitTask;
+import org.jetbrains.annotations.NotNull;
+
+/**
+ * A {@link TaskScheduler} running everything on the single server thread, via the Bukkit scheduler
+ */
+public class PaperTaskScheduler implements TaskScheduler {
+
+    private final Plugin plugin;
+
+    public PaperTaskScheduler(@NotNull Plugin plugin) {
+        this.plugin = plugin;
+    }
+
+    @Override
+    public boolean isRegionized() {
+        return false;
+    }
+
+    @Override
+    public void runGlobal(@NotNull Runnable task) {
+        plugin.getServer().getScheduler().runTask(plugin, task);
+    }
+
+    @Override
+    public void runGlobalLater(@NotNull Runnable task, long delayTicks) {
+        plugin.getServer().getScheduler().runTaskLater(plugin, task, delayTicks);
+    }
+
+    @NotNull
+    @Override
+    public Task runGlobalTimer(@NotNull Runnable task, long delayTicks, long periodTicks) {
+        final BukkitTask timer = plugin.getServer().getScheduler().runTaskTimer(plugin, task, delayTicks, periodTicks);
+        return timer::cancel;
+    }
+
+    @Override
+    public void runForPlayerLater(@NotNull Player player, @NotNull Runnable task, long delayTicks) {
+        plugin.getServer().getScheduler().runTaskLater(plugin, () -> {
+            if (player.isOnline()) {
+                task.run();
+            }
+        }, delayTicks);
+    }
+
+    @Override
+    public void runAt(@NotNull Location location, @NotNull Runnable task) {
+        runGlobal(task);
+    }
+
+    @Override
+    public void cancelAll() {
+        plugin.getServer().getScheduler().cancelTasks(plugin);
+    }
+
+}
@@ -0,0 +1,141 @@
+/*
+ * This file is part of HuskHomesGUI, licensed under the Apache License 2.0.
+ *
+ *  Copyright (c) William278 <will27528@gmail.com>
+ *  Copyright (c) contributors
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+
+
+package net.william278.huskhomes.gui.task;
+
+import org.bukkit.Location;
+import org.bukkit.entity.Player;
+import org.bukkit.plugin.Plugin;
+import org.jetbrains.annotations.NotNull;
+
+import java.util.concurrent.Executor;
+
+/**
+ * Schedules server-thread work in a way that works on both Paper and Folia
+ * <p>
+ * On Paper everything runs on the single server thread. On Folia, work bound to a player runs on that player's
+ * entity scheduler, work bound to a location runs on the owning region, and everything else runs on the global
+ * region. Menus and inventories must only be touched from the thread owning their viewer.
+ */
+public interface TaskScheduler {
+
+    String FOLIA_CLASS = "io.papermc.paper.threadedregions.RegionizedServer";
+
+    /**
+     * Create the scheduler for the running server
+     *
+     * @param plugin The plugin to schedule tasks for
+     * @return a Folia scheduler on Folia, otherwise a Paper scheduler
+     */
+    @NotNull
+    static TaskScheduler create(@NotNull Plugin plugin) {
+        try {
+            Class.forName(FOLIA_CLASS);
+            return new FoliaTaskScheduler(plugin);
+        } catch (ClassNotFoundException e) {
+            return new PaperTaskScheduler(plugin);
+        }
+    }
+
+    /**
+     * Whether work is split across region threads, i.e. the server is running Folia
+     *
+     * @return {@code true} on Folia
+     */
+    boolean isRegionized();
+
+    /**
+     * Run a task on the global region (the server thread on Paper) on the next tick
+     *
+     * @param task The task to run
+     */
+    void runGlobal(@NotNull Runnable task);
+
+    /**
+     * Run a task on the global region (the server thread on Paper) after a delay
+     *
+     * @param task       The task to run
+     * @param delayTicks The delay in ticks, at least one
+     */
+    void runGlobalLater(@NotNull Runnable task, long delayTicks);
+
+    /**
+     * Run a task repeatedly on the global region (the server thread on Paper)
+     *
+     * @param task        The task to run
+     * @param delayTicks  The delay before the first run in ticks, at least one
+     * @param periodTicks The period between runs in ticks
+     * @return a handle to cancel the task with
+     */
+    @NotNull
+    Task runGlobalTimer(@NotNull Runnable task, long delayTicks, long periodTicks);
+
+    /**
+     * Run a task on the thread owning a player on the next tick; dropped if the player has left
+     *
+     * @param player The player the task is bound to
+     * @param task   The task to run
+     */
+    default void runForPlayer(@NotNull Player player, @NotNull Runnable task) {
+        runForPlayerLater(player, task, 1L);
+    }
+
+    /**
+     * Run a task on the thread owning a player after a delay; dropped if the player has left
+     *
+     * @param player     The player the task is bound to
+     * @param task       The task to run
+     * @param delayTicks The delay in ticks, at least one
+     */
+    void runForPlayerLater(@NotNull Player player, @NotNull Runnable task, long delayTicks);
+
+    /**
+     * Get an executor running tasks on the thread owning a player, e.g. for libraries that call back into the
+     * player's inventory from their own threads
+     *
+     * @param player The player tasks are bound to
+     * @return an executor running each task with {@link #runForPlayer(Player, Runnable)}
+     */
+    @NotNull
+    default Executor forPlayer(@NotNull Player player) {
+        return task -> runForPlayer(player, task);
+    }
+
+    /**
+     * Run a task on the thread owning the region containing a location
+     *
+     * @param location The location the task is bound to
+     * @param task     The task to run
+     */
+    void runAt(@NotNull Location location, @NotNull Runnable task);
+
+    /**
+     * Cancel all tasks scheduled by the plugin
+     */
+    void cancelAll();
+
+    /**
+     * A handle to a repeating task
+     */
+    interface Task {
+        void cancel();
+    }
+
+}
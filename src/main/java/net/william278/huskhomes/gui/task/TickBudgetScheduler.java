@@ -0,0 +1,292 @@
+/*
+ * This file is part of HuskHomesGUI, licensed under the Apache License 2.0.
+ *
+ *  Copyright (c) William278 <will27528@gmail.com>
+ *  Copyright (c) contributors
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+
+package net.william278.huskhomes.gui.task;
+
+import com.destroystokyo.paper.event.server.ServerTickEndEvent;
+import com.destroystokyo.paper.event.server.ServerTickStartEvent;
+import net.william278.huskhomes.gui.HuskHomesGui;
+import net.william278.huskhomes.gui.diagnostics.GuiMetrics;
+import org.bukkit.entity.Player;
+import org.bukkit.event.EventHandler;
+import org.bukkit.event.EventPriority;
+import org.bukkit.event.Listener;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+import java.util.*;
+import java.util.logging.Level;
+
+/**
+ * Spreads menu builds and redraws across server ticks so that GUI work never takes more than a configured
+ * budget of each tick
+ * <p>
+ * Work is queued by {@link Priority}: redraws of menus players are already looking at run first, then new menu
+ * builds. Background pre-rendering only runs in the slack left at the end of a tick. The cost of each kind of work
+ * is tracked as a moving average, and work is deferred to a later tick if it is not expected to fit in what is left
+ * of the budget. Work that has already waited {@value #MAX_WAIT_TICKS} ticks runs regardless, so a single task
+ * costing more than the whole budget still makes progress. The budget is reset on Paper's tick-start event, or by a
+ * one-tick timer where the event is not available.
+ * <p>
+ * All methods must be called from the server thread. On Folia, where there is no single server thread and each
+ * region has its own tick, work is not budgeted: it runs on the thread owning the player it is for (see
+ * {@link TaskScheduler}), and is only timed for {@link GuiMetrics}.
+ */
+public class TickBudgetScheduler {
+
+    private static final String TICK_START_EVENT = "com.destroystokyo.paper.event.server.ServerTickStartEvent";
+    private static final String TICK_END_EVENT = "com.destroystokyo.paper.event.server.ServerTickEndEvent";
+    private static final int MAX_WAIT_TICKS = 20;
+
+    private final HuskHomesGui plugin;
+    private final Map<Priority, ArrayDeque<Work>> queues = new EnumMap<>(Priority.class);
+    private final Map<String, Long> costEstimates = new HashMap<>();
+    private final List<Deferred> nextTick = new ArrayList<>();
+    private final boolean tickEventsAvailable = isClassAvailable(TICK_START_EVENT) && isClassAvailable(TICK_END_EVENT);
+    private TaskScheduler.Task tickTask;
+    // Nanoseconds of GUI work run since the start of the current tick
+    private long spentNanos;
+    // Ticks started since the scheduler was, for counting how long work has waited
+    private long tick;
+
+    public TickBudgetScheduler(@NotNull HuskHomesGui plugin) {
+        this.plugin = plugin;
+        for (Priority priority : Priority.values()) {
+            queues.put(priority, new ArrayDeque<>());
+        }
+    }
+
+    /**
+     * Start draining queued work each tick, using Paper's tick start and end events where available
+     */
+    public void start() {
+        if (isRegionized()) {
+            return;
+        }
+        if (tickEventsAvailable) {
+            plugin.getServer().getPluginManager().registerEvents(new TickListener(), plugin);
+        } else {
+            this.tickTask = plugin.getScheduler().runGlobalTimer(this::onTickStart, 1L, 1L);
+        }
+    }
+
+    /**
+     * Stop draining work, running anything still queued so that no menus are left unopened
+     */
+    public void stop() {
+        if (tickTask != null) {
+            tickTask.cancel();
+        }
+        promoteDeferred();
+        for (Priority priority : Priority.values()) {
+            final ArrayDeque<Work> queue = queues.get(priority);
+            while (!queue.isEmpty() && priority != Priority.PRERENDER) {
+                run(queue.poll());
+            }
+            queue.clear();
+        }
+    }
+
+    /**
+     * Queue GUI work, running it straight away if it fits in what is left of this tick's budget
+     *
+     * @param priority The priority of the work
+     * @param kind     The kind of work, e.g. {@code "NewListMenu#show"}; used to estimate its cost
+     * @param runnable The work to run
+     */
+    public void submit(@NotNull Priority priority, @NotNull String kind, @NotNull Runnable runnable) {
+        submit(priority, kind, null, runnable);
+    }
+
+    /**
+     * Queue GUI work for a player, running it straight away if it fits in what is left of this tick's budget
+     *
+     * @param priority The priority of the work
+     * @param kind     The kind of work; used to estimate its cost
+     * @param viewer   The player the work is for, whose thread it must run on under Folia, if any
+     * @param runnable The work to run
+     */
+    public void submit(@NotNull Priority priority, @NotNull String kind, @Nullable Player viewer,
+                       @NotNull Runnable runnable) {
+        final Work work = new Work(kind, runnable, tick);
+        if (isRegionized()) {
+            if (viewer != null) {
+                plugin.getScheduler().runForPlayer(viewer, () -> runUnbudgeted(work));
+            } else {
+                runUnbudgeted(work);
+            }
+            return;
+        }
+        if (priority != Priority.PRERENDER && isIdle(priority) && fitsBudget(work, getBudgetNanos())) {
+            run(work);
+            return;
+        }
+        queues.get(priority).add(work);
+    }
+
+    /**
+     * Queue GUI work to run no sooner than the start of the next tick
+     * <p>
+     * Used for work that is requested many times in quick succession, such as redraws on repeated clicks, so that
+     * callers can coalesce requests made within the same tick into one run.
+     *
+     * @param priority The priority of the work
+     * @param kind     The kind of work; used to estimate its cost
+     * @param viewer   The player the work is for, whose thread it must run on under Folia, if any
+     * @param runnable The work to run
+     */
+    public void submitNextTick(@NotNull Priority priority, @NotNull String kind, @Nullable Player viewer,
+                               @NotNull Runnable runnable) {
+        final Work work = new Work(kind, runnable, tick);
+        if (isRegionized()) {
+            if (viewer != null) {
+                plugin.getScheduler().runForPlayer(viewer, () -> runUnbudgeted(work));
+            } else {
+                plugin.getScheduler().runGlobal(() -> runUnbudgeted(work));
+            }
+            return;
+        }
+        nextTick.add(new Deferred(priority, work));
+    }
+
+    private void onTickStart() {
+        spentNanos = 0;
+        tick++;
+        promoteDeferred();
+        drain(getBudgetNanos(), Priority.IN_VIEW, Priority.BUILD);
+        if (!tickEventsAvailable) {
+            drain(getBudgetNanos(), Priority.PRERENDER);
+        }
+    }
+
+    private void onTickEnd(long nanosRemaining) {
+        final long budget = Math.min(getBudgetNanos(), spentNanos + Math.max(0, nanosRemaining));
+        drain(budget, Priority.IN_VIEW, Priority.BUILD, Priority.PRERENDER);
+    }
+
+    private void promoteDeferred() {
+        nextTick.forEach(deferred -> queues.get(deferred.priority()).add(deferred.work()));
+        nextTick.clear();
+    }
+
+    // Run queued work in priority order until the budget is used up
+    private void drain(long budgetNanos, @NotNull Priority... priorities) {
+        for (Priority priority : priorities) {
+            final ArrayDeque<Work> queue = queues.get(priority);
+            while (!queue.isEmpty()) {
+                if (!fitsBudget(queue.peek(), budgetNanos)) {
+                    return;
+                }
+                run(queue.poll());
+            }
+        }
+    }
+
+    // Whether work is expected to fit in what is left of the budget, or has waited long enough to run anyway
+    private boolean fitsBudget(@NotNull Work work, long budgetNanos) {
+        return spentNanos + costEstimates.getOrDefault(work.kind(), 0L) <= budgetNanos
+               || tick - work.queuedAt() >= MAX_WAIT_TICKS;
+    }
+
+    // Whether no work of the same or a higher priority is waiting
+    private boolean isIdle(@NotNull Priority priority) {
+        for (Priority other : Priority.values()) {
+            if (other.ordinal() <= priority.ordinal() && !queues.get(other).isEmpty()) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private void run(@NotNull Work work) {
+        final long cost = runUnbudgeted(work);
+        spentNanos += cost;
+        costEstimates.merge(work.kind(), cost, (estimate, sample) -> (estimate * 7 + sample) / 8);
+    }
+
+    // Run work and record its metrics, returning how long it took
+    private long runUnbudgeted(@NotNull Work work) {
+        final GuiMetrics metrics = plugin.getMetrics();
+        final long allocatedBefore = metrics.getAllocatedBytes();
+        final long start = System.nanoTime();
+        try {
+            work.runnable().run();
+        } catch (Throwable e) {
+            plugin.getLogger().log(Level.SEVERE, "Error running GUI task " + work.kind(), e);
+        }
+        final long cost = System.nanoTime() - start;
+        metrics.record(work.kind(), cost, allocatedBefore < 0 ? -1 : metrics.getAllocatedBytes() - allocatedBefore);
+        return cost;
+    }
+
+    private boolean isRegionized() {
+        return plugin.getScheduler().isRegionized();
+    }
+
+    private long getBudgetNanos() {
+        return (long) (plugin.getSettings().getTickBudgetMillis() * 1_000_000L);
+    }
+
+    private static boolean isClassAvailable(@NotNull String className) {
+        try {
+            Class.forName(className);
+            return true;
+        } catch (ClassNotFoundException e) {
+            return false;
+        }
+    }
+
+    /**
+     * Priorities of GUI work, highest first
+     */
+    public enum Priority {
+        /**
+         * Redraws of menus a player currently has open
+         */
+        IN_VIEW,
+        /**
+         * Building and opening new menus
+         */
+        BUILD,
+        /**
+         * Background pre-rendering, only run with slack left at the end of a tick
+         */
+        PRERENDER
+    }
+
+    private record Work(@NotNull String kind, @NotNull Runnable runnable, long queuedAt) {
+    }
+
+    private record Deferred(@NotNull Priority priority, @NotNull Work work) {
+    }
+
+    // Kept separate so the Paper event classes are only loaded when present
+    private final class TickListener implements Listener {
+        @EventHandler(priority = EventPriority.LOWEST)
+        public void onTickStart(@NotNull ServerTickStartEvent event) {
+            TickBudgetScheduler.this.onTickStart();
+        }
+
+        @EventHandler(priority = EventPriority.MONITOR)
+        public void onTickEnd(@NotNull ServerTickEndEvent event) {
+            TickBudgetScheduler.this.onTickEnd(event.getTimeRemaining());
+        }
+    }
+
+}
@@ -0,0 +1,80 @@
+/*
+ * This file is part of HuskHomesGUI, licensed under the Apache License 2.0.
+ *
+ *  Copyright (c) William278 <will27528@gmail.com>
+ *  Copyright (c) contributors
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+
+package net.william278.huskhomes.gui.cache;
+
+import net.william278.huskhomes.gui.model.PositionView;
+import org.jetbrains.annotations.NotNull;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+import java.util.UUID;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class HomeCategoryIndexTest {
+
+    private static final HomeCategoryIndex.Category LOWER = new HomeCategoryIndex.Category("server", "world", "NORMAL");
+    private static final HomeCategoryIndex.Category UPPER = new HomeCategoryIndex.Category("server", "World", "NORMAL");
+    private static final HomeCategoryIndex.Category NETHER = new HomeCategoryIndex.Category("server", "world", "NETHER");
+
+    @Test
+    void ordersConsistentlyWithEquals() {
+        for (HomeCategoryIndex.Category a : List.of(LOWER, UPPER, NETHER)) {
+            for (HomeCategoryIndex.Category b : List.of(LOWER, UPPER, NETHER)) {
+                assertEquals(a.equals(b), a.compareTo(b) == 0, a + " vs " + b);
+                assertEquals(Integer.signum(a.compareTo(b)), -Integer.signum(b.compareTo(a)));
+            }
+        }
+    }
+
+    @Test
+    void keepsWorldsDifferingInCaseOrEnvironmentApart() {
+        final HomeCategoryIndex index = HomeCategoryIndex.of(List.of(home(LOWER), home(UPPER), home(NETHER)));
+        assertEquals(3, index.getCategories().size());
+        assertEquals(1, index.getHomeCount(LOWER));
+        assertEquals(1, index.getHomeCount(UPPER));
+        assertEquals(1, index.getHomeCount(NETHER));
+    }
+
+    @Test
+    void ordersByServerThenWorldIgnoringCase() {
+        final HomeCategoryIndex.Category lobby = new HomeCategoryIndex.Category("Lobby", "spawn", "NORMAL");
+        final HomeCategoryIndex.Category alpha = new HomeCategoryIndex.Category("server", "Alpha", "NORMAL");
+        final HomeCategoryIndex index = HomeCategoryIndex.of(List.of(home(LOWER), home(alpha), home(lobby)));
+        assertEquals(List.of(lobby, alpha, LOWER), List.copyOf(index.getCategories()));
+    }
+
+    @Test
+    void dropsEmptyBuckets() {
+        final PositionView home = home(UPPER);
+        final HomeCategoryIndex index = HomeCategoryIndex.of(List.of(home, home(LOWER)));
+        index.remove(home.id());
+        assertEquals(List.of(LOWER), List.copyOf(index.getCategories()));
+        assertEquals(1, index.size());
+    }
+
+    @NotNull
+    private static PositionView home(@NotNull HomeCategoryIndex.Category category) {
+        final UUID id = UUID.randomUUID();
+        return new PositionView(id, id.toString().substring(0, 8), "", 0, 64, 0, (short) -1,
+                category.server(), category.world(), category.environment(), null, null);
+    }
+
+}
@@ -0,0 +1,170 @@
+/*
+ * This file is part of HuskHomesGUI, licensed under the Apache License 2.0.
+ *
+ *  Copyright (c) William278 <will27528@gmail.com>
+ *  Copyright (c) contributors
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+
+
+package net.william278.huskhomes.gui.cache;
+
+import net.william278.huskhomes.gui.model.PositionView;
+import org.jetbrains.annotations.NotNull;
+import org.junit.jupiter.api.Test;
+
+import java.util.*;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class HomeMapIndexTest {
+
+    private static final HomeCategoryIndex.Category WORLD = new HomeCategoryIndex.Category("server", "world", "NORMAL");
+    private static final HomeCategoryIndex.Category NETHER = new HomeCategoryIndex.Category("server", "nether", "NETHER");
+
+    @Test
+    void splitsOnceANodeOverflows() {
+        final List<PositionView> homes = new ArrayList<>();
+        for (int i = 0; i < 8; i++) {
+            homes.add(home(WORLD, i % 2 == 0 ? -100 - i : 100 + i, i < 4 ? -100 : 100));
+        }
+        final HomeMapIndex index = HomeMapIndex.of(homes);
+        assertEquals(1, index.getNodeCount(WORLD));
+
+        index.add(home(WORLD, 50, 50));
+        assertEquals(5, index.getNodeCount(WORLD));
+        assertEquals(9, query(index, WORLD, -1000, -1000, 1000, 1000).size());
+    }
+
+    @Test
+    void splitsAgainWhenHomesCluster() {
+        final List<PositionView> homes = new ArrayList<>();
+        for (int i = 0; i < 9; i++) {
+            homes.add(home(WORLD, 10 + i, 10 + i));
+        }
+        final HomeMapIndex index = HomeMapIndex.of(homes);
+        assertTrue(index.getNodeCount(WORLD) > 5, "Clustered homes should split below the root's children");
+        assertEquals(9, query(index, WORLD, 10, 10, 19, 19).size());
+    }
+
+    @Test
+    void mergesWhenRemovalsLeaveFewHomes() {
+        final List<PositionView> homes = new ArrayList<>();
+        for (int i = 0; i < 9; i++) {
+            homes.add(home(WORLD, i * 100 - 400, i * 100 - 400));
+        }
+        final HomeMapIndex index = HomeMapIndex.of(homes);
+        assertTrue(index.getNodeCount(WORLD) > 1);
+
+        index.remove(homes.getFirst().id());
+        assertEquals(1, index.getNodeCount(WORLD));
+        assertEquals(Set.copyOf(homes.subList(1, homes.size())), query(index, WORLD, -1000, -1000, 1000, 1000));
+    }
+
+    @Test
+    void dropsWorldsLeftEmpty() {
+        final PositionView overworld = home(WORLD, 0, 0);
+        final PositionView nether = home(NETHER, 0, 0);
+        final HomeMapIndex index = HomeMapIndex.of(List.of(overworld, nether));
+        assertEquals(List.of(NETHER, WORLD), index.getWorlds());
+
+        index.remove(nether.id());
+        assertEquals(List.of(WORLD), index.getWorlds());
+        assertEquals(0, index.getNodeCount(NETHER));
+        assertTrue(index.getBounds(NETHER).isEmpty());
+    }
+
+    @Test
+    void replacesHomesWithTheSameId() {
+        final PositionView home = home(WORLD, 0, 0);
+        final HomeMapIndex index = HomeMapIndex.of(List.of(home));
+        final PositionView moved = new PositionView(home.id(), home.name(), "", 500, 64, 500, (short) -1,
+                "server", "nether", "NETHER", null, null);
+        index.add(moved);
+
+        assertEquals(List.of(NETHER), index.getWorlds());
+        assertEquals(Set.of(moved), query(index, NETHER, 0, 0, 1000, 1000));
+    }
+
+    @Test
+    void includesMinimumAndExcludesMaximumBounds() {
+        final PositionView min = home(WORLD, 0, 0);
+        final PositionView max = home(WORLD, 10, 10);
+        final HomeMapIndex index = HomeMapIndex.of(List.of(min, max));
+
+        assertEquals(Set.of(min), query(index, WORLD, 0, 0, 10, 10));
+        assertEquals(Set.of(max), query(index, WORLD, 1, 1, 11, 11));
+    }
+
+    @Test
+    void reportsBounds() {
+        final HomeMapIndex index = HomeMapIndex.of(List.of(
+                home(WORLD, -20, 5), home(WORLD, 30, -15), home(WORLD, 0, 40)));
+        assertArrayEquals(new float[]{-20, -15, 30, 40}, index.getBounds(WORLD).orElseThrow());
+    }
+
+    @Test
+    void queriesMatchAScan() {
+        final Random random = new Random(278);
+        final Map<UUID, PositionView> expected = new HashMap<>();
+        final HomeMapIndex index = HomeMapIndex.of(List.of());
+        for (int round = 0; round < 20; round++) {
+            for (int i = 0; i < 200; i++) {
+                final PositionView home = home(random.nextBoolean() ? WORLD : NETHER,
+                        random.nextInt(4000) - 2000, random.nextInt(4000) - 2000);
+                expected.put(home.id(), home);
+                index.add(home);
+            }
+            final List<UUID> ids = new ArrayList<>(expected.keySet());
+            Collections.shuffle(ids, random);
+            for (UUID id : ids.subList(0, ids.size() / 3)) {
+                expected.remove(id);
+                index.remove(id);
+            }
+
+            for (int query = 0; query < 50; query++) {
+                final HomeCategoryIndex.Category world = random.nextBoolean() ? WORLD : NETHER;
+                final float minX = random.nextInt(4400) - 2200;
+                final float minZ = random.nextInt(4400) - 2200;
+                final float maxX = minX + random.nextInt(2000);
+                final float maxZ = minZ + random.nextInt(2000);
+                final Set<PositionView> scanned = new HashSet<>();
+                for (PositionView home : expected.values()) {
+                    if (HomeCategoryIndex.Category.of(home).equals(world)
+                        && home.x() >= minX && home.x() < maxX && home.z() >= minZ && home.z() < maxZ) {
+                        scanned.add(home);
+                    }
+                }
+                assertEquals(scanned, query(index, world, minX, minZ, maxX, maxZ),
+                        "Query (" + minX + ", " + minZ + ") to (" + maxX + ", " + maxZ + ") in round " + round);
+            }
+        }
+    }
+
+    @NotNull
+    private static Set<PositionView> query(@NotNull HomeMapIndex index, @NotNull HomeCategoryIndex.Category world,
+                                           float minX, float minZ, float maxX, float maxZ) {
+        final Set<PositionView> found = new HashSet<>();
+        index.query(world, minX, minZ, maxX, maxZ, home -> assertTrue(found.add(home), "Home found twice"));
+        return found;
+    }
+
+    @NotNull
+    private static PositionView home(@NotNull HomeCategoryIndex.Category world, float x, float z) {
+        final UUID id = UUID.randomUUID();
+        return new PositionView(id, id.toString().substring(0, 8), "", x, 64, z, (short) -1,
+                world.server(), world.world(), world.environment(), null, null);
+    }
+
+}
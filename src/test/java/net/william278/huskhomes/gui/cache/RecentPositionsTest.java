@@ -0,0 +1,118 @@
+/*
+ * This file is part of HuskHomesGUI, licensed under the Apache License 2.0.
+ *
+ *  Copyright (c) William278 <will27528@gmail.com>
+ *  Copyright (c) contributors
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+
+package net.william278.huskhomes.gui.cache;
+
+import net.william278.huskhomes.gui.HuskHomesGui;
+import net.william278.huskhomes.gui.config.Settings;
+import net.william278.huskhomes.gui.store.GuiDataStore;
+import org.jetbrains.annotations.NotNull;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.ArgumentCaptor;
+
+import java.util.List;
+import java.util.Optional;
+import java.util.UUID;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.*;
+
+class RecentPositionsTest {
+
+    private static final int CAPACITY = 3;
+    private static final UUID PLAYER = UUID.randomUUID();
+
+    private HuskHomesGui plugin;
+    private GuiDataStore store;
+    private RecentPositions recent;
+
+    @BeforeEach
+    void setUp() {
+        final Settings settings = mock(Settings.class);
+        when(settings.getRecentCount()).thenReturn(CAPACITY);
+        when(settings.getSessionCacheSize()).thenReturn(10);
+        store = mock(GuiDataStore.class);
+        plugin = mock(HuskHomesGui.class);
+        when(plugin.getSettings()).thenReturn(settings);
+        when(plugin.getDataStore()).thenReturn(store);
+        recent = new RecentPositions(plugin);
+    }
+
+    @Test
+    void listsMostRecentFirst() {
+        final UUID[] ids = record(2);
+        assertEquals(List.of(ids[1], ids[0]), recent.get(PLAYER, "homes"));
+    }
+
+    @Test
+    void wrapsAroundKeepingTheNewest() {
+        final UUID[] ids = record(CAPACITY * 2 + 1);
+        assertEquals(List.of(ids[6], ids[5], ids[4]), recent.get(PLAYER, "homes"));
+    }
+
+    @Test
+    void movesRevisitedPositionToFront() {
+        final UUID[] ids = record(CAPACITY + 1);
+        recent.record(PLAYER, "homes", ids[2]);
+        assertEquals(List.of(ids[2], ids[3], ids[1]), recent.get(PLAYER, "homes"));
+
+        // Revisiting the oldest entry after the buffer has wrapped
+        recent.record(PLAYER, "homes", ids[1]);
+        assertEquals(List.of(ids[1], ids[2], ids[3]), recent.get(PLAYER, "homes"));
+    }
+
+    @Test
+    void keepsMenusApart() {
+        final UUID warp = UUID.randomUUID();
+        record(1);
+        recent.record(PLAYER, "warps", warp);
+        assertEquals(List.of(warp), recent.get(PLAYER, "warps"));
+        assertEquals(1, recent.get(PLAYER, "homes").size());
+        assertTrue(recent.get(UUID.randomUUID(), "homes").isEmpty());
+    }
+
+    @Test
+    void loadsWhatWasSaved() {
+        final UUID[] ids = record(CAPACITY + 2);
+        recent.save();
+        final ArgumentCaptor<byte[]> saved = ArgumentCaptor.forClass(byte[].class);
+        verify(store).put(eq("recent"), saved.capture());
+
+        when(store.getOrImport(eq("recent"), anyString())).thenReturn(Optional.of(saved.getValue()));
+        final RecentPositions loaded = new RecentPositions(plugin);
+        loaded.load();
+        assertEquals(List.of(ids[4], ids[3], ids[2]), loaded.get(PLAYER, "homes"));
+    }
+
+    // Record visits to new positions from the homes menu, returning them oldest first
+    @NotNull
+    private UUID[] record(int count) {
+        final UUID[] ids = new UUID[count];
+        for (int i = 0; i < count; i++) {
+            ids[i] = UUID.randomUUID();
+            recent.record(PLAYER, "homes", ids[i]);
+        }
+        return ids;
+    }
+
+}
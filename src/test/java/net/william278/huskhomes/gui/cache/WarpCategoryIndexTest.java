@@ -0,0 +1,217 @@
+/*
+ * This file is part of HuskHomesGUI, licensed under the Apache License 2.0.
+ *
+ *  Copyright (c) William278 <will27528@gmail.com>
+ *  Copyright (c) contributors
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+
+
+package net.william278.huskhomes.gui.cache;
+
+import net.william278.huskhomes.gui.HuskHomesGui;
+import net.william278.huskhomes.gui.model.PositionView;
+import net.william278.huskhomes.gui.store.GuiDataStore;
+import net.william278.huskhomes.position.PositionMeta;
+import net.william278.huskhomes.position.Warp;
+import net.william278.huskhomes.position.World;
+import org.jetbrains.annotations.NotNull;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.*;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+class WarpCategoryIndexTest {
+
+    private final Map<UUID, String> categories = new HashMap<>();
+    private WarpCategoryIndex index;
+
+    @BeforeEach
+    void setUp() {
+        final GuiDataStore store = mock(GuiDataStore.class);
+        when(store.getCategory(any())).thenAnswer(invocation ->
+                categories.getOrDefault(invocation.getArgument(0, Warp.class).getUuid(), ""));
+        final HuskHomesGui plugin = mock(HuskHomesGui.class);
+        when(plugin.getDataStore()).thenReturn(store);
+        index = new WarpCategoryIndex(plugin);
+    }
+
+    @Test
+    void reusesTheSlotOfARemovedWarp() {
+        final Warp first = warp("first", "");
+        final Warp second = warp("second", "");
+        final Warp third = warp("third", "");
+        index.sync(List.of(first, second, third));
+        final int secondSlot = index.getSlot(second.getUuid());
+
+        index.remove(second.getUuid());
+        assertEquals(-1, index.getSlot(second.getUuid()));
+
+        final Warp fourth = warp("fourth", "");
+        index.update(fourth);
+        assertEquals(secondSlot, index.getSlot(fourth.getUuid()));
+        assertEquals(Set.of(0, 1, 2), Set.of(index.getSlot(first.getUuid()),
+                index.getSlot(third.getUuid()), index.getSlot(fourth.getUuid())));
+    }
+
+    @Test
+    void syncFreesTheSlotsOfMissingWarps() {
+        final Warp kept = warp("kept", "");
+        final Warp dropped = warp("dropped", "");
+        index.sync(List.of(kept, dropped));
+        final int droppedSlot = index.getSlot(dropped.getUuid());
+
+        final Warp added = warp("added", "");
+        index.sync(List.of(kept, added));
+        assertEquals(-1, index.getSlot(dropped.getUuid()));
+        assertEquals(droppedSlot, index.getSlot(added.getUuid()));
+        assertEquals(List.of("added", "kept"), names(index.getWarps(null)));
+    }
+
+    @Test
+    void keepsSlotsWhenWarpsAreRefiled() {
+        final Warp warp = warp("spawn", "hubs");
+        final Warp other = warp("shop", "hubs");
+        index.sync(List.of(warp, other));
+        final int slot = index.getSlot(warp.getUuid());
+        final int version = index.getVersion();
+
+        categories.put(warp.getUuid(), "towns");
+        index.update(warp);
+        assertEquals(slot, index.getSlot(warp.getUuid()));
+        assertEquals(version, index.getVersion(), "Moving a warp to another category does not change its slot");
+        assertEquals(List.of("hubs", "towns"), index.getCategories());
+
+        index.update(warp(warp.getUuid(), "a spawn", "towns"));
+        assertEquals(slot, index.getSlot(warp.getUuid()));
+        assertTrue(index.getVersion() > version, "Renaming a warp changes what viewers can see");
+    }
+
+    @Test
+    void filtersBucketsByVisibleSlots() {
+        final Warp spawn = warp("spawn", "hubs");
+        final Warp shop = warp("shop", "hubs");
+        final Warp arena = warp("arena", "games");
+        final Warp hidden = warp("hidden", "secret");
+        final Warp loose = warp("loose", "");
+        index.sync(List.of(spawn, shop, arena, hidden, loose));
+
+        final BitSet visible = index.getSlots(view -> !view.name().equals("hidden") && !view.name().equals("shop"));
+        assertEquals(3, visible.cardinality());
+        assertEquals(List.of("games", "hubs"), index.getCategories(visible));
+        assertEquals(List.of("games", "hubs", "secret"), index.getCategories());
+
+        assertEquals(1, index.getWarpCount("hubs", visible));
+        assertEquals(2, index.getWarpCount("hubs"));
+        assertEquals(0, index.getWarpCount("secret", visible));
+        assertEquals(0, index.getWarpCount("missing", visible));
+        assertEquals(3, index.getWarpCount(null, visible));
+
+        assertEquals(List.of("spawn"), names(index.getWarps("hubs", visible)));
+        assertEquals(List.of("arena", "loose", "spawn"), names(index.getWarps(null, visible)));
+    }
+
+    @Test
+    void dropsEmptyCategories() {
+        final Warp warp = warp("spawn", "hubs");
+        index.sync(List.of(warp));
+        final BitSet visible = index.getSlots(view -> true);
+
+        index.remove(warp.getUuid());
+        assertEquals(List.of(), index.getCategories());
+        assertEquals(List.of(), index.getCategories(visible));
+        assertEquals(0, index.getWarpCount("hubs", visible));
+        assertEquals(0, index.getWarpCount(null, visible));
+    }
+
+    @Test
+    void matchesAScanAfterRandomChanges() {
+        final Random random = new Random(278);
+        final String[] names = {"hubs", "games", "towns", ""};
+        final Map<UUID, Warp> warps = new HashMap<>();
+        int peak = 0;
+        for (int round = 0; round < 500; round++) {
+            final int action = random.nextInt(3);
+            if (action == 0 || warps.isEmpty()) {
+                final Warp warp = warp("warp" + random.nextInt(1000), names[random.nextInt(names.length)]);
+                warps.put(warp.getUuid(), warp);
+                index.update(warp);
+            } else if (action == 1) {
+                final UUID id = new ArrayList<>(warps.keySet()).get(random.nextInt(warps.size()));
+                warps.remove(id);
+                index.remove(id);
+            } else {
+                final Warp warp = new ArrayList<>(warps.values()).get(random.nextInt(warps.size()));
+                categories.put(warp.getUuid(), names[random.nextInt(names.length)]);
+                index.update(warp);
+            }
+
+            // Freed slots are reused before new ones are taken, so slots never pass the most warps held at once
+            peak = Math.max(peak, warps.size());
+            final Set<Integer> slots = new HashSet<>();
+            for (UUID id : warps.keySet()) {
+                final int slot = index.getSlot(id);
+                assertTrue(slot >= 0 && slot < peak, "Slot " + slot + " is outside the " + peak + " ever needed");
+                assertTrue(slots.add(slot), "Two warps share a slot");
+            }
+
+            final BitSet visible = index.getSlots(view -> view.name().hashCode() % 2 == 0);
+            for (String category : names) {
+                if (category.isEmpty()) {
+                    continue;
+                }
+                final long expected = warps.values().stream()
+                        .filter(warp -> categories.get(warp.getUuid()).equals(category))
+                        .filter(warp -> warp.getName().hashCode() % 2 == 0)
+                        .count();
+                assertEquals(expected, index.getWarpCount(category, visible), "Category " + category);
+                assertEquals(expected, index.getWarps(category, visible).size(), "Category " + category);
+            }
+        }
+    }
+
+    @NotNull
+    private Warp warp(@NotNull String name, @NotNull String category) {
+        return warp(UUID.randomUUID(), name, category);
+    }
+
+    @NotNull
+    private Warp warp(@NotNull UUID id, @NotNull String name, @NotNull String category) {
+        categories.put(id, category);
+        final PositionMeta meta = mock(PositionMeta.class);
+        when(meta.getDescription()).thenReturn("");
+        when(meta.getTags()).thenReturn(Map.of());
+        final World world = mock(World.class);
+        when(world.getName()).thenReturn("world");
+        when(world.getEnvironment()).thenReturn(World.Environment.OVERWORLD);
+        final Warp warp = mock(Warp.class);
+        when(warp.getUuid()).thenReturn(id);
+        when(warp.getName()).thenReturn(name);
+        when(warp.getMeta()).thenReturn(meta);
+        when(warp.getServer()).thenReturn("server");
+        when(warp.getWorld()).thenReturn(world);
+        return warp;
+    }
+
+    @NotNull
+    private static List<String> names(@NotNull List<PositionView> views) {
+        return views.stream().map(PositionView::name).toList();
+    }
+
+}
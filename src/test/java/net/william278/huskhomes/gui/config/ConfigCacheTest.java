@@ -0,0 +1,99 @@
+/*
+ * This file is part of HuskHomesGUI, licensed under the Apache License 2.0.
+ *
+ *  Copyright (c) William278 <will27528@gmail.com>
+ *  Copyright (c) contributors
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+
+package net.william278.huskhomes.gui.config;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.lang.reflect.Constructor;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Optional;
+import java.util.logging.Logger;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class ConfigCacheTest {
+
+    private static final Logger LOGGER = Logger.getLogger(ConfigCacheTest.class.getName());
+
+    @TempDir
+    Path dataFolder;
+
+    private Settings settings;
+    private Locales locales;
+
+    @BeforeEach
+    void setUp() throws Exception {
+        Files.writeString(dataFolder.resolve("config.yml"), "language: en-gb\n");
+        Files.writeString(dataFolder.resolve("messages-en-gb.yml"), "homes_menu_title: '[Homes](green)'\n");
+        settings = create(Settings.class);
+        locales = create(Locales.class);
+        locales.rawLocales.put("homes_menu_title", "[Homes](green)");
+    }
+
+    @Test
+    void readsBackWhatWasWritten() {
+        new ConfigCache(dataFolder.toFile(), "1.0", LOGGER).write(settings, locales);
+
+        final Optional<ConfigCache.Cached> cached = new ConfigCache(dataFolder.toFile(), "1.0", LOGGER).read();
+        assertTrue(cached.isPresent(), "the cache should hit when nothing changed");
+        assertEquals(settings.getLanguage(), cached.get().settings().getLanguage());
+        assertEquals(settings.getMenuSize(), cached.get().settings().getMenuSize());
+        assertEquals(Optional.of("[Homes](green)"), cached.get().locales().getRawLocale("homes_menu_title"));
+    }
+
+    @Test
+    void missesWhenConfigChanges() throws Exception {
+        final ConfigCache cache = new ConfigCache(dataFolder.toFile(), "1.0", LOGGER);
+        cache.write(settings, locales);
+        Files.writeString(dataFolder.resolve("config.yml"), "language: fr-fr\n");
+        assertTrue(cache.read().isEmpty());
+    }
+
+    @Test
+    void missesWhenMessagesChange() throws Exception {
+        final ConfigCache cache = new ConfigCache(dataFolder.toFile(), "1.0", LOGGER);
+        cache.write(settings, locales);
+        Files.writeString(dataFolder.resolve("messages-en-gb.yml"), "homes_menu_title: '[Houses](green)'\n");
+        assertTrue(cache.read().isEmpty());
+    }
+
+    @Test
+    void missesWhenVersionChanges() {
+        new ConfigCache(dataFolder.toFile(), "1.0", LOGGER).write(settings, locales);
+        assertTrue(new ConfigCache(dataFolder.toFile(), "1.1", LOGGER).read().isEmpty());
+    }
+
+    @Test
+    void missesWithoutCacheFile() {
+        assertTrue(new ConfigCache(dataFolder.toFile(), "1.0", LOGGER).read().isEmpty());
+    }
+
+    // Settings and locales are normally created by Annotaml through their private constructors
+    @SuppressWarnings("SameParameterValue")
+    private static <T> T create(Class<T> type) throws Exception {
+        final Constructor<T> constructor = type.getDeclaredConstructor();
+        constructor.setAccessible(true);
+        return constructor.newInstance();
+    }
+
+}
@@ -0,0 +1,199 @@
+/*
+ * This file is part of HuskHomesGUI, licensed under the Apache License 2.0.
+ *
+ *  Copyright (c) William278 <will27528@gmail.com>
+ *  Copyright (c) contributors
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+
+package net.william278.huskhomes.gui.store;
+
+import net.william278.huskhomes.gui.HuskHomesGui;
+import net.william278.huskhomes.gui.config.Settings;
+import net.william278.huskhomes.gui.task.TaskScheduler;
+import org.jetbrains.annotations.NotNull;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.Map;
+import java.util.Optional;
+import java.util.logging.Logger;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+class GuiDataStoreTest {
+
+    @TempDir
+    Path dataFolder;
+
+    @Test
+    void readsBackAfterReopening() throws IOException {
+        final GuiDataStore store = open();
+        store.putString("a", "1");
+        store.putString("b", "2");
+        store.putString("c", "3");
+        store.remove("c");
+        assertEquals(Optional.of("1"), store.getString("a"));
+        store.stop();
+
+        final GuiDataStore reopened = open();
+        assertEquals(Optional.of("1"), reopened.getString("a"));
+        assertEquals(Optional.of("2"), reopened.getString("b"));
+        assertTrue(reopened.get("c").isEmpty());
+        reopened.stop();
+    }
+
+    @Test
+    void replaysNewestRecordForEachKey() throws IOException {
+        final GuiDataStore store = open();
+        for (int i = 0; i < 10; i++) {
+            store.putString("counter", Integer.toString(i));
+            store.flush();
+        }
+        store.stop();
+
+        final GuiDataStore reopened = open();
+        assertEquals(Optional.of("9"), reopened.getString("counter"));
+        reopened.stop();
+    }
+
+    @Test
+    void dropsTornRecordAtEndOfLog() throws IOException {
+        final GuiDataStore store = open();
+        store.putString("kept", "value");
+        store.flush();
+        store.putString("torn", "value");
+        store.stop();
+        final long intactLength = getLogLength() - record("torn", "value");
+
+        // Lose the last few bytes of the final record, as a crash mid-write would
+        try (FileChannel log = FileChannel.open(getLog(), StandardOpenOption.WRITE)) {
+            log.truncate(getLogLength() - 3);
+        }
+
+        final GuiDataStore reopened = open();
+        assertEquals(Optional.of("value"), reopened.getString("kept"));
+        assertTrue(reopened.get("torn").isEmpty());
+        assertEquals(intactLength, getLogLength());
+        reopened.stop();
+    }
+
+    @Test
+    void dropsRecordWithBadChecksum() throws IOException {
+        final GuiDataStore store = open();
+        store.putString("kept", "value");
+        store.flush();
+        store.putString("corrupt", "value");
+        store.stop();
+
+        // Flip a byte of the last record's value
+        final long valueOffset = getLogLength() - 4 - "value".length();
+        try (FileChannel log = FileChannel.open(getLog(), StandardOpenOption.READ, StandardOpenOption.WRITE)) {
+            final ByteBuffer original = ByteBuffer.allocate(1);
+            log.read(original, valueOffset);
+            log.write(ByteBuffer.wrap(new byte[]{(byte) (original.get(0) ^ 0xff)}), valueOffset);
+        }
+
+        final GuiDataStore reopened = open();
+        assertEquals(Optional.of("value"), reopened.getString("kept"));
+        assertTrue(reopened.get("corrupt").isEmpty());
+        reopened.stop();
+    }
+
+    @Test
+    void compactsToLiveRecords() throws IOException {
+        final GuiDataStore store = open();
+        for (int i = 0; i < 50; i++) {
+            store.putString("usage/a", Integer.toString(i));
+            store.putString("usage/b", Integer.toString(i));
+            store.flush();
+        }
+        store.putString("icon/c", "stone");
+        store.remove("usage/b");
+        store.flush();
+        final long before = getLogLength();
+
+        store.compact();
+        assertTrue(getLogLength() < before);
+        assertEquals(Optional.of("49"), store.getString("usage/a"));
+        assertTrue(store.get("usage/b").isEmpty());
+        assertEquals(Optional.of("stone"), store.getString("icon/c"));
+
+        // Writes after compaction go after the index, and are replayed on top of it
+        store.putString("usage/a", "50");
+        store.stop();
+
+        final GuiDataStore reopened = open();
+        assertEquals(Optional.of("50"), reopened.getString("usage/a"));
+        assertEquals(Optional.of("stone"), reopened.getString("icon/c"));
+        assertTrue(reopened.get("usage/b").isEmpty());
+        final Map<String, byte[]> usage = reopened.getAll("usage/");
+        assertEquals(1, usage.size());
+        assertEquals("50", new String(usage.get("usage/a"), StandardCharsets.UTF_8));
+        reopened.stop();
+    }
+
+    @Test
+    void keepsBufferedWritesThroughCompaction() throws IOException {
+        final GuiDataStore store = open();
+        store.putString("a", "1");
+        store.flush();
+        store.putString("b", "2");
+
+        store.compact();
+        assertEquals(Optional.of("1"), store.getString("a"));
+        assertEquals(Optional.of("2"), store.getString("b"));
+        store.stop();
+
+        final GuiDataStore reopened = open();
+        assertEquals(Optional.of("2"), reopened.getString("b"));
+        reopened.stop();
+    }
+
+    @NotNull
+    private GuiDataStore open() throws IOException {
+        final HuskHomesGui plugin = mock(HuskHomesGui.class);
+        when(plugin.getDataFolder()).thenReturn(dataFolder.toFile());
+        when(plugin.getLogger()).thenReturn(Logger.getLogger(GuiDataStoreTest.class.getName()));
+        when(plugin.getScheduler()).thenReturn(mock(TaskScheduler.class));
+        when(plugin.getSettings()).thenReturn(mock(Settings.class));
+        final GuiDataStore store = new GuiDataStore(plugin);
+        store.start();
+        return store;
+    }
+
+    @NotNull
+    private Path getLog() {
+        return dataFolder.resolve("store").resolve("data.log");
+    }
+
+    private long getLogLength() throws IOException {
+        return Files.size(getLog());
+    }
+
+    // The size of a record: key and value lengths, key, value and checksum
+    private static long record(@NotNull String key, @NotNull String value) {
+        return 12 + key.length() + value.length();
+    }
+
+}